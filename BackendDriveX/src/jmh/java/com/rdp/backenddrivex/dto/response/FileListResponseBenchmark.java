@@ -0,0 +1,81 @@
+package com.rdp.backenddrivex.dto.response;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rdp.backenddrivex.entity.File;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and serializing one page of the file listing, as FileService and
+ * the MVC message converter do for GET /api/files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileListResponseBenchmark {
+
+    private static final String[] MIME_TYPES = {"image/jpeg", "image/png", "video/mp4", "audio/mpeg",
+            "application/pdf", "text/plain", "application/zip"};
+
+    @Param({"20", "100"})
+    public int pageSize;
+
+    private List<File> files;
+    private FileListResponse response;
+    // Configured like Spring Boot's (JavaTimeModule, no timestamps for dates)
+    private ObjectMapper objectMapper;
+
+    @Setup
+    public void setUp() {
+        files = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            File file = new File();
+            file.setId(UUID.randomUUID());
+            file.setFilename("holiday-photo-" + i + ".jpg");
+            file.setStoragePath("bench@example.com/" + UUID.randomUUID() + ".jpg");
+            file.setUrl("https://example.supabase.co/storage/v1/object/public/files/" + file.getStoragePath());
+            file.setMimeType(MIME_TYPES[i % MIME_TYPES.length]);
+            file.setSizeBytes(1_048_576L + i);
+            file.setUploadedAt(LocalDateTime.now().minusDays(i));
+            file.setDescription(i % 3 == 0 ? "Taken on the beach" : null);
+            files.add(file);
+        }
+        response = map();
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    }
+
+    @Benchmark
+    public FileListResponse map() {
+        List<FileResponse> responses = files.stream().map(FileResponse::new).toList();
+        return new FileListResponse(0, pageSize, 1_000, responses);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return objectMapper.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        return objectMapper.writeValueAsBytes(map());
+    }
+}
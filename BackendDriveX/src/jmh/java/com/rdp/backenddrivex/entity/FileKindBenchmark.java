@@ -0,0 +1,50 @@
+package com.rdp.backenddrivex.entity;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MIME classification, run once per file in every listing response
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FileKindBenchmark {
+
+    // Early match, late match, and the fall-through to "other"
+    @Param({"image/jpeg", "video/mp4", "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "text/csv", "application/zip"})
+    public String mimeType;
+
+    private File file;
+
+    @Setup
+    public void setUp() {
+        file = new File();
+        file.setMimeType(mimeType);
+    }
+
+    @Benchmark
+    public String fileKind() {
+        return file.getFileKind();
+    }
+
+    @Benchmark
+    public boolean previewable() {
+        return file.isPreviewable();
+    }
+}
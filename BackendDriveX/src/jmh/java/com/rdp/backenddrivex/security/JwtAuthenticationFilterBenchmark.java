@@ -0,0 +1,88 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.JwtProperties;
+import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pass through the JWT filter, from header parsing to a populated security
+ * context. The user service is an in-memory stand-in, so this measures the
+ * filter itself rather than the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({"valid", "invalid", "none"})
+    public String token;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("benchmark-secret-benchmark-secret-benchmark-secret-0123456789");
+        JwtTokenProvider tokenProvider = new JwtTokenProvider(properties);
+
+        User user = new User();
+        user.setId(UUID.randomUUID());
+        user.setEmail("bench@example.com");
+        user.setName("Benchmark User");
+        UserDetails principal = UserPrincipal.create(user);
+        CustomUserDetailsService userDetailsService = new CustomUserDetailsService(null) {
+            @Override
+            public UserDetails loadUserById(UUID id) {
+                return principal;
+            }
+        };
+
+        filter = new JwtAuthenticationFilter(tokenProvider, userDetailsService,
+                new DriveXMetrics(new SimpleMeterRegistry()));
+
+        String jwt = tokenProvider.generateToken(user.getId(), user.getName());
+        authorization = switch (token) {
+            case "valid" -> "Bearer " + jwt;
+            // Same shape, wrong signature
+            case "invalid" -> "Bearer " + jwt.substring(0, jwt.length() - 4) + "AAAA";
+            default -> null;
+        };
+    }
+
+    @Benchmark
+    public void filter(Blackhole blackhole) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        FilterChain chain = (req, res) -> blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        SecurityContextHolder.clearContext();
+    }
+}
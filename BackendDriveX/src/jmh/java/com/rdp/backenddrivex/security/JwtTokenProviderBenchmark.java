@@ -0,0 +1,57 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.JwtProperties;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token issue and verification cost. validateToken and getUserIdFromToken each
+ * parse and verify the token, and the auth filter calls both.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider tokenProvider;
+    private UUID userId;
+    private String token;
+
+    @Setup
+    public void setUp() {
+        JwtProperties properties = new JwtProperties();
+        properties.setSecret("benchmark-secret-benchmark-secret-benchmark-secret-0123456789");
+        tokenProvider = new JwtTokenProvider(properties);
+        userId = UUID.randomUUID();
+        token = tokenProvider.generateToken(userId, "Benchmark User");
+    }
+
+    @Benchmark
+    public String generate() {
+        return tokenProvider.generateToken(userId, "Benchmark User");
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return tokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public UUID extractUserId() {
+        return tokenProvider.getUserIdFromToken(token);
+    }
+}
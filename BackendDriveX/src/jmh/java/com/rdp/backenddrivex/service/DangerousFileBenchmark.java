@@ -0,0 +1,48 @@
+package com.rdp.backenddrivex.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload blocklist check. A safe file has to miss every MIME and extension rule.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DangerousFileBenchmark {
+
+    @Param({"image/jpeg|IMG_20240101_120000.jpg",
+            "application/pdf|Quarterly Report (final).PDF",
+            "application/x-msdownload|setup.exe",
+            "text/plain|deploy.sh"})
+    public String input;
+
+    private String mimeType;
+    private String filename;
+
+    @Setup
+    public void setUp() {
+        String[] parts = input.split("\\|", 2);
+        mimeType = parts[0];
+        filename = parts[1];
+    }
+
+    @Benchmark
+    public boolean isDangerousFile() {
+        return FileService.isDangerousFile(mimeType, filename);
+    }
+}
@@ -0,0 +1,79 @@
+package com.rdp.backenddrivex.service;
+
+import org.apache.tika.Tika;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tika detection on the first bytes of common upload types, with and without
+ * the filename hint FileService passes
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TikaDetectBenchmark {
+
+    @Param({"png", "jpeg", "pdf", "docx", "mp4", "text"})
+    public String type;
+
+    // Tika reads at most this much for magic detection
+    @Param({"8192"})
+    public int prefixLength;
+
+    private final Tika tika = new Tika();
+    private byte[] prefix;
+    private String filename;
+
+    @Setup
+    public void setUp() {
+        HexFormat hex = HexFormat.of();
+        byte[] magic = switch (type) {
+            case "png" -> hex.parseHex("89504e470d0a1a0a0000000d49484452");
+            case "jpeg" -> hex.parseHex("ffd8ffe000104a46494600010100000100010000");
+            case "pdf" -> "%PDF-1.7\n%âãÏÓ\n1 0 obj\n<< /Type /Catalog >>\n".getBytes(StandardCharsets.ISO_8859_1);
+            // Zip local header for an OOXML part; without parser modules Tika can only say zip/OOXML from the name
+            case "docx" -> hex.parseHex("504b0304140006000800000021");
+            case "mp4" -> hex.parseHex("0000001c667479706d703432000000006d703432");
+            default -> "Meeting notes\n\n- ship the upload fix\n- review metrics\n".getBytes(StandardCharsets.UTF_8);
+        };
+        prefix = Arrays.copyOf(magic, Math.max(magic.length, prefixLength));
+        // Pad text with text so it stays text
+        if ("text".equals(type)) {
+            for (int i = magic.length; i < prefix.length; i++) {
+                prefix[i] = magic[i % magic.length];
+            }
+        }
+        filename = switch (type) {
+            case "jpeg" -> "photo.jpg";
+            case "text" -> "notes.txt";
+            default -> "upload." + type;
+        };
+    }
+
+    @Benchmark
+    public String detectWithName() {
+        return tika.detect(prefix, filename);
+    }
+
+    @Benchmark
+    public String detectBytesOnly() {
+        return tika.detect(prefix);
+    }
+}
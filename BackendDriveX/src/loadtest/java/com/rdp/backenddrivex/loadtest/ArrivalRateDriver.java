@@ -0,0 +1,106 @@
+package com.rdp.backenddrivex.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load: each scenario fires at a fixed rate no matter how slowly
+ * the server answers, the way independent users would. Requests run on
+ * virtual threads; a cap on in-flight requests keeps a stalled server from
+ * exhausting the load generator, and capped requests are reported as skipped.
+ */
+@Slf4j
+class ArrivalRateDriver {
+
+    /**
+     * One request. Returns the HTTP status, or null if there was nothing to do
+     * (e.g. a delete with no files left), which is not recorded.
+     */
+    @FunctionalInterface
+    interface Action {
+        Integer run() throws Exception;
+    }
+
+    private final LatencyReport report;
+    private final int maxInFlight;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    ArrivalRateDriver(LatencyReport report, int maxInFlight) {
+        this.report = report;
+        this.maxInFlight = maxInFlight;
+    }
+
+    void run(Map<String, Double> rates, Map<String, Action> actions, Duration warmup, Duration duration)
+            throws InterruptedException {
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+
+        try (ExecutorService requests = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Thread> schedulers = new ArrayList<>();
+            rates.forEach((name, rate) -> {
+                if (rate > 0) {
+                    Thread scheduler = new Thread(() -> schedule(name, rate, actions.get(name), requests,
+                            start, measureFrom, end), "arrivals-" + name);
+                    scheduler.start();
+                    schedulers.add(scheduler);
+                }
+            });
+            for (Thread scheduler : schedulers) {
+                scheduler.join();
+            }
+            requests.shutdown();
+            if (!requests.awaitTermination(60, TimeUnit.SECONDS)) {
+                log.warn("{} request(s) still in flight after the run", inFlight.get());
+                requests.shutdownNow();
+            }
+        }
+    }
+
+    private void schedule(String name, double rate, Action action, ExecutorService requests,
+                          long start, long measureFrom, long end) {
+        double interval = 1e9 / rate;
+        for (long n = 0; ; n++) {
+            long intended = start + (long) (n * interval);
+            if (intended >= end) {
+                return;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+
+            boolean measured = intended >= measureFrom;
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                if (measured) {
+                    report.skipped(name);
+                }
+                continue;
+            }
+            requests.execute(() -> {
+                Integer status;
+                try {
+                    status = action.run();
+                } catch (Exception e) {
+                    log.debug("{} request failed: {}", name, e.toString());
+                    status = -1;
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+                if (status != null && measured) {
+                    report.record(name, System.nanoTime() - intended, status);
+                }
+            });
+        }
+    }
+}
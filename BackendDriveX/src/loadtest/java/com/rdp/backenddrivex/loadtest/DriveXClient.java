@@ -0,0 +1,107 @@
+package com.rdp.backenddrivex.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+
+/**
+ * Thin HTTP client for the DriveX API endpoints exercised by the load test
+ */
+class DriveXClient {
+
+    record Response(int status, JsonNode body) {
+        boolean ok() {
+            return status >= 200 && status < 300;
+        }
+    }
+
+    private final String baseUrl;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+
+    DriveXClient(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    Response register(String name, String email, String password) throws IOException, InterruptedException {
+        return postJson("/api/auth/register", Map.of("name", name, "email", email, "password", password), null);
+    }
+
+    Response login(String email, String password) throws IOException, InterruptedException {
+        return postJson("/api/auth/login", Map.of("email", email, "password", password), null);
+    }
+
+    Response upload(String token, Payloads.Payload payload) throws IOException, InterruptedException {
+        String boundary = "----drivex-" + UUID.randomUUID();
+        ByteArrayOutputStream body = new ByteArrayOutputStream(payload.content().length + 512);
+        body.writeBytes(("--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"" + payload.filename() + "\"\r\n"
+                + "Content-Type: " + payload.contentType() + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(payload.content());
+        body.writeBytes(("\r\n--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"description\"\r\n\r\n"
+                + "Uploaded by load test\r\n"
+                + "--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8));
+
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/upload"))
+                .header("Authorization", "Bearer " + token)
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray())));
+    }
+
+    Response list(String token, int page, String type) throws IOException, InterruptedException {
+        return get("/api/files?page=" + page + "&size=20&type=" + type, token);
+    }
+
+    Response search(String token, String query) throws IOException, InterruptedException {
+        return get("/api/files?page=0&size=20&search=" + URLEncoder.encode(query, StandardCharsets.UTF_8), token);
+    }
+
+    Response delete(String token, String fileId) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/files/" + fileId))
+                .header("Authorization", "Bearer " + token)
+                .DELETE());
+    }
+
+    private Response get(String path, String token) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Authorization", "Bearer " + token)
+                .GET());
+    }
+
+    private Response postJson(String path, Object payload, String token) throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(payload)));
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        return send(request);
+    }
+
+    private Response send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = httpClient.send(request.timeout(Duration.ofSeconds(60)).build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        JsonNode body = null;
+        if (response.body().length > 0 && response.body()[0] == '{') {
+            body = objectMapper.readTree(response.body());
+        }
+        return new Response(response.statusCode(), body);
+    }
+}
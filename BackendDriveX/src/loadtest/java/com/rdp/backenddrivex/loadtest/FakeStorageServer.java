@@ -0,0 +1,209 @@
+package com.rdp.backenddrivex.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for the Supabase Storage REST API, covering the calls
+ * SupabaseService makes: object upload (POST, with x-upsert), delete, info
+ * HEAD and public GET. Latency, errors and bandwidth are configurable so the
+ * app can be measured against a slow or flaky storage backend.
+ */
+@Slf4j
+public class FakeStorageServer implements AutoCloseable {
+
+    /**
+     * @param latency        added to every request before it is answered
+     * @param jitter         extra random delay, uniformly 0..jitter
+     * @param errorRate      fraction of requests answered with a 500
+     * @param bytesPerSecond per-request transfer cap for bodies, 0 for unlimited
+     */
+    public record Settings(Duration latency, Duration jitter, double errorRate, long bytesPerSecond) {
+    }
+
+    private static final String OBJECT = "/storage/v1/object/";
+    private static final String OBJECT_INFO = "/storage/v1/object/info/public/";
+    private static final String OBJECT_PUBLIC = "/storage/v1/object/public/";
+    // Object bodies are kept up to this total; beyond it only sizes are kept and reads return zeros
+    private static final long MAX_STORED_BYTES = 256L * 1024 * 1024;
+
+    private final Settings settings;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, StoredObject> objects = new ConcurrentHashMap<>();
+    private final AtomicLong storedBytes = new AtomicLong();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedErrors = new AtomicLong();
+
+    private record StoredObject(long size, byte[] content) {
+    }
+
+    public FakeStorageServer(Settings settings, int port) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 512);
+        server.createContext("/storage/v1/object/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.get();
+    }
+
+    public int objectCount() {
+        return objects.size();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requests.incrementAndGet();
+            delay();
+
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (settings.errorRate() > 0 && random.nextDouble() < settings.errorRate()) {
+                injectedErrors.incrementAndGet();
+                exchange.getRequestBody().transferTo(OutputStream.nullOutputStream());
+                respond(exchange, 500, "{\"statusCode\":\"500\",\"error\":\"Injected failure\"}");
+                return;
+            }
+
+            String path = exchange.getRequestURI().getRawPath();
+            String method = exchange.getRequestMethod();
+            if (method.equals("HEAD") && path.startsWith(OBJECT_INFO)) {
+                exchange.sendResponseHeaders(objects.containsKey(path.substring(OBJECT_INFO.length())) ? 200 : 404, -1);
+            } else if (method.equals("GET") && path.startsWith(OBJECT_PUBLIC)) {
+                download(exchange, path.substring(OBJECT_PUBLIC.length()));
+            } else if (method.equals("POST") && path.startsWith(OBJECT)) {
+                upload(exchange, path.substring(OBJECT.length()));
+            } else if (method.equals("DELETE") && path.startsWith(OBJECT)) {
+                StoredObject removed = objects.remove(path.substring(OBJECT.length()));
+                if (removed != null && removed.content() != null) {
+                    storedBytes.addAndGet(-removed.size());
+                }
+                respond(exchange, removed != null ? 200 : 404, "{\"message\":\"Successfully deleted\"}");
+            } else {
+                respond(exchange, 404, "{\"error\":\"Not found\"}");
+            }
+        } catch (IOException e) {
+            log.debug("Fake storage request failed: {}", e.getMessage());
+        }
+    }
+
+    private void upload(HttpExchange exchange, String key) throws IOException {
+        boolean upsert = "true".equals(exchange.getRequestHeaders().getFirst("x-upsert"));
+        byte[] content = readThrottled(exchange.getRequestBody());
+        if (!upsert && objects.containsKey(key)) {
+            respond(exchange, 400, "{\"statusCode\":\"409\",\"error\":\"Duplicate\",\"message\":\"The resource already exists\"}");
+            return;
+        }
+
+        boolean keep = storedBytes.addAndGet(content.length) <= MAX_STORED_BYTES;
+        if (!keep) {
+            storedBytes.addAndGet(-content.length);
+        }
+        objects.put(key, new StoredObject(content.length, keep ? content : null));
+        respond(exchange, 200, "{\"Key\":\"" + key + "\"}");
+    }
+
+    private void download(HttpExchange exchange, String key) throws IOException {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            respond(exchange, 404, "{\"error\":\"not_found\"}");
+            return;
+        }
+        exchange.sendResponseHeaders(200, object.size());
+        try (OutputStream out = exchange.getResponseBody()) {
+            byte[] content = object.content() != null ? object.content() : new byte[(int) Math.min(object.size(), Integer.MAX_VALUE)];
+            writeThrottled(out, content);
+        }
+    }
+
+    private void delay() {
+        long nanos = settings.latency().toNanos();
+        long jitter = settings.jitter().toNanos();
+        if (jitter > 0) {
+            nanos += ThreadLocalRandom.current().nextLong(jitter + 1);
+        }
+        if (nanos > 0) {
+            LockSupport.parkNanos(nanos);
+        }
+    }
+
+    private byte[] readThrottled(InputStream in) throws IOException {
+        if (settings.bytesPerSecond() <= 0) {
+            return in.readAllBytes();
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[16 * 1024];
+        long start = System.nanoTime();
+        long total = 0;
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+            total += read;
+            pace(start, total);
+        }
+        return buffer.toByteArray();
+    }
+
+    private void writeThrottled(OutputStream out, byte[] content) throws IOException {
+        if (settings.bytesPerSecond() <= 0) {
+            out.write(content);
+            return;
+        }
+        long start = System.nanoTime();
+        for (int offset = 0; offset < content.length; offset += 16 * 1024) {
+            int length = Math.min(16 * 1024, content.length - offset);
+            out.write(content, offset, length);
+            pace(start, offset + length);
+        }
+    }
+
+    // Sleeps until transferring `total` bytes since `start` is within the bandwidth cap
+    private void pace(long start, long total) {
+        long due = start + total * 1_000_000_000L / settings.bytesPerSecond();
+        long wait = due - System.nanoTime();
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] body = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
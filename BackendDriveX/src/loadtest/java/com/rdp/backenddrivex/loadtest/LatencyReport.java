@@ -0,0 +1,109 @@
+package com.rdp.backenddrivex.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-endpoint latency histograms and error counts. Latencies are measured
+ * from each request's scheduled start, not from when it was actually sent, so
+ * queueing inside the load generator shows up instead of being hidden.
+ */
+class LatencyReport {
+
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(5);
+
+    private static final class Endpoint {
+        final Histogram latencies = new ConcurrentHistogram(HIGHEST_TRACKABLE, 3);
+        final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        final LongAdder errors = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * @param status HTTP status, or -1 if the request failed without a response
+     */
+    void record(String endpoint, long latencyNanos, int status) {
+        Endpoint stats = endpoint(endpoint);
+        stats.latencies.recordValue(Math.min(latencyNanos, HIGHEST_TRACKABLE));
+        stats.statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        if (status < 200 || status >= 300) {
+            stats.errors.increment();
+        }
+    }
+
+    // A request that was due but not sent because too many were already in flight
+    void skipped(String endpoint) {
+        endpoint(endpoint).skipped.increment();
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, n -> new Endpoint());
+    }
+
+    Map<String, Object> summary(Duration measured) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        double seconds = measured.toNanos() / 1e9;
+        new TreeMap<>(endpoints).forEach((name, stats) -> {
+            Histogram histogram = stats.latencies;
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("requests", histogram.getTotalCount());
+            json.put("errors", stats.errors.sum());
+            json.put("skipped", stats.skipped.sum());
+            json.put("throughputPerSecond", round(histogram.getTotalCount() / seconds));
+            json.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+            json.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+            json.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+            json.put("maxMillis", millis(histogram.getMaxValue()));
+            Map<String, Long> statuses = new TreeMap<>();
+            stats.statuses.forEach((status, count) -> statuses.put(String.valueOf(status), count.sum()));
+            json.put("statuses", statuses);
+            summary.put(name, json);
+        });
+        return summary;
+    }
+
+    @SuppressWarnings("unchecked")
+    void print(Duration measured, PrintStream out) {
+        out.printf("%n%-8s %9s %7s %7s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "skipped", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        summary(measured).forEach((name, value) -> {
+            Map<String, Object> row = (Map<String, Object>) value;
+            out.printf("%-8s %9d %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f%n", name,
+                    row.get("requests"), row.get("errors"), row.get("skipped"), row.get("throughputPerSecond"),
+                    row.get("p50Millis"), row.get("p99Millis"), row.get("p999Millis"), row.get("maxMillis"));
+        });
+    }
+
+    void write(Path file, Map<String, Object> run, Duration measured) throws IOException {
+        Map<String, Object> json = new LinkedHashMap<>(run);
+        json.put("endpoints", summary(measured));
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), json);
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,232 @@
+package com.rdp.backenddrivex.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.rdp.backenddrivex.BackendDriveXApplication;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end load test. Boots the application against Postgres (a
+ * Testcontainers instance unless jdbc-url is given) and an in-process fake of
+ * Supabase Storage, seeds users and files through the API, then drives mixed
+ * upload, list, search, delete and login traffic at fixed arrival rates and
+ * reports latency percentiles and throughput per endpoint.
+ *
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.args="duration=PT5M rate.upload=40 storage.latency=PT0.1S"
+ * </pre>
+ *
+ * replica-jdbc-urls (comma separated) routes the app's read-only queries to
+ * replicas of jdbc-url. With target-url the app is not started; point that
+ * app's supabase.url at this process's fake storage (fixed with storage.port).
+ */
+@Slf4j
+public final class LoadTest {
+
+    private static final String PASSWORD = "LoadTest-Password-1";
+    private static final String[] LIST_TYPES = {"all", "all", "image", "video", "document", "other"};
+    private static final int SEED_CONCURRENCY = 16;
+
+    private record SeededUser(String email, String token, Deque<String> fileIds) {
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // devtools is on the test classpath; its restarter would re-run main without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        PostgreSQLContainer<?> postgres = null;
+        ConfigurableApplicationContext app = null;
+
+        try (FakeStorageServer storage = new FakeStorageServer(options.storage(), options.storagePort())) {
+            log.info("Fake storage listening on {}", storage.url());
+            String baseUrl = options.targetUrl();
+            if (baseUrl == null) {
+                String jdbcUrl = options.jdbcUrl();
+                String username = options.jdbcUsername();
+                String password = options.jdbcPassword();
+                if (jdbcUrl == null) {
+                    postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+                    postgres.start();
+                    jdbcUrl = postgres.getJdbcUrl();
+                    username = postgres.getUsername();
+                    password = postgres.getPassword();
+                }
+                app = startApplication(options, storage, jdbcUrl, username, password);
+                baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            }
+
+            DriveXClient client = new DriveXClient(baseUrl);
+            List<SeededUser> users = seed(client, options);
+
+            LatencyReport report = new LatencyReport();
+            log.info("Running for {} after {} warmup at {} req/s", options.duration(), options.warmup(), options.rates());
+            Instant startedAt = Instant.now();
+            new ArrivalRateDriver(report, options.maxInFlight())
+                    .run(options.rates(), actions(client, users, options), options.warmup(), options.duration());
+
+            report.print(options.duration(), System.out);
+            Map<String, Object> run = new LinkedHashMap<>();
+            run.put("startedAt", startedAt.toString());
+            run.put("warmup", options.warmup().toString());
+            run.put("duration", options.duration().toString());
+            run.put("rates", options.rates());
+            run.put("users", options.users());
+            run.put("seedFilesPerUser", options.filesPerUser());
+            run.put("storage", Map.of(
+                    "latency", options.storage().latency().toString(),
+                    "jitter", options.storage().jitter().toString(),
+                    "errorRate", options.storage().errorRate(),
+                    "bytesPerSecond", options.storage().bytesPerSecond(),
+                    "requests", storage.requests(),
+                    "injectedErrors", storage.injectedErrors()));
+            report.write(options.report(), run, options.duration());
+            log.info("Report written to {}", options.report().toAbsolutePath());
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(LoadTestOptions options, FakeStorageServer storage,
+                                                                   String jdbcUrl, String username, String password)
+            throws Exception {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", username);
+        properties.put("spring.datasource.password", password);
+        if (options.replicaJdbcUrls() != null) {
+            properties.put("app.read-replicas.urls", options.replicaJdbcUrls());
+        }
+        properties.put("spring.flyway.baseline-on-migrate", true);
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.jpa.show-sql", false);
+        properties.put("supabase.url", storage.url());
+        properties.put("supabase.service.key", "loadtest-service-key");
+        properties.put("supabase.bucket.name", "DriveX");
+        properties.put("supabase.anon.key", "loadtest-anon-key");
+        properties.put("jwt.secret", UUID.randomUUID() + "-" + UUID.randomUUID());
+        properties.put("spring.servlet.multipart.max-file-size", "50MB");
+        properties.put("spring.servlet.multipart.max-request-size", "50MB");
+        // The point is to measure the app, not to be throttled by it
+        properties.put("rate-limit.enabled", false);
+        properties.put("concurrency-limit.enabled", options.concurrencyLimit());
+        properties.put("management.tracing.sampling.probability", 0.0);
+        // Nothing is mailed during the run, but the mail queue needs a sender bean
+        properties.put("spring.mail.host", "localhost");
+        properties.put("app.mail.queue.spill-directory", Files.createTempDirectory("drivex-loadtest-mail").toString());
+
+        return new SpringApplicationBuilder(BackendDriveXApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    private static List<SeededUser> seed(DriveXClient client, LoadTestOptions options) throws Exception {
+        String run = Long.toString(System.currentTimeMillis(), 36);
+        List<SeededUser> users = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger files = new AtomicInteger();
+        Semaphore permits = new Semaphore(SEED_CONCURRENCY);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < options.users(); i++) {
+                String email = "loadtest-" + run + "-" + i + "@example.com";
+                executor.execute(() -> {
+                    try {
+                        permits.acquire();
+                        DriveXClient.Response response;
+                        try {
+                            response = client.register("Load Test " + email.hashCode(), email, PASSWORD);
+                        } finally {
+                            permits.release();
+                        }
+                        if (!response.ok()) {
+                            log.warn("Could not register {}: HTTP {}", email, response.status());
+                            return;
+                        }
+                        SeededUser user = new SeededUser(email,
+                                response.body().path("data").path("accessToken").asText(), new ConcurrentLinkedDeque<>());
+                        users.add(user);
+
+                        for (int f = 0; f < options.filesPerUser(); f++) {
+                            permits.acquire();
+                            try {
+                                DriveXClient.Response upload = client.upload(user.token(), Payloads.next());
+                                if (upload.ok()) {
+                                    user.fileIds().add(upload.body().path("data").path("id").asText());
+                                    files.incrementAndGet();
+                                }
+                            } finally {
+                                permits.release();
+                            }
+                        }
+                    } catch (Exception e) {
+                        log.warn("Seeding {} failed: {}", email, e.toString());
+                    }
+                });
+            }
+        }
+
+        if (users.isEmpty()) {
+            throw new IllegalStateException("No users could be registered; is the app reachable?");
+        }
+        log.info("Seeded {} users and {} files", users.size(), files.get());
+        return users;
+    }
+
+    private static Map<String, ArrivalRateDriver.Action> actions(DriveXClient client, List<SeededUser> users,
+                                                                 LoadTestOptions options) {
+        int pages = Math.max(1, options.filesPerUser() / 20);
+        Map<String, ArrivalRateDriver.Action> actions = new HashMap<>();
+        actions.put("upload", () -> {
+            SeededUser user = pick(users);
+            DriveXClient.Response response = client.upload(user.token(), Payloads.next());
+            JsonNode id = response.body() != null ? response.body().path("data").path("id") : null;
+            if (response.ok() && id != null && !id.isMissingNode()) {
+                user.fileIds().add(id.asText());
+            }
+            return response.status();
+        });
+        actions.put("list", () -> client.list(pick(users).token(),
+                ThreadLocalRandom.current().nextInt(pages), LIST_TYPES[ThreadLocalRandom.current().nextInt(LIST_TYPES.length)])
+                .status());
+        actions.put("search", () -> client.search(pick(users).token(), Payloads.randomWord()).status());
+        actions.put("delete", () -> {
+            SeededUser user = pick(users);
+            String fileId = user.fileIds().pollFirst();
+            return fileId != null ? client.delete(user.token(), fileId).status() : null;
+        });
+        actions.put("login", () -> client.login(pick(users).email(), PASSWORD).status());
+        return actions;
+    }
+
+    private static SeededUser pick(List<SeededUser> users) {
+        return users.get(ThreadLocalRandom.current().nextInt(users.size()));
+    }
+}
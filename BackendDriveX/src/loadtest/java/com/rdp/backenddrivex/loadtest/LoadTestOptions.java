@@ -0,0 +1,75 @@
+package com.rdp.backenddrivex.loadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Load test settings, given on the command line as {@code key=value} pairs.
+ * Anything not given falls back to the defaults below.
+ */
+record LoadTestOptions(
+        Duration warmup,
+        Duration duration,
+        int users,
+        int filesPerUser,
+        Map<String, Double> rates,
+        int maxInFlight,
+        String targetUrl,
+        String jdbcUrl,
+        String jdbcUsername,
+        String jdbcPassword,
+        String replicaJdbcUrls,
+        boolean concurrencyLimit,
+        FakeStorageServer.Settings storage,
+        int storagePort,
+        Path report) {
+
+    // Requests per second for each scenario
+    private static final Map<String, Double> DEFAULT_RATES = Map.of(
+            "upload", 10.0,
+            "list", 50.0,
+            "search", 10.0,
+            "delete", 2.0,
+            "login", 2.0);
+
+    static LoadTestOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        Map<String, Double> rates = new LinkedHashMap<>();
+        for (String scenario : new String[]{"upload", "list", "search", "delete", "login"}) {
+            rates.put(scenario, Double.parseDouble(
+                    values.getOrDefault("rate." + scenario, String.valueOf(DEFAULT_RATES.get(scenario)))));
+        }
+
+        return new LoadTestOptions(
+                Duration.parse(values.getOrDefault("warmup", "PT30S")),
+                Duration.parse(values.getOrDefault("duration", "PT2M")),
+                Integer.parseInt(values.getOrDefault("users", "50")),
+                Integer.parseInt(values.getOrDefault("files-per-user", "20")),
+                rates,
+                Integer.parseInt(values.getOrDefault("max-in-flight", "2000")),
+                values.get("target-url"),
+                values.get("jdbc-url"),
+                values.getOrDefault("jdbc-username", "postgres"),
+                values.getOrDefault("jdbc-password", "postgres"),
+                values.get("replica-jdbc-urls"),
+                Boolean.parseBoolean(values.getOrDefault("concurrency-limit", "true")),
+                new FakeStorageServer.Settings(
+                        Duration.parse(values.getOrDefault("storage.latency", "PT0.02S")),
+                        Duration.parse(values.getOrDefault("storage.jitter", "PT0.01S")),
+                        Double.parseDouble(values.getOrDefault("storage.error-rate", "0")),
+                        Long.parseLong(values.getOrDefault("storage.bytes-per-second", "0"))),
+                Integer.parseInt(values.getOrDefault("storage.port", "0")),
+                Path.of(values.getOrDefault("report", "target/loadtest-report.json")));
+    }
+}
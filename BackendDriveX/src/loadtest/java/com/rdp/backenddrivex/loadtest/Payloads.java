@@ -0,0 +1,90 @@
+package com.rdp.backenddrivex.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Upload bodies with a realistic mix of types and sizes. Each payload starts
+ * with the real magic bytes for its type so Tika classifies it the way it
+ * would a genuine file; the rest is sliced from a shared random buffer.
+ */
+final class Payloads {
+
+    record Payload(String filename, String contentType, byte[] content) {
+    }
+
+    private record Type(String extension, String contentType, byte[] magic, int weight) {
+    }
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final Type[] TYPES = {
+            new Type("jpg", "image/jpeg", HEX.parseHex("ffd8ffe000104a46494600010100000100010000"), 40),
+            new Type("png", "image/png", HEX.parseHex("89504e470d0a1a0a0000000d49484452"), 15),
+            new Type("pdf", "application/pdf", "%PDF-1.7\n".getBytes(StandardCharsets.US_ASCII), 20),
+            new Type("mp4", "video/mp4", HEX.parseHex("0000001c667479706d703432000000006d703432"), 10),
+            new Type("mp3", "audio/mpeg", HEX.parseHex("494433040000000000"), 5),
+            new Type("txt", "text/plain", "Notes\n".getBytes(StandardCharsets.US_ASCII), 10),
+    };
+    private static final int TOTAL_WEIGHT = 100;
+    private static final String[] WORDS = {"holiday", "invoice", "report", "family", "project", "scan",
+            "receipt", "meeting", "draft", "photo", "contract", "budget"};
+
+    private static final byte[] RANDOM = new byte[16 * 1024 * 1024];
+
+    static {
+        ThreadLocalRandom.current().nextBytes(RANDOM);
+    }
+
+    private Payloads() {
+    }
+
+    static String randomWord() {
+        return WORDS[ThreadLocalRandom.current().nextInt(WORDS.length)];
+    }
+
+    static Payload next() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Type type = pickType(random.nextInt(TOTAL_WEIGHT));
+        int size = pickSize(random, type);
+
+        byte[] content = new byte[size];
+        int offset = random.nextInt(RANDOM.length - size + 1);
+        if ("txt".equals(type.extension())) {
+            // Text has to look like text for detection
+            for (int i = 0; i < size; i++) {
+                content[i] = (byte) ('a' + (RANDOM[offset + i] & 0x0f));
+            }
+        } else {
+            System.arraycopy(RANDOM, offset, content, 0, size);
+        }
+        System.arraycopy(type.magic(), 0, content, 0, Math.min(type.magic().length, size));
+
+        String filename = randomWord() + "-" + randomWord() + "-" + random.nextInt(100_000) + "." + type.extension();
+        return new Payload(filename, type.contentType(), content);
+    }
+
+    private static Type pickType(int roll) {
+        for (Type type : TYPES) {
+            roll -= type.weight();
+            if (roll < 0) {
+                return type;
+            }
+        }
+        return TYPES[0];
+    }
+
+    // Mostly small documents and photos, a tail of multi-megabyte media
+    private static int pickSize(ThreadLocalRandom random, Type type) {
+        double roll = random.nextDouble();
+        int size;
+        if (roll < 0.70) {
+            size = random.nextInt(4 * 1024, 256 * 1024);
+        } else if (roll < 0.95) {
+            size = random.nextInt(256 * 1024, 2 * 1024 * 1024);
+        } else {
+            size = random.nextInt(2 * 1024 * 1024, 8 * 1024 * 1024);
+        }
+        return Math.max(size, type.magic().length);
+    }
+}
@@ -0,0 +1,304 @@
+package com.rdp.backenddrivex.querybench;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.SplittableRandom;
+import java.util.UUID;
+
+/**
+ * Bulk-loads synthetic users and files straight into Postgres with COPY, fast
+ * enough for millions of rows. Per-user file counts follow a Zipf distribution,
+ * so a few users own a large share of all files like on a real drive. Files are
+ * written in upload order across all users, so each user's rows are spread over
+ * the table the way organic inserts would leave them.
+ */
+@Slf4j
+final class DatasetGenerator {
+
+    static final String EMAIL_PREFIX = "dataset-";
+
+    private record MimeType(String mimeType, String extension, long medianBytes, int weight) {
+    }
+
+    // Roughly what a personal drive holds: mostly photos, then documents and video
+    private static final MimeType[] MIME_TYPES = {
+            new MimeType("image/jpeg", "jpg", 2_500_000, 340),
+            new MimeType("image/png", "png", 600_000, 120),
+            new MimeType("image/heic", "heic", 1_800_000, 50),
+            new MimeType("image/gif", "gif", 400_000, 15),
+            new MimeType("application/pdf", "pdf", 800_000, 120),
+            new MimeType("video/mp4", "mp4", 60_000_000, 60),
+            new MimeType("video/quicktime", "mov", 90_000_000, 20),
+            new MimeType("audio/mpeg", "mp3", 5_000_000, 30),
+            new MimeType("audio/wav", "wav", 20_000_000, 5),
+            new MimeType("text/plain", "txt", 8_000, 40),
+            new MimeType("text/csv", "csv", 120_000, 15),
+            new MimeType("application/json", "json", 30_000, 10),
+            new MimeType("application/vnd.openxmlformats-officedocument.wordprocessingml.document", "docx", 90_000, 50),
+            new MimeType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", "xlsx", 70_000, 30),
+            new MimeType("application/vnd.openxmlformats-officedocument.presentationml.presentation", "pptx", 3_000_000, 10),
+            new MimeType("application/zip", "zip", 15_000_000, 40),
+            new MimeType("application/octet-stream", "bin", 1_000_000, 45),
+    };
+    private static final int TOTAL_WEIGHT;
+
+    static {
+        int total = 0;
+        for (MimeType type : MIME_TYPES) {
+            total += type.weight();
+        }
+        TOTAL_WEIGHT = total;
+    }
+
+    // Words the search benchmark looks for; the first ones are common, the last ones rare
+    static final String[] WORDS = {"photo", "scan", "holiday", "family", "invoice", "report", "project",
+            "meeting", "receipt", "draft", "budget", "contract"};
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSSSSS");
+    private static final int COPY_BUFFER = 1 << 20;
+
+    private final QueryBenchmarkOptions.Dataset options;
+    private final SplittableRandom random;
+
+    DatasetGenerator(QueryBenchmarkOptions.Dataset options) {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed());
+    }
+
+    /**
+     * Inserts the dataset in one transaction and refreshes planner statistics.
+     * The users and files tables must already exist.
+     */
+    void load(Connection connection) throws SQLException {
+        long started = System.nanoTime();
+        LocalDateTime now = LocalDateTime.now();
+        int users = options.users();
+        int[] fileCounts = fileCounts(users, options.files(), options.skew());
+
+        UUID[] userIds = new UUID[users];
+        for (int i = 0; i < users; i++) {
+            userIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            PGConnection pg = connection.unwrap(PGConnection.class);
+            copyUsers(pg, userIds, now);
+            long files = copyFiles(pg, userIds, fileCounts, now);
+            connection.commit();
+            log.info("Loaded {} users and {} files in {}s", users, files,
+                    Duration.ofNanos(System.nanoTime() - started).toSeconds());
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            // Steady-state tables have fresh statistics and a set visibility map
+            statement.execute("VACUUM (ANALYZE) users");
+            statement.execute("VACUUM (ANALYZE) files");
+        }
+    }
+
+    /**
+     * Removes a previously generated dataset, leaving other rows alone
+     */
+    static void delete(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            int files = statement.executeUpdate("DELETE FROM files WHERE user_id IN "
+                    + "(SELECT id FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%')");
+            int users = statement.executeUpdate("DELETE FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%'");
+            log.info("Deleted previous dataset: {} users, {} files", users, files);
+        }
+    }
+
+    // Zipf: the user at rank r gets a share proportional to 1 / r^skew, everybody at least one file
+    static int[] fileCounts(int users, long files, double skew) {
+        double[] weights = new double[users];
+        double total = 0;
+        for (int rank = 1; rank <= users; rank++) {
+            weights[rank - 1] = 1.0 / Math.pow(rank, skew);
+            total += weights[rank - 1];
+        }
+        int[] counts = new int[users];
+        long remaining = Math.max(0, files - users);
+        for (int i = 0; i < users; i++) {
+            counts[i] = 1 + (int) Math.round(remaining * weights[i] / total);
+        }
+        return counts;
+    }
+
+    private void copyUsers(PGConnection pg, UUID[] userIds, LocalDateTime now) throws SQLException {
+        CopyIn copy = pg.getCopyAPI().copyIn("COPY users (id, name, email, password_hash, created_at, "
+                + "auth_provider, storage_provisioned) FROM STDIN");
+        try (CopyWriter writer = new CopyWriter(copy)) {
+            for (int i = 0; i < userIds.length; i++) {
+                LocalDateTime createdAt = now.minusSeconds(random.nextLong(Duration.ofDays(4 * 365).toSeconds()));
+                writer.field(userIds[i].toString())
+                        .field("Dataset User " + i)
+                        .field(email(i))
+                        .nullField()
+                        .field(TIMESTAMP.format(createdAt))
+                        .field("LOCAL")
+                        .lastField("t");
+            }
+        }
+    }
+
+    private long copyFiles(PGConnection pg, UUID[] userIds, int[] fileCounts, LocalDateTime now) throws SQLException {
+        // One slot per file, shuffled: the table is filled in upload order, interleaving all users
+        long total = 0;
+        for (int count : fileCounts) {
+            total += count;
+        }
+        if (total > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many files for one run: " + total);
+        }
+        int[] owners = new int[(int) total];
+        int slot = 0;
+        for (int user = 0; user < fileCounts.length; user++) {
+            for (int i = 0; i < fileCounts[user]; i++) {
+                owners[slot++] = user;
+            }
+        }
+        for (int i = owners.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = owners[i];
+            owners[i] = owners[j];
+            owners[j] = swap;
+        }
+
+        long span = Duration.ofDays(3 * 365).toSeconds();
+        LocalDateTime first = now.minusSeconds(span);
+        CopyIn copy = pg.getCopyAPI().copyIn("COPY files (id, user_id, filename, storage_path, url, mime_type, "
+                + "size_bytes, uploaded_at, is_deleted, deleted_at, description) FROM STDIN");
+        try (CopyWriter writer = new CopyWriter(copy)) {
+            for (int i = 0; i < owners.length; i++) {
+                int user = owners[i];
+                MimeType type = pickType();
+                // Uploads accelerate over time, so recent pages are the dense ones
+                double position = Math.sqrt((i + random.nextDouble()) / owners.length);
+                LocalDateTime uploadedAt = first.plusSeconds((long) (position * span));
+                String filename = filename(type, uploadedAt);
+                String storagePath = email(user) + "/" + new UUID(random.nextLong(), random.nextLong())
+                        + "." + type.extension();
+
+                writer.field(new UUID(random.nextLong(), random.nextLong()).toString())
+                        .field(userIds[user].toString())
+                        .field(filename)
+                        .field(storagePath)
+                        .field("https://storage.example.com/storage/v1/object/public/DriveX/" + storagePath)
+                        .field(type.mimeType())
+                        .field(Long.toString(size(type)));
+                writer.field(TIMESTAMP.format(uploadedAt));
+                if (random.nextDouble() < options.deletedFraction()) {
+                    long age = Math.max(1, Duration.between(uploadedAt, now).toSeconds());
+                    writer.field("t").field(TIMESTAMP.format(uploadedAt.plusSeconds(random.nextLong(age))));
+                } else {
+                    writer.field("f").nullField();
+                }
+                if (random.nextInt(20) == 0) {
+                    writer.lastField("Uploaded from " + (random.nextBoolean() ? "phone" : "laptop"));
+                } else {
+                    writer.lastNullField();
+                }
+            }
+        }
+        return owners.length;
+    }
+
+    private MimeType pickType() {
+        int pick = random.nextInt(TOTAL_WEIGHT);
+        for (MimeType type : MIME_TYPES) {
+            pick -= type.weight();
+            if (pick < 0) {
+                return type;
+            }
+        }
+        return MIME_TYPES[0];
+    }
+
+    // Log-normal around the type's median, so most files are small and a few very large
+    private long size(MimeType type) {
+        double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+        return Math.max(1, (long) (type.medianBytes() * Math.exp(gaussian)));
+    }
+
+    private String filename(MimeType type, LocalDateTime uploadedAt) {
+        if (type.mimeType().startsWith("image/") && random.nextInt(4) != 0) {
+            return "IMG_" + (1000 + random.nextInt(9000)) + "." + type.extension();
+        }
+        // Square the pick so earlier words are more common; search has both frequent and rare terms
+        double pick = random.nextDouble();
+        String word = WORDS[(int) (pick * pick * WORDS.length)];
+        return word + "_" + uploadedAt.getYear() + "_" + random.nextInt(10_000) + "." + type.extension();
+    }
+
+    static String email(int user) {
+        return EMAIL_PREFIX + user + "@example.com";
+    }
+
+    /**
+     * Buffers rows in Postgres COPY text format. Generated values never contain
+     * tabs, newlines or backslashes, so nothing needs escaping.
+     */
+    private static final class CopyWriter implements AutoCloseable {
+
+        private final CopyIn copy;
+        private final StringBuilder buffer = new StringBuilder(COPY_BUFFER + 4096);
+
+        CopyWriter(CopyIn copy) {
+            this.copy = copy;
+        }
+
+        CopyWriter field(String value) throws SQLException {
+            buffer.append(value).append('\t');
+            return this;
+        }
+
+        CopyWriter nullField() throws SQLException {
+            return field("\\N");
+        }
+
+        void lastField(String value) throws SQLException {
+            buffer.append(value).append('\n');
+            if (buffer.length() >= COPY_BUFFER) {
+                flush();
+            }
+        }
+
+        void lastNullField() throws SQLException {
+            lastField("\\N");
+        }
+
+        private void flush() throws SQLException {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copy.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                flush();
+                copy.endCopy();
+            } finally {
+                if (copy.isActive()) {
+                    copy.cancelCopy();
+                }
+            }
+        }
+    }
+}
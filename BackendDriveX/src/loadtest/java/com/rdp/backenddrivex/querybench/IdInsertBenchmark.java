@@ -0,0 +1,255 @@
+package com.rdp.backenddrivex.querybench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rdp.backenddrivex.entity.UuidV7Generator;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.generator.EventType;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.function.LongFunction;
+
+/**
+ * Inserts the same rows into scratch tables shaped like {@code files}, keyed by
+ * random v4 UUIDs, by {@link UuidV7Generator} ids, and by v4 ids for the first
+ * half and v7 ids after (an existing table after the switch), and compares
+ * insert throughput, primary key size, leaf splits and WAL volume. Leaf splits
+ * are counted as leaf pages minus one, which holds for a freshly filled index,
+ * and need the pgstattuple extension; without it only sizes are reported. The
+ * last tenth of the mixed run is all v7 inserts into an index full of v4 ids.
+ *
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.main=com.rdp.backenddrivex.querybench.IdInsertBenchmark \
+ *     -Dloadtest.args="jdbc-url=jdbc:postgresql://localhost:5432/drivex rows=5000000"
+ * </pre>
+ */
+@Slf4j
+public final class IdInsertBenchmark {
+
+    private static final String TABLE_PREFIX = "idbench_";
+
+    private record Options(long rows, int batchSize, String jdbcUrl, String jdbcUsername, String jdbcPassword,
+                           Path output) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected key=value, got: " + arg);
+                }
+                values.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            return new Options(
+                    Long.parseLong(values.getOrDefault("rows", "2000000")),
+                    Integer.parseInt(values.getOrDefault("batch-size", "500")),
+                    values.get("jdbc-url"),
+                    values.getOrDefault("jdbc-username", "postgres"),
+                    values.getOrDefault("jdbc-password", "postgres"),
+                    Path.of(values.getOrDefault("output", "target/id-insert-benchmark")));
+        }
+    }
+
+    // Id for the row with the given number
+    private record Variant(String name, LongFunction<UUID> ids) {
+    }
+
+    private IdInsertBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        PostgreSQLContainer<?> postgres = null;
+        try {
+            String jdbcUrl = options.jdbcUrl();
+            String username = options.jdbcUsername();
+            String password = options.jdbcPassword();
+            if (jdbcUrl == null) {
+                postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+                postgres.start();
+                jdbcUrl = postgres.getJdbcUrl();
+                username = postgres.getUsername();
+                password = postgres.getPassword();
+            }
+
+            Properties properties = new Properties();
+            properties.setProperty("user", username);
+            properties.setProperty("password", password);
+            // Sends each batch as multi-row INSERTs, so the index, not the round trips, dominates
+            properties.setProperty("reWriteBatchedInserts", "true");
+
+            UuidV7Generator v7 = new UuidV7Generator();
+            List<Variant> variants = List.of(
+                    new Variant("v4", row -> UUID.randomUUID()),
+                    new Variant("v7", row -> (UUID) v7.generate(null, null, null, EventType.INSERT)),
+                    new Variant("v4_v7", row -> row < options.rows() / 2 ? UUID.randomUUID()
+                            : (UUID) v7.generate(null, null, null, EventType.INSERT)));
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, properties)) {
+                boolean pgstattuple = enablePgstattuple(connection);
+                for (Variant variant : variants) {
+                    results.add(run(connection, variant, options, pgstattuple));
+                }
+                for (Variant variant : variants) {
+                    execute(connection, "DROP TABLE IF EXISTS " + TABLE_PREFIX + variant.name());
+                }
+            }
+
+            print(results);
+            write(options, results);
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static Map<String, Object> run(Connection connection, Variant variant, Options options,
+                                           boolean pgstattuple) throws SQLException {
+        String table = TABLE_PREFIX + variant.name();
+        execute(connection, "DROP TABLE IF EXISTS " + table);
+        execute(connection, "CREATE TABLE " + table + " (id uuid PRIMARY KEY, user_id uuid NOT NULL, "
+                + "filename varchar(255) NOT NULL, mime_type varchar(255) NOT NULL, size_bytes bigint NOT NULL, "
+                + "uploaded_at timestamp(6) NOT NULL, is_deleted boolean NOT NULL)");
+        // Start every run from a checkpoint, so each pays for the full-page images of the pages it touches
+        execute(connection, "CHECKPOINT");
+        String walStart = string(connection, "SELECT pg_current_wal_lsn()::text");
+
+        // Same seed for every variant: only the ids differ
+        SplittableRandom random = new SplittableRandom(42);
+        UUID[] owners = new UUID[1000];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = UUID.randomUUID();
+        }
+
+        log.info("Inserting {} rows with {} ids", options.rows(), variant.name());
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        long started = System.nanoTime();
+        long lastTenthStarted = started;
+        long lastTenthFrom = options.rows() - options.rows() / 10;
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table
+                + " (id, user_id, filename, mime_type, size_bytes, uploaded_at, is_deleted) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            for (long row = 0; row < options.rows(); row++) {
+                if (row == lastTenthFrom) {
+                    lastTenthStarted = System.nanoTime();
+                }
+                insert.setObject(1, variant.ids().apply(row));
+                insert.setObject(2, owners[random.nextInt(owners.length)]);
+                insert.setString(3, "IMG_" + (1000 + random.nextInt(9000)) + ".jpg");
+                insert.setString(4, "image/jpeg");
+                insert.setLong(5, 1 + random.nextLong(10_000_000));
+                insert.setTimestamp(6, Timestamp.from(Instant.now()));
+                insert.setBoolean(7, false);
+                insert.addBatch();
+                if ((row + 1) % options.batchSize() == 0 || row + 1 == options.rows()) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        long finished = System.nanoTime();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ids", variant.name());
+        result.put("rows", options.rows());
+        result.put("seconds", round((finished - started) / 1e9));
+        result.put("rowsPerSecond", Math.round(options.rows() / ((finished - started) / 1e9)));
+        // The last tenth runs against a large index, where random ids hurt the most
+        result.put("lastTenthRowsPerSecond", Math.round(options.rows() / 10 / ((finished - lastTenthStarted) / 1e9)));
+        result.put("walBytes", number(connection, "SELECT pg_wal_lsn_diff(pg_current_wal_lsn(), '" + walStart + "')"));
+        result.put("tableBytes", number(connection, "SELECT pg_relation_size('" + table + "')"));
+        result.put("primaryKeyBytes", number(connection, "SELECT pg_relation_size('" + table + "_pkey')"));
+        if (pgstattuple) {
+            try (Statement statement = connection.createStatement();
+                 ResultSet stats = statement.executeQuery("SELECT leaf_pages, avg_leaf_density, leaf_fragmentation "
+                         + "FROM pgstatindex('" + table + "_pkey')")) {
+                stats.next();
+                result.put("leafPages", stats.getLong(1));
+                result.put("leafSplits", stats.getLong(1) - 1);
+                result.put("avgLeafDensityPercent", stats.getDouble(2));
+                result.put("leafFragmentationPercent", stats.getDouble(3));
+            }
+        }
+        log.info("{}: {}", variant.name(), result);
+        return result;
+    }
+
+    private static boolean enablePgstattuple(Connection connection) {
+        try {
+            execute(connection, "CREATE EXTENSION IF NOT EXISTS pgstattuple");
+            return true;
+        } catch (SQLException e) {
+            log.warn("pgstattuple is not available, leaf splits will not be reported: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void print(List<Map<String, Object>> results) {
+        System.out.printf("%n%-6s %10s %12s %15s %12s %11s %12s %13s%n", "ids", "seconds", "rows/s",
+                "last 10% rows/s", "pkey MiB", "leaf splits", "leaf dens. %", "WAL MiB");
+        for (Map<String, Object> row : results) {
+            System.out.printf("%-6s %10.2f %12d %15d %12.1f %11s %12s %13.1f%n", row.get("ids"), row.get("seconds"),
+                    row.get("rowsPerSecond"), row.get("lastTenthRowsPerSecond"),
+                    (Long) row.get("primaryKeyBytes") / 1048576.0, row.getOrDefault("leafSplits", "-"),
+                    row.getOrDefault("avgLeafDensityPercent", "-"), (Long) row.get("walBytes") / 1048576.0);
+        }
+    }
+
+    private static void write(Options options, List<Map<String, Object>> results) throws IOException {
+        Files.createDirectories(options.output());
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("startedAt", Instant.now().toString());
+        json.put("batchSize", options.batchSize());
+        json.put("results", results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(options.output().resolve("report.json").toFile(), json);
+        log.info("Report written to {}", options.output().toAbsolutePath());
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long number(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static String string(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getString(1);
+        }
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,266 @@
+package com.rdp.backenddrivex.querybench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rdp.backenddrivex.BackendDriveXApplication;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.repository.FileRepository;
+import com.rdp.backenddrivex.repository.UserRepository;
+import com.rdp.backenddrivex.service.CustomUserDetailsService;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Counts the database round trips of bulk work through the JPA layer with
+ * Hibernate's defaults and with the persistence settings from
+ * application.properties.template (JDBC batching, ordered inserts and updates,
+ * second-level cache for users). For each, the application is booted, then:
+ * <ul>
+ *   <li>bulk upload: many files saved in one transaction</li>
+ *   <li>bulk delete: the same files loaded and soft-deleted in one transaction</li>
+ *   <li>user lookups: the per-request user lookup of the JWT filter, repeated</li>
+ * </ul>
+ *
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.main=com.rdp.backenddrivex.querybench.PersistenceBenchmark \
+ *     -Dloadtest.args="jdbc-url=jdbc:postgresql://localhost:5432/drivex files=500"
+ * </pre>
+ */
+@Slf4j
+public final class PersistenceBenchmark {
+
+    private static final String EMAIL_PREFIX = "persistence-benchmark-";
+
+    // Hibernate's defaults; the cache would otherwise come on with the JCache provider on the classpath
+    private static final Map<String, Object> DEFAULTS = Map.of(
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache", false);
+
+    // Mirrors the JPA section of application.properties.template; the cache provider is set by PersistenceConfig
+    private static final Map<String, Object> TUNED = Map.of(
+            "spring.jpa.properties.hibernate.jdbc.batch_size", 50,
+            "spring.jpa.properties.hibernate.order_inserts", true,
+            "spring.jpa.properties.hibernate.order_updates", true,
+            "spring.jpa.properties.hibernate.cache.use_second_level_cache", true);
+
+    private record Options(int files, int lookups, int iterations, String jdbcUrl, String jdbcUsername,
+                           String jdbcPassword, Path output) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected key=value, got: " + arg);
+                }
+                values.put(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+            return new Options(
+                    Integer.parseInt(values.getOrDefault("files", "200")),
+                    Integer.parseInt(values.getOrDefault("lookups", "100")),
+                    Integer.parseInt(values.getOrDefault("iterations", "5")),
+                    values.get("jdbc-url"),
+                    values.getOrDefault("jdbc-username", "postgres"),
+                    values.getOrDefault("jdbc-password", "postgres"),
+                    Path.of(values.getOrDefault("output", "target/persistence-benchmark")));
+        }
+    }
+
+    private PersistenceBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // devtools is on the test classpath; its restarter would re-run main without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Options options = Options.parse(args);
+        PostgreSQLContainer<?> postgres = null;
+        try {
+            String jdbcUrl = options.jdbcUrl();
+            String username = options.jdbcUsername();
+            String password = options.jdbcPassword();
+            if (jdbcUrl == null) {
+                postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+                postgres.start();
+                jdbcUrl = postgres.getJdbcUrl();
+                username = postgres.getUsername();
+                password = postgres.getPassword();
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            results.addAll(run("defaults", DEFAULTS, options, jdbcUrl, username, password));
+            results.addAll(run("tuned", TUNED, options, jdbcUrl, username, password));
+
+            System.out.printf("%n%-9s %-13s %7s %12s %11s %9s%n",
+                    "settings", "operation", "rows", "round trips", "statements", "p50 ms");
+            for (Map<String, Object> row : results) {
+                System.out.printf("%-9s %-13s %7d %12d %11d %9.2f%n", row.get("settings"), row.get("operation"),
+                        row.get("rows"), row.get("roundTrips"), row.get("statements"), row.get("p50Millis"));
+            }
+            write(options.output(), results);
+        } finally {
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static List<Map<String, Object>> run(String settings, Map<String, Object> persistence, Options options,
+                                                 String jdbcUrl, String username, String password) throws Exception {
+        StatementCapture capture = new StatementCapture();
+        Map<String, Object> properties = new HashMap<>(persistence);
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", username);
+        properties.put("spring.datasource.password", password);
+        properties.put("spring.jpa.properties.hibernate.generate_statistics", true);
+        try (ConfigurableApplicationContext app = startApplication(capture, properties)) {
+            UserRepository users = app.getBean(UserRepository.class);
+            FileRepository files = app.getBean(FileRepository.class);
+            CustomUserDetailsService userDetails = app.getBean(CustomUserDetailsService.class);
+            TransactionTemplate transaction = new TransactionTemplate(app.getBean(PlatformTransactionManager.class));
+            Statistics statistics = app.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+
+            deleteBenchmarkRows(capture);
+            User user = users.save(new User("Persistence Benchmark", EMAIL_PREFIX + UUID.randomUUID() + "@example.com",
+                    (String) null));
+
+            List<Measurement> upload = new ArrayList<>();
+            List<Measurement> delete = new ArrayList<>();
+            List<Measurement> lookup = new ArrayList<>();
+            for (int iteration = 0; iteration < options.iterations(); iteration++) {
+                List<UUID> ids = new ArrayList<>();
+                upload.add(measure(capture, () -> transaction.execute(status -> {
+                    List<File> batch = new ArrayList<>();
+                    for (int i = 0; i < options.files(); i++) {
+                        String name = UUID.randomUUID() + ".jpg";
+                        batch.add(new File(user, "IMG_" + i + ".jpg", user.getEmail() + "/" + name,
+                                "https://storage.example.com/" + name, "image/jpeg", 1000L + i, null));
+                    }
+                    files.saveAll(batch).forEach(file -> ids.add(file.getId()));
+                    return null;
+                })));
+                delete.add(measure(capture, () -> transaction.execute(status -> {
+                    files.findAllById(ids).forEach(File::markAsDeleted);
+                    return null;
+                })));
+                statistics.clear();
+                lookup.add(measure(capture, () -> {
+                    for (int i = 0; i < options.lookups(); i++) {
+                        userDetails.loadUserById(user.getId());
+                    }
+                    return null;
+                }));
+            }
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            results.add(result(settings, "bulk upload", options.files(), upload));
+            results.add(result(settings, "bulk delete", options.files(), delete));
+            Map<String, Object> lookups = result(settings, "user lookups", options.lookups(), lookup);
+            lookups.put("secondLevelCacheHits", statistics.getSecondLevelCacheHitCount());
+            lookups.put("secondLevelCacheMisses", statistics.getSecondLevelCacheMissCount());
+            results.add(lookups);
+            results.forEach(result -> log.info("{}", result));
+
+            deleteBenchmarkRows(capture);
+            return results;
+        }
+    }
+
+    private record Measurement(long nanos, int roundTrips, int statements) {
+    }
+
+    private static Measurement measure(StatementCapture capture, Callable<?> work) throws Exception {
+        long start = System.nanoTime();
+        List<StatementCapture.Captured> captured = capture.capture(work);
+        long nanos = System.nanoTime() - start;
+        int statements = 0;
+        for (StatementCapture.Captured statement : captured) {
+            statements += statement.batchSize();
+        }
+        return new Measurement(nanos, captured.size(), statements);
+    }
+
+    // Round trips do not vary between iterations; times do, so they get a median
+    private static Map<String, Object> result(String settings, String operation, int rows,
+                                              List<Measurement> measurements) {
+        long[] nanos = measurements.stream().mapToLong(Measurement::nanos).toArray();
+        Arrays.sort(nanos);
+        Measurement last = measurements.get(measurements.size() - 1);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("settings", settings);
+        result.put("operation", operation);
+        result.put("rows", rows);
+        result.put("roundTrips", last.roundTrips());
+        result.put("statements", last.statements());
+        result.put("p50Millis", Math.round(nanos[nanos.length / 2] / 1e4) / 100.0);
+        return result;
+    }
+
+    private static ConfigurableApplicationContext startApplication(StatementCapture capture,
+                                                                   Map<String, Object> overrides) throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.flyway.baseline-on-migrate", true);
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.jpa.show-sql", false);
+        // Storage and mail are never called; the beans just need their settings
+        properties.put("supabase.url", "http://localhost:9");
+        properties.put("supabase.service.key", "persistence-benchmark-service-key");
+        properties.put("supabase.bucket.name", "DriveX");
+        properties.put("supabase.anon.key", "persistence-benchmark-anon-key");
+        properties.put("jwt.secret", UUID.randomUUID() + "-" + UUID.randomUUID());
+        properties.put("management.tracing.sampling.probability", 0.0);
+        properties.put("spring.mail.host", "localhost");
+        properties.put("app.mail.queue.spill-directory",
+                Files.createTempDirectory("drivex-persistence-benchmark-mail").toString());
+        properties.putAll(overrides);
+
+        return new SpringApplicationBuilder(BackendDriveXApplication.class)
+                .properties(properties)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(capture))
+                .run();
+    }
+
+    private static void deleteBenchmarkRows(StatementCapture capture) throws SQLException {
+        try (Connection connection = capture.target().getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM files WHERE user_id IN "
+                    + "(SELECT id FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%')");
+            statement.executeUpdate("DELETE FROM users WHERE email LIKE '" + EMAIL_PREFIX + "%'");
+        }
+    }
+
+    private static void write(Path output, List<Map<String, Object>> results) throws IOException {
+        Files.createDirectories(output);
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("startedAt", Instant.now().toString());
+        json.put("defaults", DEFAULTS);
+        json.put("tuned", TUNED);
+        json.put("results", results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(output.resolve("report.json").toFile(), json);
+        log.info("Report written to {}", output.toAbsolutePath());
+    }
+}
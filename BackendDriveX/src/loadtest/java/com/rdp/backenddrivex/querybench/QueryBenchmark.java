@@ -0,0 +1,377 @@
+package com.rdp.backenddrivex.querybench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rdp.backenddrivex.BackendDriveXApplication;
+import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.repository.FileRepository;
+import com.rdp.backenddrivex.repository.UserRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Times every FileRepository query against a large synthetic dataset and
+ * records the plan Postgres picks for each. Boots the application against
+ * Postgres (a Testcontainers instance unless jdbc-url is given), loads the
+ * dataset with {@link DatasetGenerator} unless one is already there, then runs
+ * each query for a heavy, a p99, a median and a light user.
+ *
+ * <pre>
+ * mvn -Ploadtest -DskipTests verify -Dloadtest.main=com.rdp.backenddrivex.querybench.QueryBenchmark \
+ *     -Dloadtest.args="jdbc-url=jdbc:postgresql://localhost:5432/drivex files=5000000"
+ * </pre>
+ *
+ * Writes {@code plans.txt}, plan shapes without costs that only change when a
+ * plan does, so it can be committed and diffed in review, and
+ * {@code report.json} with timings and EXPLAIN (ANALYZE, BUFFERS) output.
+ */
+@Slf4j
+public final class QueryBenchmark {
+
+    private static final long HIGHEST_TRACKABLE = TimeUnit.MINUTES.toNanos(5);
+    private static final int[] PAGE_DEPTHS = {0, 10, 100, 1000};
+    // Global queries touch the whole table, so they get fewer runs
+    private static final int GLOBAL_ITERATIONS = 3;
+    // Ids and timestamps bound into plans differ between runs and would only add noise to diffs
+    private static final Pattern RUN_SPECIFIC_LITERAL = Pattern.compile("'[^']*'::(uuid|timestamp[a-z ]*)");
+
+    private record SampleUser(String bucket, User user, long files, UUID fileId, String storagePath) {
+    }
+
+    private record Query(String name, boolean global, QueryCall call) {
+    }
+
+    @FunctionalInterface
+    private interface QueryCall {
+        // Returns the number of rows the query produced
+        long run(SampleUser user);
+    }
+
+    private QueryBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        // devtools is on the test classpath; its restarter would re-run main without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        QueryBenchmarkOptions options = QueryBenchmarkOptions.parse(args);
+        PostgreSQLContainer<?> postgres = null;
+        ConfigurableApplicationContext app = null;
+
+        try {
+            String jdbcUrl = options.jdbcUrl();
+            String username = options.jdbcUsername();
+            String password = options.jdbcPassword();
+            if (jdbcUrl == null) {
+                postgres = new PostgreSQLContainer<>("postgres:16-alpine");
+                postgres.start();
+                jdbcUrl = postgres.getJdbcUrl();
+                username = postgres.getUsername();
+                password = postgres.getPassword();
+            }
+
+            StatementCapture capture = new StatementCapture();
+            app = startApplication(capture, jdbcUrl, username, password);
+            Map<String, Object> dataset = prepareDataset(capture, options);
+
+            List<SampleUser> users = sampleUsers(capture, app.getBean(UserRepository.class));
+            List<Query> queries = queries(app.getBean(FileRepository.class), options.pageSize());
+
+            List<Map<String, Object>> results = new ArrayList<>();
+            StringBuilder plans = new StringBuilder();
+            for (Query query : queries) {
+                plans.append("== ").append(query.name()).append(" ==\n");
+                Set<String> printed = new HashSet<>();
+                for (SampleUser user : query.global() ? users.subList(0, 1) : users) {
+                    Map<String, Object> result = run(query, user, options, capture);
+                    if (result == null) {
+                        continue;
+                    }
+                    results.add(result);
+
+                    @SuppressWarnings("unchecked")
+                    List<Map<String, String>> statements = (List<Map<String, String>>) result.get("statements");
+                    plans.append("-- ").append(query.global() ? "all users" : user.bucket() + " user").append('\n');
+                    for (Map<String, String> statement : statements) {
+                        if (printed.add(statement.get("sql"))) {
+                            plans.append(statement.get("sql")).append('\n');
+                        }
+                        plans.append(RUN_SPECIFIC_LITERAL.matcher(statement.get("planShape")).replaceAll("?::$1"));
+                    }
+                }
+                plans.append('\n');
+            }
+
+            print(results, System.out);
+            write(options.output(), dataset, users, results, plans.toString());
+            log.info("Plans and report written to {}", options.output().toAbsolutePath());
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+            if (postgres != null) {
+                postgres.stop();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(StatementCapture capture, String jdbcUrl,
+                                                                   String username, String password) throws IOException {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", 0);
+        properties.put("spring.datasource.url", jdbcUrl);
+        properties.put("spring.datasource.username", username);
+        properties.put("spring.datasource.password", password);
+        properties.put("spring.flyway.baseline-on-migrate", true);
+        properties.put("spring.jpa.hibernate.ddl-auto", "validate");
+        properties.put("spring.jpa.show-sql", false);
+        // Storage and mail are never called; the beans just need their settings
+        properties.put("supabase.url", "http://localhost:9");
+        properties.put("supabase.service.key", "querybench-service-key");
+        properties.put("supabase.bucket.name", "DriveX");
+        properties.put("supabase.anon.key", "querybench-anon-key");
+        properties.put("jwt.secret", UUID.randomUUID() + "-" + UUID.randomUUID());
+        properties.put("management.tracing.sampling.probability", 0.0);
+        properties.put("spring.mail.host", "localhost");
+        properties.put("app.mail.queue.spill-directory", Files.createTempDirectory("drivex-querybench-mail").toString());
+
+        return new SpringApplicationBuilder(BackendDriveXApplication.class)
+                .properties(properties)
+                .initializers(context -> context.getBeanFactory().addBeanPostProcessor(capture))
+                .run();
+    }
+
+    private static Map<String, Object> prepareDataset(StatementCapture capture, QueryBenchmarkOptions options)
+            throws SQLException {
+        try (Connection connection = capture.target().getConnection()) {
+            if (options.regenerate()) {
+                DatasetGenerator.delete(connection);
+            }
+            if (count(connection, "SELECT count(*) FROM users WHERE email LIKE '" + DatasetGenerator.EMAIL_PREFIX + "%'") == 0) {
+                log.info("Generating {}", options.dataset());
+                new DatasetGenerator(options.dataset()).load(connection);
+            } else {
+                log.info("Reusing the dataset already in the database; pass regenerate=true to replace it");
+            }
+
+            Map<String, Object> dataset = new LinkedHashMap<>();
+            dataset.put("requested", options.dataset());
+            dataset.put("users", count(connection, "SELECT count(*) FROM users"));
+            dataset.put("files", count(connection, "SELECT count(*) FROM files"));
+            dataset.put("deletedFiles", count(connection, "SELECT count(*) FROM files WHERE is_deleted"));
+            dataset.put("filesTableBytes", count(connection, "SELECT pg_total_relation_size('files')"));
+            try (Statement statement = connection.createStatement();
+                 ResultSet version = statement.executeQuery("SELECT version()")) {
+                version.next();
+                dataset.put("postgres", version.getString(1));
+            }
+            return dataset;
+        }
+    }
+
+    // Picks users from both ends and the middle of the files-per-user distribution
+    private static List<SampleUser> sampleUsers(StatementCapture capture, UserRepository userRepository)
+            throws SQLException {
+        List<UUID> ids = new ArrayList<>();
+        List<Long> counts = new ArrayList<>();
+        try (Connection connection = capture.target().getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT u.id, count(f.id) FROM users u "
+                     + "JOIN files f ON f.user_id = u.id AND NOT f.is_deleted "
+                     + "WHERE u.email LIKE '" + DatasetGenerator.EMAIL_PREFIX + "%' "
+                     + "GROUP BY u.id ORDER BY 2 DESC, 1")) {
+            while (rows.next()) {
+                ids.add(rows.getObject(1, UUID.class));
+                counts.add(rows.getLong(2));
+            }
+        }
+        if (ids.isEmpty()) {
+            throw new IllegalStateException("The dataset has no users with files");
+        }
+
+        Map<String, Integer> buckets = new LinkedHashMap<>();
+        buckets.put("heavy", 0);
+        buckets.put("p99", ids.size() / 100);
+        buckets.put("median", ids.size() / 2);
+        buckets.put("light", ids.size() - 1);
+
+        List<SampleUser> users = new ArrayList<>();
+        try (Connection connection = capture.target().getConnection()) {
+            for (Map.Entry<String, Integer> bucket : buckets.entrySet()) {
+                int index = bucket.getValue();
+                User user = userRepository.findById(ids.get(index)).orElseThrow();
+                try (PreparedStatement statement = connection.prepareStatement("SELECT id, storage_path FROM files "
+                        + "WHERE user_id = ? AND NOT is_deleted ORDER BY uploaded_at DESC LIMIT 1")) {
+                    statement.setObject(1, user.getId());
+                    try (ResultSet file = statement.executeQuery()) {
+                        file.next();
+                        users.add(new SampleUser(bucket.getKey(), user, counts.get(index),
+                                file.getObject(1, UUID.class), file.getString(2)));
+                    }
+                }
+            }
+        }
+        return users;
+    }
+
+    private static List<Query> queries(FileRepository files, int pageSize) {
+        PageRequest first = PageRequest.of(0, pageSize);
+        List<Query> queries = new ArrayList<>();
+        for (int depth : PAGE_DEPTHS) {
+            queries.add(new Query("list page " + depth, false, user -> depth * (long) pageSize < user.files()
+                    ? rows(files.findByUserAndNotDeleted(user.user(), PageRequest.of(depth, pageSize)))
+                    : -1));
+        }
+        for (String kind : new String[]{"image", "video", "audio"}) {
+            queries.add(new Query("type " + kind, false,
+                    user -> rows(files.findByUserAndMimeTypeAndNotDeleted(user.user(), kind + "/%", first))));
+        }
+        queries.add(new Query("type document", false,
+                user -> rows(files.findByUserAndDocumentTypesAndNotDeleted(user.user(), first))));
+        queries.add(new Query("type other", false,
+                user -> rows(files.findByUserAndOtherTypesAndNotDeleted(user.user(), first))));
+
+        String[] words = DatasetGenerator.WORDS;
+        Map<String, String> searches = new LinkedHashMap<>();
+        searches.put("common", words[0]);
+        searches.put("rare", words[words.length - 1]);
+        searches.put("miss", "no-such-file");
+        searches.forEach((name, term) -> queries.add(new Query("search " + name, false,
+                user -> rows(files.findByUserAndFilenameContainingAndNotDeleted(user.user(), term, first)))));
+
+        queries.add(new Query("usage sum", false, user -> {
+            files.calculateTotalStorageByUser(user.user());
+            return 1;
+        }));
+        queries.add(new Query("by id and user", false,
+                user -> rows(files.findByIdAndUser(user.fileId(), user.user()))));
+        queries.add(new Query("by id and user, not deleted", false,
+                user -> rows(files.findByIdAndUserAndNotDeleted(user.fileId(), user.user()))));
+        queries.add(new Query("by storage path", true,
+                user -> rows(files.findByStoragePath(user.storagePath()))));
+        queries.add(new Query("deleted before 30 days", true,
+                user -> files.findDeletedFilesBefore(LocalDateTime.now().minusDays(30)).size()));
+        return queries;
+    }
+
+    private static long rows(Page<?> page) {
+        return page.getNumberOfElements();
+    }
+
+    private static long rows(Optional<?> row) {
+        return row.isPresent() ? 1 : 0;
+    }
+
+    private static Map<String, Object> run(Query query, SampleUser user, QueryBenchmarkOptions options,
+                                           StatementCapture capture) throws Exception {
+        int warmup = query.global() ? 1 : options.warmupIterations();
+        int iterations = query.global() ? GLOBAL_ITERATIONS : options.iterations();
+
+        long rows = 0;
+        for (int i = 0; i < warmup; i++) {
+            rows = query.call().run(user);
+            if (rows < 0) {
+                // Not applicable, e.g. a page past the user's last one
+                return null;
+            }
+        }
+        Histogram latencies = new Histogram(HIGHEST_TRACKABLE, 3);
+        for (int i = 0; i < iterations; i++) {
+            long start = System.nanoTime();
+            rows = query.call().run(user);
+            latencies.recordValue(Math.min(System.nanoTime() - start, HIGHEST_TRACKABLE));
+        }
+
+        List<Map<String, String>> statements = new ArrayList<>();
+        for (StatementCapture.Captured statement : capture.capture(() -> query.call().run(user))) {
+            Map<String, String> json = new LinkedHashMap<>();
+            json.put("sql", statement.sql());
+            json.put("planShape", capture.explain(statement, "COSTS OFF"));
+            json.put("plan", capture.explain(statement, "ANALYZE, BUFFERS"));
+            statements.add(json);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("query", query.name());
+        result.put("user", query.global() ? "all" : user.bucket());
+        result.put("userFiles", user.files());
+        result.put("rows", rows);
+        result.put("iterations", iterations);
+        result.put("p50Millis", millis(latencies.getValueAtPercentile(50)));
+        result.put("p95Millis", millis(latencies.getValueAtPercentile(95)));
+        result.put("maxMillis", millis(latencies.getMaxValue()));
+        result.put("meanMillis", round(latencies.getMean() / 1e6));
+        result.put("statements", statements);
+        log.info("{} ({}): p50 {} ms", query.name(), result.get("user"), result.get("p50Millis"));
+        return result;
+    }
+
+    private static void print(Collection<Map<String, Object>> results, PrintStream out) {
+        out.printf("%n%-28s %-7s %10s %7s %9s %9s %9s%n",
+                "query", "user", "user files", "rows", "p50 ms", "p95 ms", "max ms");
+        for (Map<String, Object> row : results) {
+            out.printf("%-28s %-7s %10d %7d %9.2f %9.2f %9.2f%n", row.get("query"), row.get("user"),
+                    row.get("userFiles"), row.get("rows"), row.get("p50Millis"), row.get("p95Millis"),
+                    row.get("maxMillis"));
+        }
+    }
+
+    private static void write(Path output, Map<String, Object> dataset, List<SampleUser> users,
+                              List<Map<String, Object>> results, String plans) throws IOException {
+        Files.createDirectories(output);
+        Files.writeString(output.resolve("plans.txt"), plans);
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("startedAt", Instant.now().toString());
+        json.put("dataset", dataset);
+        Map<String, Long> sampled = new LinkedHashMap<>();
+        users.forEach(user -> sampled.put(user.bucket(), user.files()));
+        json.put("sampleUserFiles", sampled);
+        json.put("results", results);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(output.resolve("report.json").toFile(), json);
+    }
+
+    private static long count(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rows = statement.executeQuery(sql)) {
+            rows.next();
+            return rows.getLong(1);
+        }
+    }
+
+    private static double millis(long nanos) {
+        return round(nanos / 1e6);
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+}
@@ -0,0 +1,54 @@
+package com.rdp.backenddrivex.querybench;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Query benchmark settings, given on the command line as {@code key=value}
+ * pairs. Anything not given falls back to the defaults below.
+ */
+record QueryBenchmarkOptions(
+        Dataset dataset,
+        boolean regenerate,
+        int warmupIterations,
+        int iterations,
+        int pageSize,
+        String jdbcUrl,
+        String jdbcUsername,
+        String jdbcPassword,
+        Path output) {
+
+    /**
+     * @param skew Zipf exponent of files per user; 0 spreads files evenly
+     */
+    record Dataset(int users, long files, double skew, double deletedFraction, long seed) {
+    }
+
+    static QueryBenchmarkOptions parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+
+        return new QueryBenchmarkOptions(
+                new Dataset(
+                        Integer.parseInt(values.getOrDefault("users", "20000")),
+                        Long.parseLong(values.getOrDefault("files", "2000000")),
+                        Double.parseDouble(values.getOrDefault("skew", "1.0")),
+                        Double.parseDouble(values.getOrDefault("deleted-fraction", "0.08")),
+                        Long.parseLong(values.getOrDefault("seed", "42"))),
+                Boolean.parseBoolean(values.getOrDefault("regenerate", "false")),
+                Integer.parseInt(values.getOrDefault("warmup-iterations", "5")),
+                Integer.parseInt(values.getOrDefault("iterations", "30")),
+                Integer.parseInt(values.getOrDefault("page-size", "20")),
+                values.get("jdbc-url"),
+                values.getOrDefault("jdbc-username", "postgres"),
+                values.getOrDefault("jdbc-password", "postgres"),
+                Path.of(values.getOrDefault("output", "target/query-benchmark")));
+    }
+}
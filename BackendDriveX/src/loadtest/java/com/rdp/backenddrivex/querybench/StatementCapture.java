@@ -0,0 +1,108 @@
+package com.rdp.backenddrivex.querybench;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.proxy.ParameterSetOperation;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Wraps the application's DataSource so the SQL Hibernate generates for a
+ * repository call, bind values included, can be recorded and then replayed
+ * under EXPLAIN on a plain connection.
+ */
+final class StatementCapture implements BeanPostProcessor, QueryExecutionListener {
+
+    /**
+     * One execution, i.e. one round trip; {@code batchSize} is the number of
+     * parameter sets sent with it
+     */
+    record Captured(String sql, List<ParameterSetOperation> parameters, int batchSize) {
+    }
+
+    private final ThreadLocal<List<Captured>> capturing = new ThreadLocal<>();
+    private volatile DataSource target;
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && target == null) {
+            target = dataSource;
+            return ProxyDataSourceBuilder.create(dataSource).name(beanName).listener(this).build();
+        }
+        return bean;
+    }
+
+    /**
+     * The unwrapped DataSource, for setup and EXPLAIN without being recorded
+     */
+    DataSource target() {
+        return target;
+    }
+
+    /**
+     * Runs the call and returns every statement it executed on this thread
+     */
+    List<Captured> capture(Callable<?> call) throws Exception {
+        List<Captured> statements = new ArrayList<>();
+        capturing.set(statements);
+        try {
+            call.call();
+        } finally {
+            capturing.remove();
+        }
+        return statements;
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        List<Captured> statements = capturing.get();
+        if (statements == null) {
+            return;
+        }
+        for (QueryInfo query : queryInfoList) {
+            List<List<ParameterSetOperation>> parameters = query.getParametersList();
+            statements.add(new Captured(query.getQuery(),
+                    parameters.isEmpty() ? List.of() : List.copyOf(parameters.get(0)),
+                    Math.max(1, parameters.size())));
+        }
+    }
+
+    /**
+     * Runs EXPLAIN with the given options for a captured statement, binding the
+     * same values the application did, and returns the plan as text
+     */
+    String explain(Captured statement, String options) throws SQLException {
+        try (Connection connection = target.getConnection();
+             PreparedStatement explain = connection.prepareStatement("EXPLAIN (" + options + ") " + statement.sql())) {
+            for (ParameterSetOperation operation : statement.parameters()) {
+                try {
+                    operation.getMethod().invoke(explain, operation.getArgs());
+                } catch (IllegalAccessException | InvocationTargetException e) {
+                    throw new SQLException("Could not bind " + operation.getMethod().getName(), e);
+                }
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet rows = explain.executeQuery()) {
+                while (rows.next()) {
+                    plan.append(rows.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.archives")
+@Data
+public class ArchiveProperties {
+
+    // Most files and bytes one ZIP download may contain
+    private int maxEntries = 1000;
+    private DataSize maxTotalSize = DataSize.ofGigabytes(20);
+    // Files each download opens ahead of the one being written, each holding a few network buffers
+    private int prefetch = 4;
+    // Threads opening storage downloads, shared by all ZIP downloads
+    private int prefetchThreads = 8;
+    // Response buffer: large enough for full-sized socket writes, small enough that a slow
+    // client quickly stops reads from storage
+    private DataSize outputBufferSize = DataSize.ofKilobytes(64);
+    // Deflated; everything else (images, video, audio, PDFs, archives) is already compressed and written as is
+    private List<String> compressibleTypes = List.of(
+            "text/*", "application/json", "application/xml", "application/javascript", "image/svg+xml",
+            "image/bmp", "image/tiff", "audio/wav", "application/x-tar");
+}
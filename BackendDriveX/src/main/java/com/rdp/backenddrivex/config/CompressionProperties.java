@@ -0,0 +1,27 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.compression")
+@Data
+public class CompressionProperties {
+
+    // Off by default: compressed files' public storage URLs serve the gzip bytes, not the file,
+    // so clients must download them through the API
+    private boolean enabled = false;
+    // Uploads stored gzip-compressed; images and PDFs never are
+    private List<String> types = List.of(
+            "text/*", "application/json", "application/xml", "application/javascript", "application/x-ndjson");
+    // Smaller files gain too little to be worth it
+    private DataSize minSize = DataSize.ofKilobytes(1);
+    // Deflate level, 1 (fastest) to 9 (smallest)
+    private int level = 6;
+    // A file is stored as uploaded unless compression shrinks it to at most this fraction of its size
+    private double maxRatio = 0.9;
+}
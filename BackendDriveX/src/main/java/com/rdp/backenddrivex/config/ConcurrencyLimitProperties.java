@@ -0,0 +1,43 @@
+package com.rdp.backenddrivex.config;
+
+import com.rdp.backenddrivex.security.EndpointClass;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "concurrency-limit")
+@Data
+public class ConcurrencyLimitProperties {
+
+    private boolean enabled = true;
+    // Minimum time between two multiplicative decreases of the same limit
+    private Duration decreaseInterval = Duration.ofMillis(250);
+
+    private Map<EndpointClass, ClassLimit> classes = new EnumMap<>(Map.of(
+        EndpointClass.CRITICAL, new ClassLimit(40, 10, 200, 0.9, 3.0, 1.0),
+        EndpointClass.STANDARD, new ClassLimit(40, 4, 200, 0.9, 2.0, 0.9),
+        EndpointClass.BULK, new ClassLimit(20, 2, 100, 0.8, 2.0, 0.7)
+    ));
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ClassLimit {
+        // Overriding one class replaces its defaults, so set all fields when overriding
+        private int initialLimit = 20;
+        private int minLimit = 2;
+        private int maxLimit = 200;
+        // Limit is multiplied by this when recent latency rises above tolerance x long-run latency
+        private double backoffRatio = 0.9;
+        private double latencyTolerance = 2.0;
+        // Fraction of the total limit this class may use; lower values leave headroom for higher priorities
+        private double share = 1.0;
+    }
+}
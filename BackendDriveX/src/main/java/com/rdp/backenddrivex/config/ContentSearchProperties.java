@@ -0,0 +1,45 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.content-search")
+@Data
+public class ContentSearchProperties {
+
+    // Extracts and indexes the text of documents for GET /api/files/search
+    private boolean enabled = true;
+    // Required when enabled: it holds the text of users' documents, so it is created owner-only, and
+    // belongs on a persistent volume, not under a shared tmp; if it is lost, every document is indexed again
+    private Path directory;
+    // Each user's documents live in one partition; changing this rebuilds the index
+    private int partitions = 8;
+    // Heap for documents added but not yet written out, shared by the partitions
+    private DataSize indexingBuffer = DataSize.ofMegabytes(32);
+    // Extraction threads, separate from the thumbnail and PDF preview workers
+    private int workers = 1;
+    // Documents waiting for a worker; uploads beyond this are left to the backfill job
+    private int queueCapacity = 500;
+    // Larger files are not downloaded at all
+    private DataSize maxFileSize = DataSize.ofMegabytes(50);
+    // Characters of text kept per document; the rest is not searchable
+    private int maxChars = 1_000_000;
+    // Heap PDFBox may use while parsing a PDF; the rest goes to temp files
+    private DataSize maxPdfMemory = DataSize.ofMegabytes(32);
+    // Extraction stops at the next piece of text after this
+    private Duration extractTimeout = Duration.ofSeconds(30);
+    // How often indexed text is committed; it becomes searchable, and is recorded as INDEXED, then
+    private Duration commitInterval = Duration.ofSeconds(5);
+    // Queues documents not yet indexed (older uploads, or lost from a full queue or a restart)
+    private boolean backfillEnabled = true;
+    private Duration backfillInterval = Duration.ofMinutes(1);
+    private int backfillBatchSize = 50;
+    // An index whose node has not run its backfill job for this long loses its records
+    private Duration forgetIndexAfter = Duration.ofDays(7);
+}
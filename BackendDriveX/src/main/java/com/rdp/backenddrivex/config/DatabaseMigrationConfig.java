@@ -0,0 +1,93 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flyway owns the schema (src/main/resources/db/migration); Hibernate only
+ * validates it. After migrating, startup fails if an index the repository
+ * queries depend on is missing or was left invalid by a failed concurrent
+ * build, instead of the app quietly falling back to sequential scans.
+ */
+@Configuration
+@Slf4j
+public class DatabaseMigrationConfig {
+
+    // Created by the migrations from V2__query_indexes.sql on
+    static final List<String> REQUIRED_INDEXES = List.of(
+            "files_user_live_uploaded_idx",
+            "files_user_live_filename_trgm_idx",
+            "files_deleted_at_idx",
+            "files_storage_path_idx",
+            "password_reset_tokens_expires_at_idx",
+            "files_thumbnail_backlog_idx",
+            "files_pdf_preview_backlog_idx",
+            "files_user_perceptual_hash_idx",
+            "files_documents_idx",
+            "content_index_documents_file_id_idx"
+    );
+
+    // CREATE INDEX CONCURRENTLY waits for every older transaction, including the
+    // one Flyway would hold its lock in, so the migration would wait on itself
+    @Bean
+    public FlywayConfigurationCustomizer sessionLevelMigrationLock() {
+        return configuration -> configuration.configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+    }
+
+    @Bean
+    public FlywayMigrationStrategy migrateAndVerifyIndexes() {
+        return flyway -> {
+            flyway.migrate();
+            verifyIndexes(flyway.getConfiguration().getDataSource());
+        };
+    }
+
+    static void verifyIndexes(DataSource dataSource) {
+        Map<String, Boolean> found = new HashMap<>();
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                     "SELECT c.relname, i.indisvalid FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid "
+                             + "WHERE c.relname = ANY (?) AND pg_table_is_visible(c.oid)")) {
+            Array names = connection.createArrayOf("text", REQUIRED_INDEXES.toArray());
+            statement.setArray(1, names);
+            try (ResultSet rows = statement.executeQuery()) {
+                while (rows.next()) {
+                    found.put(rows.getString(1), rows.getBoolean(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("Could not check database indexes", e);
+        }
+
+        List<String> missing = new ArrayList<>();
+        List<String> invalid = new ArrayList<>();
+        for (String index : REQUIRED_INDEXES) {
+            Boolean valid = found.get(index);
+            if (valid == null) {
+                missing.add(index);
+            } else if (!valid) {
+                invalid.add(index);
+            }
+        }
+        if (!missing.isEmpty() || !invalid.isEmpty()) {
+            throw new IllegalStateException("Required database indexes missing: " + missing + ", invalid: " + invalid
+                    + ". Rebuild invalid ones with REINDEX INDEX CONCURRENTLY; missing ones mean a migration"
+                    + " did not run or an index was dropped by hand.");
+        }
+        log.info("✅ All {} required database indexes are present", REQUIRED_INDEXES.size());
+    }
+}
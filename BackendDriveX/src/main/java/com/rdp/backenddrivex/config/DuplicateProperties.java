@@ -0,0 +1,21 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.duplicates")
+@Data
+public class DuplicateProperties {
+
+    // Bits two perceptual hashes may differ in when the request does not say; at most 12
+    private int defaultDistance = 8;
+    // Hashes held across all cached per-user indexes, about 60 bytes each
+    private long maxIndexedHashes = 1_000_000;
+    // A user's index is rebuilt from the database at least this often, however busy: other nodes'
+    // changes reach it only this way, since invalidation is local to the node that made them
+    private Duration indexMaxAge = Duration.ofMinutes(5);
+}
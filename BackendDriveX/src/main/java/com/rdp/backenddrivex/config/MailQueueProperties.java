@@ -0,0 +1,27 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.mail.queue")
+@Data
+public class MailQueueProperties {
+
+    // Messages held in memory before new ones are spilled to disk
+    private int capacity = 1000;
+    // Sender threads; each one sends a batch over a single SMTP connection
+    private int senders = 2;
+    private int batchSize = 20;
+    private int maxAttempts = 6;
+    private Duration initialBackoff = Duration.ofSeconds(2);
+    private Duration maxBackoff = Duration.ofMinutes(5);
+    // Every message is written here until it is sent; overflow and given-up messages are reloaded later. Required:
+    // messages contain reset links, so it is created owner-only and must not be under a shared tmp.
+    private Path spillDirectory;
+    private Duration spillReloadInterval = Duration.ofSeconds(30);
+}
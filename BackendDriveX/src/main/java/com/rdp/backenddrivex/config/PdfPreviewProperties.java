@@ -0,0 +1,33 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.pdf-previews")
+@Data
+public class PdfPreviewProperties {
+
+    // Render threads, separate from the image thumbnail workers
+    private int workers = 1;
+    // PDFs waiting for a worker; uploads beyond this are left to the backfill job
+    private int queueCapacity = 200;
+    // Larger PDFs are not downloaded at all
+    private DataSize maxFileSize = DataSize.ofMegabytes(100);
+    // Heap PDFBox may use for a document's decoded streams; the rest goes to temp files
+    private DataSize maxMemory = DataSize.ofMegabytes(32);
+    // Temp file space for the same, on top of the downloaded PDF itself
+    private DataSize maxTempStorage = DataSize.ofMegabytes(256);
+    // Rendering stops at the next drawing operator after this
+    private Duration renderTimeout = Duration.ofSeconds(15);
+    // Queues PDFs without a preview (older uploads, or lost from a full queue or a restart)
+    private boolean backfillEnabled = true;
+    private Duration backfillInterval = Duration.ofMinutes(1);
+    private int backfillBatchSize = 20;
+    // A PDF still PENDING this long after upload is assumed lost and queued again
+    private Duration pendingTimeout = Duration.ofMinutes(10);
+}
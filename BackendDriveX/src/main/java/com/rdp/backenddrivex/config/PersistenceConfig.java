@@ -0,0 +1,38 @@
+package com.rdp.backenddrivex.config;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hibernate settings that are not left to application.properties. Hibernate
+ * switches the second-level cache on by itself once a JCache provider is on the
+ * classpath, and would create any region it does not find as an unbounded
+ * cache, so the provider and its region configuration (hibernate-cache.conf)
+ * are set here unless overridden.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheDefaults() {
+        return properties -> {
+            properties.putIfAbsent(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+            properties.putIfAbsent(ConfigSettings.PROVIDER,
+                    "com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider");
+            properties.putIfAbsent(ConfigSettings.CONFIG_URI, "hibernate-cache.conf");
+            properties.putIfAbsent(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+        };
+    }
+
+    // Hibernate otherwise keeps the first connection for the whole request (open-in-view): a file
+    // download would hold it while streaming, and with read replicas a read-only lookup at the
+    // start would pin later writes to a replica
+    @Bean
+    public HibernatePropertiesCustomizer releaseConnectionsAfterTransaction() {
+        return properties -> properties.put(AvailableSettings.CONNECTION_HANDLING,
+                "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION");
+    }
+}
@@ -0,0 +1,54 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+    // Upper bound on tracked buckets; beyond it, buckets of rarely seen clients are evicted first
+    private int maxBuckets = 100_000;
+    // Buckets untouched for this long are dropped (they would be full again anyway)
+    private Duration idleTimeout = Duration.ofMinutes(15);
+
+    // First matching policy wins
+    private List<Policy> policies = List.of(
+        new Policy("login", "POST", "/api/auth/login", KeyType.IP, 10, 10, Duration.ofMinutes(1)),
+        new Policy("register", "POST", "/api/auth/register", KeyType.IP, 5, 5, Duration.ofMinutes(10)),
+        new Policy("google", "POST", "/api/auth/google", KeyType.IP, 20, 20, Duration.ofMinutes(1)),
+        new Policy("password-reset", "POST", "/api/auth/*-password", KeyType.IP, 5, 5, Duration.ofMinutes(15)),
+        new Policy("upload", "POST", "/api/files/upload", KeyType.USER, 30, 30, Duration.ofMinutes(1))
+    );
+
+    public enum KeyType {
+        // Authenticated user id, falling back to client IP for anonymous requests
+        USER,
+        IP
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Policy {
+        private String name;
+        // Null matches any method
+        private String method;
+        // Ant-style path pattern
+        private String path;
+        private KeyType key = KeyType.IP;
+        // Burst size
+        private int capacity;
+        // Tokens added back every refill period
+        private int refillTokens;
+        private Duration refillPeriod;
+    }
+}
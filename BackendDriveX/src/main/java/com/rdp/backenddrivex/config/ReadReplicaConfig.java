@@ -0,0 +1,67 @@
+package com.rdp.backenddrivex.config;
+
+import com.rdp.backenddrivex.datasource.RecentWriters;
+import com.rdp.backenddrivex.datasource.ReplicaRoutingDataSource;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured DataSource with {@link ReplicaRoutingDataSource}
+ * when {@code app.read-replicas.urls} is set. The primary pool is still built
+ * from {@code spring.datasource.*}, so nothing else changes for it.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.read-replicas", name = "urls")
+@Slf4j
+public class ReadReplicaConfig {
+
+    @Bean
+    public ReplicaRoutingDataSource dataSource(DataSourceProperties dataSourceProperties,
+                                               ReadReplicaProperties replicaProperties, Environment environment,
+                                               RecentWriters recentWriters, DriveXMetrics metrics,
+                                               MeterRegistry meterRegistry) {
+        HikariDataSource primary = dataSourceProperties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(primary));
+        // Boot cannot see the pools behind the router, so every pool reports its own metrics
+        primary.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        String username = replicaProperties.getUsername() != null
+                ? replicaProperties.getUsername() : dataSourceProperties.determineUsername();
+        String password = replicaProperties.getPassword() != null
+                ? replicaProperties.getPassword() : dataSourceProperties.determinePassword();
+        List<DataSource> replicas = new ArrayList<>();
+        for (String url : replicaProperties.getUrls()) {
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + (replicas.size() + 1));
+            replica.setJdbcUrl(url);
+            replica.setUsername(username);
+            replica.setPassword(password);
+            replica.setMaximumPoolSize(replicaProperties.getMaximumPoolSize());
+            replica.setConnectionTimeout(replicaProperties.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            // Start even if a replica is down; the router falls back to the primary
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        log.info("✅ Routing read-only transactions to {} read replica(s)", replicas.size());
+        return new ReplicaRoutingDataSource(primary, replicas, recentWriters, metrics,
+                replicaProperties.getFailureBackoff());
+    }
+}
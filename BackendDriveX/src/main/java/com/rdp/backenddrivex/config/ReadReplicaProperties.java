@@ -0,0 +1,28 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.read-replicas")
+@Data
+public class ReadReplicaProperties {
+
+    // JDBC URLs of the replicas; read-only transactions are spread over them, none means everything uses the primary
+    private List<String> urls = new ArrayList<>();
+    // Default to the primary's credentials
+    private String username;
+    private String password;
+    private int maximumPoolSize = 10;
+    // How long a read waits for a replica connection before falling back to the primary
+    private Duration connectionTimeout = Duration.ofSeconds(1);
+    // After a user's write commits, their reads stay on the primary this long; keep it above the usual replication lag
+    private Duration readYourWritesWindow = Duration.ofSeconds(5);
+    // A replica that refused a connection is skipped this long before it is tried again
+    private Duration failureBackoff = Duration.ofSeconds(30);
+}
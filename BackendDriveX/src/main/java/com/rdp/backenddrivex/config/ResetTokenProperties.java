@@ -0,0 +1,35 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.reset-token")
+@Data
+public class ResetTokenProperties {
+
+    // Backend used to keep reset tokens: "memory" (single node) or "database" (shared by all nodes)
+    private String store = "memory";
+    private Duration ttl = Duration.ofHours(1);
+    private Wheel wheel = new Wheel();
+    private Sweep sweep = new Sweep();
+
+    @Data
+    public static class Wheel {
+        // Granularity of expiry for the in-memory store
+        private Duration tick = Duration.ofSeconds(1);
+        // Number of buckets, rounded up to a power of two
+        private int size = 4096;
+    }
+
+    @Data
+    public static class Sweep {
+        // How often the database store deletes expired tokens
+        private Duration interval = Duration.ofMinutes(1);
+        // Maximum rows removed per DELETE statement
+        private int batchSize = 500;
+    }
+}
@@ -0,0 +1,29 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.storage-cache")
+@Data
+public class StorageCacheProperties {
+
+    // Node-local copies of downloaded files, so repeat downloads skip storage
+    private boolean enabled = true;
+    // Emptied at startup; entries are not kept across restarts. Required when enabled: it holds
+    // copies of users' files, so it is created owner-only and must not be under a shared tmp.
+    private Path directory;
+    // Disk space the cached files may take
+    private DataSize maxSize = DataSize.ofGigabytes(2);
+    // Larger files are always streamed from storage; at most 2GB
+    private DataSize maxObjectSize = DataSize.ofMegabytes(64);
+    // A file is cached when it is downloaded again within this long, so one-off downloads never take disk space
+    private Duration admissionWindow = Duration.ofHours(1);
+    // Threads copying files from storage to disk
+    private int fillThreads = 4;
+}
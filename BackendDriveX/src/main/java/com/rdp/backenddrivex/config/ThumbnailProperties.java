@@ -0,0 +1,32 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.thumbnails")
+@Data
+public class ThumbnailProperties {
+
+    // Variant name -> longest side in pixels. Images already smaller are re-encoded, never enlarged.
+    private Map<String, Integer> variants = new HashMap<>(Map.of("small", 160, "medium", 480, "large", 1280));
+    // Worker threads; each holds one subsampled image at a time
+    private int workers = 2;
+    // Images waiting for a worker; uploads beyond this are left to the backfill job
+    private int queueCapacity = 500;
+    // JPEG quality, 0 to 1
+    private float quality = 0.8f;
+    // Larger images are not decoded at all
+    private long maxPixels = 100_000_000;
+    // Queues images without thumbnails (older uploads, or lost from a full queue or a restart)
+    private boolean backfillEnabled = true;
+    private Duration backfillInterval = Duration.ofMinutes(1);
+    private int backfillBatchSize = 100;
+    // An image still PENDING this long after upload is assumed lost and queued again
+    private Duration pendingTimeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,40 @@
+package com.rdp.backenddrivex.config;
+
+import com.rdp.backenddrivex.observability.tracing.JsonLinesSpanExporter;
+import com.rdp.backenddrivex.observability.tracing.RepositoryObservationPostProcessor;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.aop.ObservedAspect;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+
+/**
+ * Tracing beyond what Spring Boot instruments out of the box (HTTP server and
+ * WebClient): {@code @Observed} service and controller methods, repository
+ * calls, and an optional file exporter for environments without a collector.
+ */
+@Configuration
+public class TracingConfig {
+
+    @Bean
+    public ObservedAspect observedAspect(ObservationRegistry observationRegistry) {
+        return new ObservedAspect(observationRegistry);
+    }
+
+    // Static so the post-processor doesn't force early initialisation of this class
+    @Bean
+    public static RepositoryObservationPostProcessor repositoryObservationPostProcessor(
+            ObjectProvider<ObservationRegistry> observationRegistry) {
+        return new RepositoryObservationPostProcessor(observationRegistry);
+    }
+
+    @Bean(destroyMethod = "")
+    @ConditionalOnProperty(prefix = "app.tracing", name = "file")
+    public JsonLinesSpanExporter jsonLinesSpanExporter(TracingProperties properties) throws IOException {
+        // The tracer provider shuts its exporters down itself
+        return new JsonLinesSpanExporter(properties.getFile());
+    }
+}
@@ -0,0 +1,16 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.tracing")
+@Data
+public class TracingProperties {
+
+    // When set, finished spans are appended here as JSON lines (no collector needed)
+    private Path file;
+}
@@ -7,13 +7,9 @@ import org.springframework.web.reactive.function.client.WebClient;
 @Configuration
 public class WebClientConfig {
 
-    @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
-    }
-    
+    // Built from Spring Boot's auto-configured builder so requests are observed (metrics and trace spans)
     @Bean
     public WebClient webClient(WebClient.Builder webClientBuilder) {
         return webClientBuilder.build();
     }
-}
\ No newline at end of file
+}
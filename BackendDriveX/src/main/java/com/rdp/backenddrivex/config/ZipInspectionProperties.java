@@ -0,0 +1,24 @@
+package com.rdp.backenddrivex.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "app.zip-inspection")
+@Data
+public class ZipInspectionProperties {
+
+    // Read from the end of an archive first; holds the whole listing of most archives
+    private DataSize tailReadSize = DataSize.ofKilobytes(64);
+    // Largest central directory (about 80 bytes per entry) and most entries an archive may list
+    private DataSize maxDirectorySize = DataSize.ofMegabytes(16);
+    private int maxEntries = 100_000;
+    // Parsed listings are kept up to this many entries in total (about 150 bytes each)
+    private long cacheMaxEntries = 1_000_000;
+    // A listing not used for this long is dropped
+    private Duration cacheIdleTimeout = Duration.ofHours(1);
+}
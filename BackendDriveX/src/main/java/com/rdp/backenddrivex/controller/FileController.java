@@ -1,19 +1,35 @@
 package com.rdp.backenddrivex.controller;
 
+import com.rdp.backenddrivex.dto.request.ArchiveRequest;
 import com.rdp.backenddrivex.dto.response.ApiResponse;
+import com.rdp.backenddrivex.dto.response.ContentSearchResponse;
+import com.rdp.backenddrivex.dto.response.DuplicateClustersResponse;
 import com.rdp.backenddrivex.dto.response.FileListResponse;
 import com.rdp.backenddrivex.dto.response.FileResponse;
+import com.rdp.backenddrivex.dto.response.ZipEntriesResponse;
+import com.rdp.backenddrivex.entity.File;
 import com.rdp.backenddrivex.entity.User;
 import com.rdp.backenddrivex.security.UserPrincipal;
+import com.rdp.backenddrivex.service.ArchiveService;
 import com.rdp.backenddrivex.service.AuthService;
+import com.rdp.backenddrivex.service.ContentIndexService;
+import com.rdp.backenddrivex.service.DuplicateService;
+import com.rdp.backenddrivex.service.FileContentService;
 import com.rdp.backenddrivex.service.FileService;
+import com.rdp.backenddrivex.service.ZipInspectionService;
+import io.micrometer.observation.annotation.Observed;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -21,10 +37,16 @@ import java.util.UUID;
 @RequestMapping("/api/files")
 @RequiredArgsConstructor
 @Slf4j
+@Observed(name = "drivex.files.controller")
 public class FileController {
 
     private final FileService fileService;
     private final AuthService authService;
+    private final FileContentService fileContentService;
+    private final DuplicateService duplicateService;
+    private final ArchiveService archiveService;
+    private final ContentIndexService contentIndexService;
+    private final ZipInspectionService zipInspectionService;
 
     @PostMapping("/upload")
     public ResponseEntity<ApiResponse<FileResponse>> uploadFile(
@@ -58,6 +80,37 @@ public class FileController {
         return ResponseEntity.ok(ApiResponse.success(fileListResponse));
     }
 
+    @GetMapping("/duplicates")
+    public ResponseEntity<ApiResponse<DuplicateClustersResponse>> getDuplicates(
+            @RequestParam(value = "distance", required = false) Integer distance,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+
+        log.info("Duplicates request from user: {}, distance: {}, page: {}, size: {}",
+                userPrincipal.getEmail(), distance, page, size);
+
+        User user = authService.getCurrentUser();
+        DuplicateClustersResponse duplicates = duplicateService.findDuplicates(user, distance, page, size);
+
+        return ResponseEntity.ok(ApiResponse.success(duplicates));
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<ApiResponse<ContentSearchResponse>> searchContent(
+            @RequestParam("q") String query,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "20") int size,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+
+        log.info("Content search request from user: {}, page: {}, size: {}", userPrincipal.getEmail(), page, size);
+
+        User user = authService.getCurrentUser();
+        ContentSearchResponse results = contentIndexService.search(user, query, page, size);
+
+        return ResponseEntity.ok(ApiResponse.success(results));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ApiResponse<FileResponse>> getFile(
             @PathVariable UUID id,
@@ -117,8 +170,78 @@ public class FileController {
         log.info("Download URL request from user: {}, fileId: {}", userPrincipal.getUsername(), id);
         
         User user = authService.getCurrentUser();
-        FileResponse fileResponse = fileService.getFile(id, user);
-        
-        return ResponseEntity.ok(ApiResponse.success(Map.of("downloadUrl", fileResponse.getUrl())));
+        File file = fileService.getStoredFile(id, user);
+        // The public URL of a compressed file serves the compressed bytes; the content endpoint
+        // decompresses them, but needs the caller's token
+        String downloadUrl = file.getContentEncoding() == null ? file.getUrl()
+                : ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/files/{id}/content").buildAndExpand(id).toUriString();
+        
+        return ResponseEntity.ok(ApiResponse.success(Map.of("downloadUrl", downloadUrl)));
+    }
+
+    @GetMapping("/{id}/content")
+    public void downloadContent(
+            @PathVariable UUID id,
+            @RequestParam(value = "inline", defaultValue = "false") boolean inline,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+
+        log.info("Download request from user: {}, fileId: {}, range: {}",
+                userPrincipal.getUsername(), id, request.getHeader("Range"));
+
+        User user = authService.getCurrentUser();
+        File file = fileService.getStoredFile(id, user);
+
+        fileContentService.writeContent(file, inline, request, response);
+    }
+
+    @GetMapping("/{id}/entries")
+    public ResponseEntity<ApiResponse<ZipEntriesResponse>> getArchiveEntries(
+            @PathVariable UUID id,
+            @RequestParam(value = "page", defaultValue = "0") int page,
+            @RequestParam(value = "size", defaultValue = "100") int size,
+            @AuthenticationPrincipal UserPrincipal userPrincipal) {
+
+        log.info("Archive entries request from user: {}, fileId: {}, page: {}, size: {}",
+                userPrincipal.getUsername(), id, page, size);
+
+        User user = authService.getCurrentUser();
+        File file = fileService.getStoredFile(id, user);
+        ZipEntriesResponse entries = zipInspectionService.listEntries(file, page, size);
+
+        return ResponseEntity.ok(ApiResponse.success(entries));
+    }
+
+    @GetMapping("/{id}/entries/{index}/content")
+    public void downloadArchiveEntry(
+            @PathVariable UUID id,
+            @PathVariable int index,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletResponse response) throws IOException {
+
+        log.info("Archive entry download request from user: {}, fileId: {}, entry: {}",
+                userPrincipal.getUsername(), id, index);
+
+        User user = authService.getCurrentUser();
+        File file = fileService.getStoredFile(id, user);
+
+        zipInspectionService.writeEntry(file, index, response);
+    }
+
+    @PostMapping("/archive")
+    public void downloadArchive(
+            @RequestBody ArchiveRequest request,
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            HttpServletResponse response) throws IOException {
+
+        log.info("Archive request from user: {}, files: {}, type: {}", userPrincipal.getUsername(),
+                request.getIds() != null ? request.getIds().size() : null, request.getType());
+
+        User user = authService.getCurrentUser();
+        List<File> files = archiveService.selectFiles(user, request);
+
+        archiveService.writeArchive(files, response);
     }
 }
\ No newline at end of file
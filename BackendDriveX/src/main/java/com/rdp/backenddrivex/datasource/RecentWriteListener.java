@@ -0,0 +1,32 @@
+package com.rdp.backenddrivex.datasource;
+
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.User;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Entity listener that marks the owning user as a recent writer whenever one
+ * of their rows is inserted, updated or deleted.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecentWriteListener {
+
+    private final RecentWriters recentWriters;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    void written(Object entity) {
+        if (entity instanceof File file && file.getUser() != null) {
+            // Reading the id does not initialize a lazy proxy
+            recentWriters.recordWrite(file.getUser().getId());
+        } else if (entity instanceof User user) {
+            recentWriters.recordWrite(user.getId());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.rdp.backenddrivex.datasource;
+
+import com.rdp.backenddrivex.config.JwtProperties;
+import com.rdp.backenddrivex.config.ReadReplicaProperties;
+import com.rdp.backenddrivex.security.UserPrincipal;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers which users committed a write in the last read-your-writes window,
+ * so their reads go to the primary until the replicas have caught up.
+ *
+ * <p>This node keeps its own record, and the response of a request that wrote
+ * also carries a signed {@value #HEADER} header with the user and time of the
+ * write. Clients send it back on their next requests, so whichever node serves
+ * them keeps that user on the primary too, without sticky routing.
+ */
+@Component
+public class RecentWriters {
+
+    public static final String HEADER = "X-Last-Write";
+
+    private static final String HMAC = "HmacSHA256";
+
+    private final ReadReplicaProperties properties;
+    private final SecretKeySpec markerKey;
+    // User id -> System.nanoTime() of their last committed write
+    private final Map<UUID, Long> lastWrite = new ConcurrentHashMap<>();
+
+    public RecentWriters(ReadReplicaProperties properties, JwtProperties jwtProperties) {
+        this.properties = properties;
+        // Derived from the JWT secret so a marker can't be passed off as a token, or the other way round
+        this.markerKey = new SecretKeySpec(
+                hmac(new SecretKeySpec(jwtProperties.getSecret().getBytes(StandardCharsets.UTF_8), HMAC),
+                        "read-your-writes"), HMAC);
+    }
+
+    /**
+     * Records a write by the user once the current transaction commits, or
+     * right away outside a transaction
+     */
+    public void recordWrite(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    written(userId);
+                }
+            });
+        } else {
+            written(userId);
+        }
+    }
+
+    public boolean wroteRecently(UUID userId) {
+        Long writtenAt = lastWrite.get(userId);
+        return writtenAt != null && System.nanoTime() - writtenAt < properties.getReadYourWritesWindow().toNanos();
+    }
+
+    /**
+     * Whether the authenticated user on this thread, if any, wrote recently,
+     * on this node or on another one according to the request's marker
+     */
+    public boolean currentUserWroteRecently() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !(authentication.getPrincipal() instanceof UserPrincipal principal)) {
+            return false;
+        }
+        if (wroteRecently(principal.getId())) {
+            return true;
+        }
+        HttpServletRequest request = currentRequest();
+        return request != null && markedRecent(request.getHeader(HEADER), principal.getId());
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    void purgeExpired() {
+        long window = properties.getReadYourWritesWindow().toNanos();
+        long now = System.nanoTime();
+        lastWrite.values().removeIf(writtenAt -> now - writtenAt >= window);
+    }
+
+    private void written(UUID userId) {
+        lastWrite.put(userId, System.nanoTime());
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes) {
+            HttpServletResponse response = attributes.getResponse();
+            if (response != null && !response.isCommitted()) {
+                response.setHeader(HEADER, marker(userId, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    // userId.epochMillis.signature; wall-clock time, since it is compared on other nodes
+    String marker(UUID userId, long writtenAtMillis) {
+        String payload = userId + "." + writtenAtMillis;
+        return payload + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(hmac(markerKey, payload));
+    }
+
+    boolean markedRecent(String marker, UUID userId) {
+        if (marker == null) {
+            return false;
+        }
+        int signatureAt = marker.lastIndexOf('.');
+        int timeAt = marker.lastIndexOf('.', signatureAt - 1);
+        if (timeAt < 0) {
+            return false;
+        }
+        String payload = marker.substring(0, signatureAt);
+        byte[] signature;
+        long writtenAt;
+        try {
+            signature = Base64.getUrlDecoder().decode(marker.substring(signatureAt + 1));
+            writtenAt = Long.parseLong(marker.substring(timeAt + 1, signatureAt));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        if (!MessageDigest.isEqual(signature, hmac(markerKey, payload))
+                || !marker.substring(0, timeAt).equals(userId.toString())) {
+            return false;
+        }
+        // Allows for clocks a window apart, no more
+        long age = System.currentTimeMillis() - writtenAt;
+        long window = properties.getReadYourWritesWindow().toMillis();
+        return age < window && age > -window;
+    }
+
+    private static HttpServletRequest currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes instanceof ServletRequestAttributes servlet ? servlet.getRequest() : null;
+    }
+
+    private static byte[] hmac(SecretKeySpec key, String data) {
+        try {
+            Mac mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
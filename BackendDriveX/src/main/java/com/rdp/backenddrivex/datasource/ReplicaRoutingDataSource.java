@@ -0,0 +1,115 @@
+package com.rdp.backenddrivex.datasource;
+
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends read-only transactions to the replicas and everything else to the
+ * primary. The physical connection is only fetched on the first statement, by
+ * which time the transaction's read-only flag is known; Hibernate takes its
+ * connection before that, while the transaction is still being started.
+ *
+ * <p>Replicas are taken in turn. Reads still go to the primary for a user who
+ * wrote within the read-your-writes window (see {@link RecentWriters}), and
+ * when no replica accepts a connection; a replica that failed is skipped until
+ * its backoff has passed.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile long skipUntil = System.nanoTime();
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final RecentWriters recentWriters;
+    private final DriveXMetrics metrics;
+    private final long failureBackoffNanos;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, RecentWriters recentWriters,
+                                    DriveXMetrics metrics, Duration failureBackoff) {
+        this.primary = primary;
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        this.recentWriters = recentWriters;
+        this.metrics = metrics;
+        this.failureBackoffNanos = failureBackoff.toNanos();
+        setTargetDataSource(new Router());
+        afterPropertiesSet();
+    }
+
+    @Override
+    public void close() throws Exception {
+        for (Replica replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+        if (primary instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Connection route() throws SQLException {
+        if (recentWriters.currentUserWroteRecently()) {
+            metrics.readRouted("primary", "read-your-writes");
+            return primary.getConnection();
+        }
+
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (System.nanoTime() - replica.skipUntil < 0) {
+                continue;
+            }
+            try {
+                Connection connection = replica.dataSource.getConnection();
+                metrics.readRouted(replica.name, "read-only");
+                return connection;
+            } catch (SQLException e) {
+                // From now, not from the attempt: the pool may have waited out its whole timeout
+                replica.skipUntil = System.nanoTime() + failureBackoffNanos;
+                log.warn("Read replica {} is unavailable, skipping it for {}s: {}", replica.name,
+                        Duration.ofNanos(failureBackoffNanos).toSeconds(), e.getMessage());
+            }
+        }
+        metrics.readRouted("primary", "replicas-unavailable");
+        return primary.getConnection();
+    }
+
+    private final class Router extends AbstractDataSource {
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            return TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+                    ? route() : primary.getConnection();
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            throw new SQLFeatureNotSupportedException("Credentials come from configuration");
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.rdp.backenddrivex.dto.request;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.UUID;
+
+// Either the files to include, or a type as in the file list (all, image, video, audio, document, other)
+@Data
+public class ArchiveRequest {
+
+    private List<UUID> ids;
+
+    private String type;
+}
@@ -0,0 +1,31 @@
+package com.rdp.backenddrivex.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ContentSearchResponse {
+
+    private int page;
+    private int size;
+    // Matching documents, including any deleted since they were indexed
+    private long total;
+    private String query;
+    // Best matches first
+    private List<Hit> hits;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Hit {
+
+        private FileResponse file;
+        // HTML-escaped passages around the matches, each match in <mark>
+        private String snippet;
+    }
+}
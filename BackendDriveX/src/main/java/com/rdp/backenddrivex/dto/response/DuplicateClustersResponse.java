@@ -0,0 +1,21 @@
+package com.rdp.backenddrivex.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DuplicateClustersResponse {
+
+    private int page;
+    private int size;
+    private long total;
+    // Most bits the perceptual hashes of linked images differ in
+    private int distance;
+    // Largest clusters first, each newest first
+    private List<List<FileResponse>> clusters;
+}
@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Data
@@ -14,6 +15,8 @@ public class FileResponse {
     
     private UUID id;
     private String name;
+    // Public storage URL; null when the file is stored compressed, since that URL serves the
+    // compressed bytes: read it from /api/files/{id}/content instead
     private String url;
     private String mimeType;
     private Long size;
@@ -21,17 +24,33 @@ public class FileResponse {
     private String kind;
     private String description;
     private Boolean isPreviewable;
+    // Variant name (small, medium, large) -> URL of an image thumbnail or a PDF's first page;
+    // null until generated, so fall back to url
+    private Map<String, String> thumbnails;
+    // Images only, null when unknown: size as displayed, so a grid can be laid out before anything loads
+    private Integer width;
+    private Integer height;
+    private Short orientation;
+    private LocalDateTime takenAt;
+    // BlurHash placeholder (https://blurha.sh); null until thumbnails are generated
+    private String blurhash;
     
     // Constructor from entity
     public FileResponse(com.rdp.backenddrivex.entity.File file) {
         this.id = file.getId();
         this.name = file.getFilename();
-        this.url = file.getUrl();
+        this.url = file.getContentEncoding() == null ? file.getUrl() : null;
         this.mimeType = file.getMimeType();
         this.size = file.getSizeBytes();
         this.uploadedAt = file.getUploadedAt();
         this.kind = file.getFileKind();
         this.description = file.getDescription();
         this.isPreviewable = file.isPreviewable();
+        this.thumbnails = file.getThumbnails();
+        this.width = file.getWidth();
+        this.height = file.getHeight();
+        this.orientation = file.getOrientation();
+        this.takenAt = file.getTakenAt();
+        this.blurhash = file.getBlurhash();
     }
 }
\ No newline at end of file
@@ -0,0 +1,38 @@
+package com.rdp.backenddrivex.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ZipEntriesResponse {
+
+    private int page;
+    private int size;
+    private long total;
+    // In the order they are stored in the archive
+    private List<Entry> entries;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Entry {
+
+        // For GET /api/files/{id}/entries/{index}/content
+        private int index;
+        // Path within the archive; directories end in /
+        private String name;
+        private boolean directory;
+        private long size;
+        private long compressedSize;
+        // As recorded by the tool that made the archive, in its local time
+        private LocalDateTime modifiedAt;
+        // False for directories, encrypted entries and ones compressed other than by deflate
+        private boolean extractable;
+    }
+}
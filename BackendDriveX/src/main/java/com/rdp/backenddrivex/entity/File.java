@@ -1,5 +1,6 @@
 package com.rdp.backenddrivex.entity;
 
+import com.rdp.backenddrivex.datasource.RecentWriteListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -8,11 +9,15 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.time.LocalDateTime;
+import java.util.Map;
 import java.util.UUID;
 
 @Entity
+@EntityListeners(RecentWriteListener.class)
 @Table(name = "files")
 @Data
 @NoArgsConstructor
@@ -20,7 +25,7 @@ import java.util.UUID;
 public class File {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     @Column(columnDefinition = "UUID")
     private UUID id;
 
@@ -61,6 +66,47 @@ public class File {
     @Column(name = "description")
     private String description;
 
+    // Set for images and PDFs only; see ThumbnailService and PdfPreviewService
+    @Enumerated(EnumType.STRING)
+    @Column(name = "thumbnail_status", length = 16)
+    private ThumbnailStatus thumbnailStatus;
+
+    // Variant name -> public URL of the thumbnail
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(name = "thumbnails", columnDefinition = "jsonb")
+    private Map<String, String> thumbnails;
+
+    // Images only, read from the headers at upload; width and height as displayed (orientation applied)
+    @Column(name = "width")
+    private Integer width;
+
+    @Column(name = "height")
+    private Integer height;
+
+    // EXIF orientation, 1 (upright) to 8
+    @Column(name = "orientation")
+    private Short orientation;
+
+    // EXIF date taken, in the camera's local time
+    @Column(name = "taken_at")
+    private LocalDateTime takenAt;
+
+    // Placeholder shown while the image loads; computed with the thumbnails
+    @Column(name = "blurhash", length = 64)
+    private String blurhash;
+
+    // 64-bit difference hash of the image, for finding near-duplicates; see DuplicateService
+    @Column(name = "perceptual_hash")
+    private Long perceptualHash;
+
+    // Codec the stored object is compressed with (gzip), null when stored as uploaded; see ContentCompression
+    @Column(name = "content_encoding", length = 16)
+    private String contentEncoding;
+
+    // Size of the compressed object in storage; sizeBytes stays the size as uploaded
+    @Column(name = "stored_size_bytes")
+    private Long storedSizeBytes;
+
     // Constructor for creating new files
     public File(User user, String filename, String storagePath, String url, 
                 String mimeType, Long sizeBytes, String description) {
@@ -86,8 +132,17 @@ public class File {
         this.deletedAt = null;
     }
 
+    // Bytes to read from storage for the whole object
+    public long getStorageSize() {
+        return storedSizeBytes != null ? storedSizeBytes : sizeBytes;
+    }
+
     // Helper method to get file kind from MIME type
     public String getFileKind() {
+        return kindOf(mimeType);
+    }
+
+    public static String kindOf(String mimeType) {
         if (mimeType == null) return "other";
         
         String lowerMimeType = mimeType.toLowerCase();
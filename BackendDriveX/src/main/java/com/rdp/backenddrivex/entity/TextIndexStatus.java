@@ -0,0 +1,11 @@
+package com.rdp.backenddrivex.entity;
+
+/**
+ * What a node's content index holds of a document, recorded per index in
+ * content_index_documents; a document without a record there is yet to be
+ * indexed by that node.
+ */
+public enum TextIndexStatus {
+    INDEXED,
+    FAILED
+}
@@ -0,0 +1,11 @@
+package com.rdp.backenddrivex.entity;
+
+/**
+ * Where an image or PDF is in the thumbnail pipeline. Other files, and those
+ * uploaded before thumbnails existed, have no status.
+ */
+public enum ThumbnailStatus {
+    PENDING,
+    READY,
+    FAILED
+}
@@ -1,5 +1,6 @@
 package com.rdp.backenddrivex.entity;
 
+import com.rdp.backenddrivex.datasource.RecentWriteListener;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.NotBlank;
@@ -7,6 +8,8 @@ import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.LocalDateTime;
@@ -15,6 +18,10 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
+@EntityListeners(RecentWriteListener.class)
+@Cacheable
+// Read on every authenticated request and rarely changed; region settings are in hibernate-cache.conf
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "users")
 @Table(name = "users")
 @Data
 @NoArgsConstructor
@@ -22,7 +29,7 @@ import java.util.UUID;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @UuidV7
     @Column(columnDefinition = "UUID")
     private UUID id;
 
@@ -48,6 +55,10 @@ public class User {
     @Column(name = "auth_provider", nullable = false)
     private AuthProvider authProvider = AuthProvider.LOCAL;
 
+    // Set once the user's folder exists in storage, so logins don't re-create it
+    @Column(name = "storage_provisioned", nullable = false, columnDefinition = "boolean default false")
+    private Boolean storageProvisioned = false;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<File> files = new ArrayList<>();
 
@@ -0,0 +1,31 @@
+package com.rdp.backenddrivex.entity;
+
+import com.fasterxml.uuid.Generators;
+import com.fasterxml.uuid.impl.TimeBasedEpochGenerator;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+
+import java.util.EnumSet;
+
+/**
+ * Generates time-ordered UUIDv7 ids (RFC 9562), so inserts append to the primary key index.
+ * Tables that also hold older v4 ids need the reindex in docs/runbooks/uuid-v7-primary-keys.md.
+ */
+public class UuidV7Generator implements BeforeExecutionGenerator {
+
+    // Monotonic: ids created within the same millisecond still sort in creation order
+    private static final TimeBasedEpochGenerator GENERATOR = Generators.timeBasedEpochGenerator();
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue,
+                           EventType eventType) {
+        return GENERATOR.generate();
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
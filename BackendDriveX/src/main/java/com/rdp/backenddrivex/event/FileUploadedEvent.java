@@ -0,0 +1,14 @@
+package com.rdp.backenddrivex.event;
+
+import java.util.UUID;
+
+/**
+ * Published when a file's upload is saved. Handled after the transaction
+ * commits, so post-processing never sees a file that was rolled back.
+ * {@code orientation} is the EXIF orientation of images, null otherwise;
+ * {@code contentEncoding} is the codec the stored object is compressed with,
+ * null when stored as uploaded, and {@code storageSize} its size in storage.
+ */
+public record FileUploadedEvent(UUID fileId, UUID userId, String storagePath, String mimeType, long sizeBytes,
+                                Short orientation, String filename, String contentEncoding, long storageSize) {
+}
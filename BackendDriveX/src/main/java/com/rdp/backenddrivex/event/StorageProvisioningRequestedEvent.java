@@ -0,0 +1,10 @@
+package com.rdp.backenddrivex.event;
+
+import java.util.UUID;
+
+/**
+ * Published when a user has no storage folder yet. Handled after the surrounding
+ * transaction commits, so no DB transaction is held open across the storage call.
+ */
+public record StorageProvisioningRequestedEvent(UUID userId, String email) {
+}
@@ -0,0 +1,127 @@
+package com.rdp.backenddrivex.observability;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Meters for the upload, listing and storage hot paths. Every timer is tagged
+ * with {@code operation} and {@code outcome} and publishes a percentile
+ * histogram, so p99s can be aggregated across instances in Prometheus.
+ */
+@Component
+public class DriveXMetrics {
+
+    public static final String SUCCESS = "success";
+    public static final String ERROR = "error";
+
+    private final MeterRegistry registry;
+    private final AtomicInteger uploadsInFlight = new AtomicInteger();
+    private final AtomicInteger storageCallsInFlight = new AtomicInteger();
+
+    public DriveXMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        Gauge.builder("drivex.upload.inflight", uploadsInFlight, AtomicInteger::get)
+                .description("Uploads currently being processed")
+                .register(registry);
+        Gauge.builder("drivex.storage.inflight", storageCallsInFlight, AtomicInteger::get)
+                .description("Storage requests currently in progress")
+                .register(registry);
+    }
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Stops the sample and records it under {@code name}
+     */
+    public void stop(Timer.Sample sample, String name, String operation, String outcome) {
+        sample.stop(Timer.builder(name)
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    public void uploadStarted() {
+        uploadsInFlight.incrementAndGet();
+    }
+
+    public void uploadFinished(long bytes, String kind, String outcome) {
+        uploadsInFlight.decrementAndGet();
+        if (SUCCESS.equals(outcome)) {
+            DistributionSummary.builder("drivex.upload.size")
+                    .baseUnit("bytes")
+                    .tag("kind", kind)
+                    .publishPercentileHistogram()
+                    .register(registry)
+                    .record(bytes);
+        }
+    }
+
+    public void storageCallStarted() {
+        storageCallsInFlight.incrementAndGet();
+    }
+
+    public void storageCallFinished(String operation, long bytes) {
+        storageCallsInFlight.decrementAndGet();
+        if (bytes > 0) {
+            Counter.builder("drivex.storage.bytes")
+                    .baseUnit("bytes")
+                    .tag("operation", operation)
+                    .register(registry)
+                    .increment(bytes);
+        }
+    }
+
+    /**
+     * Counts a download read through the storage cache; {@code bytes} is how
+     * much a hit saved fetching from storage
+     */
+    public void storageCacheRead(String result, long bytes) {
+        Counter.builder("drivex.storage.cache.reads")
+                .description("Downloads by whether the storage cache served them")
+                .tag("result", result)
+                .register(registry)
+                .increment();
+        if (bytes > 0) {
+            Counter.builder("drivex.storage.cache.saved")
+                    .baseUnit("bytes")
+                    .description("Bytes served from the storage cache instead of storage")
+                    .register(registry)
+                    .increment(bytes);
+        }
+    }
+
+    /**
+     * Counts bytes compression saved: in storage ({@code stage} "storage") or
+     * sent to clients that accepted the compressed object ("egress")
+     */
+    public void compressionSaved(String stage, String kind, long bytes) {
+        Counter.builder("drivex.compression.saved")
+                .baseUnit("bytes")
+                .description("Bytes saved by storing compressible files compressed")
+                .tag("stage", stage)
+                .tag("kind", kind)
+                .register(registry)
+                .increment(bytes);
+    }
+
+    /**
+     * Counts a read-only connection handed out by the replica router
+     */
+    public void readRouted(String target, String reason) {
+        Counter.builder("drivex.db.reads")
+                .description("Read-only connections by the database they were routed to")
+                .tag("target", target)
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+}
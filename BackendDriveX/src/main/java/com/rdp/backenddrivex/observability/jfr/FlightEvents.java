@@ -0,0 +1,52 @@
+package com.rdp.backenddrivex.observability.jfr;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/**
+ * Helpers shared by the DriveX flight recorder events. Events never carry raw
+ * user ids; they carry a short hash so recordings can be shared safely while
+ * still letting one user's requests be grouped together.
+ */
+public final class FlightEvents {
+
+    private static final ThreadLocal<UUID> CURRENT_USER = new ThreadLocal<>();
+
+    private FlightEvents() {
+    }
+
+    /**
+     * Associates the authenticated user with events committed on this thread
+     */
+    public static void bindUser(UUID userId) {
+        CURRENT_USER.set(userId);
+    }
+
+    public static void clearUser() {
+        CURRENT_USER.remove();
+    }
+
+    public static String currentUserHash() {
+        return userIdHash(CURRENT_USER.get());
+    }
+
+    /**
+     * First 8 bytes of SHA-256 over the id, hex encoded. Only called once an
+     * event is actually going to be committed.
+     */
+    public static String userIdHash(UUID userId) {
+        if (userId == null) {
+            return null;
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(userId.toString().getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.rdp.backenddrivex.observability.jfr;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.actuate.autoconfigure.web.server.ConditionalOnManagementPort;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Controls JDK Flight Recorder at /actuator/flightrecorder:
+ * <ul>
+ *   <li>GET lists recordings</li>
+ *   <li>POST starts one ({@code settings}, {@code maxAge}, {@code maxSize}, {@code duration} are optional)</li>
+ *   <li>POST /{id} with {@code action=stop} stops it but keeps the data</li>
+ *   <li>GET /{id} downloads the data recorded so far as a .jfr file</li>
+ *   <li>DELETE /{id} stops and discards it</li>
+ * </ul>
+ * Only recordings started through this endpoint can be dumped or closed.
+ *
+ * <p>Recordings include environment variables and system properties, which
+ * hold the database password, JWT secret and storage key, so the endpoint
+ * exists only when actuator is on its own management port.
+ */
+@Slf4j
+@Component
+@ConditionalOnManagementPort(ManagementPortType.DIFFERENT)
+@WebEndpoint(id = "flightrecorder")
+public class FlightRecorderEndpoint {
+
+    private static final String NAME_PREFIX = "drivex-";
+    private static final int MAX_ACTIVE_RECORDINGS = 2;
+    private static final Duration DEFAULT_MAX_AGE = Duration.ofMinutes(30);
+    private static final long DEFAULT_MAX_SIZE = 256L * 1024 * 1024;
+
+    @ReadOperation
+    public List<Map<String, Object>> recordings() {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .map(this::describe)
+                .toList();
+    }
+
+    @WriteOperation
+    public synchronized Map<String, Object> start(@Nullable String settings, @Nullable Duration maxAge,
+                                                  @Nullable Long maxSize, @Nullable Duration duration) {
+        long active = FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(r -> r.getName().startsWith(NAME_PREFIX) && r.getState() == RecordingState.RUNNING)
+                .count();
+        if (active >= MAX_ACTIVE_RECORDINGS) {
+            throw new IllegalStateException("Already running " + active + " recordings");
+        }
+
+        Configuration configuration;
+        try {
+            // "default" is cheap enough to leave on; "profile" adds allocation and lock sampling
+            configuration = Configuration.getConfiguration(settings != null ? settings : "default");
+        } catch (IOException | ParseException e) {
+            throw new IllegalArgumentException("Unknown JFR settings: " + settings, e);
+        }
+
+        Recording recording = new Recording(configuration);
+        recording.setName(NAME_PREFIX + System.currentTimeMillis());
+        recording.setToDisk(true);
+        recording.setMaxAge(maxAge != null ? maxAge : DEFAULT_MAX_AGE);
+        recording.setMaxSize(maxSize != null ? maxSize : DEFAULT_MAX_SIZE);
+        if (duration != null) {
+            recording.setDuration(duration);
+        }
+        // Our own events are enabled regardless of the chosen settings file
+        recording.enable(UploadStageEvent.class);
+        recording.enable(TokenVerificationEvent.class);
+        recording.enable(UserLookupEvent.class);
+        recording.enable(StorageCallEvent.class);
+        recording.start();
+
+        log.info("Started flight recording {} with '{}' settings", recording.getId(), configuration.getName());
+        return describe(recording);
+    }
+
+    @WriteOperation
+    public WebEndpointResponse<Map<String, Object>> update(@Selector long id, String action) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        if (!"stop".equals(action)) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (recording.getState() == RecordingState.RUNNING) {
+            recording.stop();
+            log.info("Stopped flight recording {}", id);
+        }
+        return new WebEndpointResponse<>(describe(recording));
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> dump(@Selector long id) throws IOException {
+        Recording recording = find(id);
+        if (recording == null || recording.getState() == RecordingState.NEW) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+
+        Path file = Files.createTempFile("drivex-" + id + "-", ".jfr");
+        try {
+            // Dumping a running recording rotates the current chunk so it includes everything up to now
+            recording.dump(file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        // The temporary copy goes away once the response has been streamed
+        return new WebEndpointResponse<>(new InputStreamResource(
+                Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE)));
+    }
+
+    @DeleteOperation
+    public WebEndpointResponse<Void> close(@Selector long id) {
+        Recording recording = find(id);
+        if (recording == null) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NOT_FOUND);
+        }
+        recording.close();
+        log.info("Closed flight recording {}", id);
+        return new WebEndpointResponse<>(WebEndpointResponse.STATUS_NO_CONTENT);
+    }
+
+    private Recording find(long id) {
+        return FlightRecorder.getFlightRecorder().getRecordings().stream()
+                .filter(r -> r.getId() == id && r.getName().startsWith(NAME_PREFIX))
+                .findFirst()
+                .orElse(null);
+    }
+
+    private Map<String, Object> describe(Recording recording) {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("id", recording.getId());
+        description.put("name", recording.getName());
+        description.put("state", recording.getState());
+        description.put("startTime", recording.getStartTime());
+        description.put("stopTime", recording.getStopTime());
+        description.put("maxAge", recording.getMaxAge());
+        description.put("maxSize", recording.getMaxSize());
+        description.put("size", recording.getSize());
+        return description;
+    }
+}
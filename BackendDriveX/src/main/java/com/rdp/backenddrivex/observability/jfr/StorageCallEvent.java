@@ -0,0 +1,57 @@
+package com.rdp.backenddrivex.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A blocking call to Supabase Storage. The user hash comes from the
+ * authenticated request on the calling thread, if there is one.
+ */
+@Name("com.rdp.drivex.StorageCall")
+@Label("Storage Call")
+@Category({"DriveX", "Storage"})
+@Description("HTTP request to the object storage API")
+@StackTrace(false)
+public class StorageCallEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("File Size")
+    @DataAmount
+    long fileSize;
+
+    @Label("MIME Type")
+    String mimeType;
+
+    @Label("User Id Hash")
+    String userIdHash;
+
+    @Label("Success")
+    boolean success;
+
+    public static StorageCallEvent start(String operation, long fileSize, String mimeType) {
+        StorageCallEvent event = new StorageCallEvent();
+        event.operation = operation;
+        event.fileSize = fileSize;
+        event.mimeType = mimeType;
+        event.begin();
+        return event;
+    }
+
+    // The size again, for bodies only measured once they have been sent
+    public void finish(boolean success, long fileSize) {
+        end();
+        if (shouldCommit()) {
+            this.success = success;
+            this.fileSize = fileSize;
+            this.userIdHash = FlightEvents.currentUserHash();
+            commit();
+        }
+    }
+}
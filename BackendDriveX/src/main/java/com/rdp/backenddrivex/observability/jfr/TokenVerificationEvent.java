@@ -0,0 +1,42 @@
+package com.rdp.backenddrivex.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * JWT signature check and claim extraction for one request
+ */
+@Name("com.rdp.drivex.TokenVerification")
+@Label("Token Verification")
+@Category({"DriveX", "Security"})
+@Description("Validation of a bearer token")
+@StackTrace(false)
+public class TokenVerificationEvent extends Event {
+
+    @Label("Valid")
+    boolean valid;
+
+    @Label("User Id Hash")
+    String userIdHash;
+
+    public static TokenVerificationEvent start() {
+        TokenVerificationEvent event = new TokenVerificationEvent();
+        event.begin();
+        return event;
+    }
+
+    public void finish(UUID userId) {
+        end();
+        if (shouldCommit()) {
+            this.valid = userId != null;
+            this.userIdHash = FlightEvents.userIdHash(userId);
+            commit();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.rdp.backenddrivex.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * One stage of an upload: detect, validate, compress, storage-put or db-save
+ */
+@Name("com.rdp.drivex.UploadStage")
+@Label("Upload Stage")
+@Category({"DriveX", "Upload"})
+@Description("Time spent in a single stage of a file upload")
+@StackTrace(false)
+public class UploadStageEvent extends Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("File Size")
+    @DataAmount
+    long fileSize;
+
+    @Label("MIME Type")
+    String mimeType;
+
+    @Label("User Id Hash")
+    String userIdHash;
+
+    @Label("Success")
+    boolean success;
+
+    private transient UUID userId;
+
+    public static UploadStageEvent start(String stage, UUID userId, long fileSize) {
+        UploadStageEvent event = new UploadStageEvent();
+        event.stage = stage;
+        event.userId = userId;
+        event.fileSize = fileSize;
+        event.begin();
+        return event;
+    }
+
+    public void finish(String mimeType, boolean success) {
+        end();
+        if (shouldCommit()) {
+            this.mimeType = mimeType;
+            this.success = success;
+            this.userIdHash = FlightEvents.userIdHash(userId);
+            commit();
+        }
+    }
+}
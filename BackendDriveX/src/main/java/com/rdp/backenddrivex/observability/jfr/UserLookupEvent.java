@@ -0,0 +1,47 @@
+package com.rdp.backenddrivex.observability.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.util.UUID;
+
+/**
+ * Loading the user behind an authenticated request or a login attempt
+ */
+@Name("com.rdp.drivex.UserLookup")
+@Label("User Lookup")
+@Category({"DriveX", "Security"})
+@Description("Database lookup of a user by id or email")
+@StackTrace(false)
+public class UserLookupEvent extends Event {
+
+    @Label("Lookup")
+    @Description("Key used for the lookup: id or email")
+    String lookup;
+
+    @Label("Found")
+    boolean found;
+
+    @Label("User Id Hash")
+    String userIdHash;
+
+    public static UserLookupEvent start(String lookup) {
+        UserLookupEvent event = new UserLookupEvent();
+        event.lookup = lookup;
+        event.begin();
+        return event;
+    }
+
+    public void finish(UUID userId) {
+        end();
+        if (shouldCommit()) {
+            this.found = userId != null;
+            this.userIdHash = FlightEvents.userIdHash(userId);
+            commit();
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package com.rdp.backenddrivex.repository;
 
 import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.ThumbnailStatus;
 import com.rdp.backenddrivex.entity.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface FileRepository extends JpaRepository<File, UUID> {
 
+    interface HashedFile {
+        UUID getId();
+
+        long getPerceptualHash();
+    }
+
     // Find files by user (not deleted)
     @Query("SELECT f FROM File f WHERE f.user = :user AND f.isDeleted = false ORDER BY f.uploadedAt DESC")
     Page<File> findByUserAndNotDeleted(@Param("user") User user, Pageable pageable);
@@ -42,6 +55,10 @@ public interface FileRepository extends JpaRepository<File, UUID> {
     // Find file by id and user (not deleted)
     @Query("SELECT f FROM File f WHERE f.id = :id AND f.user = :user AND f.isDeleted = false")
     Optional<File> findByIdAndUserAndNotDeleted(@Param("id") UUID id, @Param("user") User user);
+
+    // Find files by ids and user (not deleted)
+    @Query("SELECT f FROM File f WHERE f.id IN :ids AND f.user = :user AND f.isDeleted = false")
+    List<File> findByIdInAndUserAndNotDeleted(@Param("ids") Collection<UUID> ids, @Param("user") User user);
     
     // Calculate total storage used by user
     @Query("SELECT COALESCE(SUM(f.sizeBytes), 0) FROM File f WHERE f.user = :user AND f.isDeleted = false")
@@ -70,4 +87,87 @@ public interface FileRepository extends JpaRepository<File, UUID> {
            "f.mimeType LIKE '%json%' OR f.mimeType LIKE '%xml%' OR f.mimeType LIKE '%csv%') " +
            "ORDER BY f.uploadedAt DESC")
     Page<File> findByUserAndOtherTypesAndNotDeleted(@Param("user") User user, Pageable pageable);
-}
\ No newline at end of file
+
+    // Live images still waiting for thumbnails: never queued, or queued before pendingBefore and lost
+    @Query("SELECT f FROM File f WHERE f.isDeleted = false AND f.mimeType LIKE 'image/%' AND " +
+           "(f.thumbnailStatus IS NULL OR " +
+           "(f.thumbnailStatus = com.rdp.backenddrivex.entity.ThumbnailStatus.PENDING AND f.uploadedAt < :pendingBefore)) " +
+           "ORDER BY f.uploadedAt DESC")
+    List<File> findThumbnailBacklog(@Param("pendingBefore") LocalDateTime pendingBefore, Pageable pageable);
+
+    // The same for PDFs, whose first-page previews are recorded as their thumbnails
+    @Query("SELECT f FROM File f WHERE f.isDeleted = false AND f.mimeType = 'application/pdf' AND " +
+           "(f.thumbnailStatus IS NULL OR " +
+           "(f.thumbnailStatus = com.rdp.backenddrivex.entity.ThumbnailStatus.PENDING AND f.uploadedAt < :pendingBefore)) " +
+           "ORDER BY f.uploadedAt DESC")
+    List<File> findPdfPreviewBacklog(@Param("pendingBefore") LocalDateTime pendingBefore, Pageable pageable);
+
+    // Live documents the given content index has no record of, newest first. The conditions repeat the
+    // predicate of files_documents_idx so the planner can use it.
+    @Query(value = "SELECT f.* FROM files f WHERE NOT f.is_deleted AND " +
+                   "f.mime_type NOT LIKE 'image/%' AND f.mime_type NOT LIKE 'video/%' AND f.mime_type NOT LIKE 'audio/%' AND " +
+                   "(f.mime_type LIKE '%pdf%' OR f.mime_type LIKE 'text/%' OR f.mime_type LIKE '%word%' OR " +
+                   "f.mime_type LIKE '%sheet%' OR f.mime_type LIKE '%presentation%' OR f.mime_type LIKE '%officedocument%' OR " +
+                   "f.mime_type LIKE '%json%' OR f.mime_type LIKE '%xml%' OR f.mime_type LIKE '%csv%') AND " +
+                   "NOT EXISTS (SELECT 1 FROM content_index_documents d WHERE d.index_id = :indexId AND d.file_id = f.id) " +
+                   "ORDER BY f.uploaded_at DESC LIMIT :limit",
+           nativeQuery = true)
+    List<File> findTextIndexBacklog(@Param("indexId") UUID indexId, @Param("limit") int limit);
+
+    // Files the given content index holds that have since been deleted, on any node
+    @Query(value = "SELECT f.* FROM content_index_documents d JOIN files f ON f.id = d.file_id " +
+                   "WHERE d.index_id = :indexId AND f.is_deleted LIMIT :limit",
+           nativeQuery = true)
+    List<File> findDeletedInTextIndex(@Param("indexId") UUID indexId, @Param("limit") int limit);
+
+    // Runs in its own transaction because it is called from the content index workers; skips files purged since
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO content_index_documents (index_id, file_id, status, updated_at) " +
+                   "SELECT :indexId, f.id, :status, now() FROM files f WHERE f.id IN :ids " +
+                   "ON CONFLICT (index_id, file_id) DO UPDATE SET status = EXCLUDED.status, updated_at = EXCLUDED.updated_at",
+           nativeQuery = true)
+    int recordTextIndexStatus(@Param("indexId") UUID indexId, @Param("ids") Collection<UUID> ids,
+                              @Param("status") String status);
+
+    // Joins the caller's transaction, so a deleted file loses its record with the delete
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM content_index_documents WHERE index_id = :indexId AND file_id IN :ids",
+           nativeQuery = true)
+    int deleteTextIndexRecords(@Param("indexId") UUID indexId, @Param("ids") Collection<UUID> ids);
+
+    // After a content index is lost or rebuilt, its documents are queued again by its backfill job
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "DELETE FROM content_index_documents WHERE index_id = :indexId", nativeQuery = true)
+    int clearTextIndexRecords(@Param("indexId") UUID indexId);
+
+    // Registers a content index, or notes that it is still in use
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "INSERT INTO content_indexes (id, created_at, last_seen_at) VALUES (:indexId, :now, :now) " +
+                   "ON CONFLICT (id) DO UPDATE SET last_seen_at = EXCLUDED.last_seen_at",
+           nativeQuery = true)
+    int touchTextIndex(@Param("indexId") UUID indexId, @Param("now") LocalDateTime now);
+
+    // Content indexes whose node is gone, and with them their records
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query(value = "DELETE FROM content_indexes WHERE last_seen_at < :seenBefore", nativeQuery = true)
+    int forgetTextIndexes(@Param("seenBefore") LocalDateTime seenBefore);
+
+    // Runs in its own transaction because it is called from the thumbnail workers; 0 when the file was deleted
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE File f SET f.thumbnailStatus = :status, f.thumbnails = :thumbnails, f.blurhash = :blurhash, " +
+           "f.perceptualHash = :perceptualHash WHERE f.id = :id AND f.isDeleted = false")
+    int recordThumbnails(@Param("id") UUID id, @Param("status") ThumbnailStatus status,
+                         @Param("thumbnails") Map<String, String> thumbnails, @Param("blurhash") String blurhash,
+                         @Param("perceptualHash") Long perceptualHash);
+
+    // A user's live images with a perceptual hash; an index-only scan of files_user_perceptual_hash_idx
+    @Query("SELECT f.id AS id, f.perceptualHash AS perceptualHash FROM File f " +
+           "WHERE f.user = :user AND f.isDeleted = false AND f.perceptualHash IS NOT NULL")
+    List<HashedFile> findPerceptualHashes(@Param("user") User user);
+}
@@ -0,0 +1,28 @@
+package com.rdp.backenddrivex.repository;
+
+import com.rdp.backenddrivex.entity.PasswordResetToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetToken, String> {
+
+    // Returns the number of rows removed, so concurrent consumers can tell who won
+    @Modifying
+    @Query("DELETE FROM PasswordResetToken t WHERE t.tokenHash = :tokenHash")
+    int deleteByTokenHash(@Param("tokenHash") String tokenHash);
+
+    // Delete at most :batchSize expired tokens to keep each statement short
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM password_reset_tokens WHERE token_hash IN " +
+                   "(SELECT token_hash FROM password_reset_tokens WHERE expires_at < :cutoff LIMIT :batchSize)",
+           nativeQuery = true)
+    int deleteExpiredBatch(@Param("cutoff") LocalDateTime cutoff, @Param("batchSize") int batchSize);
+}
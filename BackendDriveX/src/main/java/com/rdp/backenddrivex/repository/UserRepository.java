@@ -2,7 +2,12 @@ package com.rdp.backenddrivex.repository;
 
 import com.rdp.backenddrivex.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
@@ -13,4 +18,10 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     
     boolean existsByEmail(String email);
+    
+    // Runs in its own transaction because it is called after the caller's transaction committed
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("UPDATE User u SET u.storageProvisioned = true WHERE u.id = :id")
+    int markStorageProvisioned(@Param("id") UUID id);
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.ConcurrencyLimitProperties;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Additive-increase / multiplicative-decrease concurrency limit for one endpoint
+ * class. The limit grows by roughly one per limit-worth of healthy samples while
+ * the class is busy, and is cut by {@code backoffRatio} when a route's recent
+ * latency climbs above {@code latencyTolerance} times its long-run latency or a
+ * request fails with 5xx. Latency is tracked per route because one class mixes
+ * cheap and expensive requests (listing vs upload, health vs login).
+ *
+ * <p>Samples arrive on every request completion, so nothing here takes a lock:
+ * each route's averages and the limit are immutable snapshots swapped with CAS,
+ * as in {@link TokenBucket}. The long-run latency only learns from samples taken
+ * while the route is not overloaded; otherwise it would creep up to the
+ * overloaded latency and the tolerance check would stop firing.
+ */
+final class AimdLimit {
+
+    // Routes beyond roughly this many share one baseline, so unknown paths can't grow the map
+    static final int MAX_ROUTES = 32;
+    static final String OTHER_ROUTE = "other";
+    // Weight of the newest sample in a route's recent and long-run latency averages
+    private static final double RECENT_WEIGHT = 0.2;
+    private static final double BASELINE_WEIGHT = 0.005;
+
+    private record RouteLatency(double baselineNanos, double recentNanos) {
+    }
+
+    private record Limit(double value, long lastDecreaseNanos) {
+    }
+
+    private final ConcurrencyLimitProperties.ClassLimit config;
+    private final long decreaseIntervalNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicReference<Limit> limit;
+    private final Map<String, AtomicReference<RouteLatency>> routes = new ConcurrentHashMap<>();
+
+    AimdLimit(ConcurrencyLimitProperties.ClassLimit config, long decreaseIntervalNanos) {
+        this.config = config;
+        this.decreaseIntervalNanos = decreaseIntervalNanos;
+        this.limit = new AtomicReference<>(new Limit(config.getInitialLimit(), 0));
+    }
+
+    boolean tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > getLimit()) {
+            inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    void recordDrop() {
+        dropped.incrementAndGet();
+    }
+
+    void onSample(String route, long latencyNanos, boolean failed, long now) {
+        AtomicReference<RouteLatency> latency = route(route, latencyNanos);
+        // Slow requests only point at this limit while the limit is actually being used
+        boolean busy = inFlight.get() * 2 >= limit.get().value();
+
+        boolean overloaded;
+        while (true) {
+            RouteLatency current = latency.get();
+            // Averages rather than single samples or the minimum, so ordinary jitter
+            // (GC, a cold cache, one large listing) doesn't count as congestion
+            double recent = current.recentNanos() + (latencyNanos - current.recentNanos()) * RECENT_WEIGHT;
+            overloaded = busy && recent > current.baselineNanos() * config.getLatencyTolerance();
+            // While idle a slower route is just slower, so the baseline follows it; while busy it must not
+            double baseline = overloaded || failed ? current.baselineNanos()
+                    : current.baselineNanos() + (latencyNanos - current.baselineNanos()) * BASELINE_WEIGHT;
+            if (latency.compareAndSet(current, new RouteLatency(baseline, recent))) {
+                break;
+            }
+        }
+
+        if (failed || overloaded) {
+            decrease(now);
+        } else if (busy) {
+            increase();
+        }
+    }
+
+    int getLimit() {
+        return (int) limit.get().value();
+    }
+
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    Map<String, Double> getBaselineMillis() {
+        Map<String, Double> baselines = new LinkedHashMap<>();
+        routes.forEach((route, latency) -> baselines.put(route, latency.get().baselineNanos() / 1_000_000.0));
+        return baselines;
+    }
+
+    double getShare() {
+        return config.getShare();
+    }
+
+    private AtomicReference<RouteLatency> route(String route, long latencyNanos) {
+        AtomicReference<RouteLatency> latency = routes.get(route);
+        if (latency != null) {
+            return latency;
+        }
+        // Racing first samples may take the map a few routes past the bound, which is harmless
+        String key = routes.size() >= MAX_ROUTES ? OTHER_ROUTE : route;
+        return routes.computeIfAbsent(key,
+                ignored -> new AtomicReference<>(new RouteLatency(latencyNanos, latencyNanos)));
+    }
+
+    private void increase() {
+        while (true) {
+            Limit current = limit.get();
+            double value = Math.min(config.getMaxLimit(), current.value() + 1.0 / current.value());
+            if (value == current.value()
+                    || limit.compareAndSet(current, new Limit(value, current.lastDecreaseNanos()))) {
+                return;
+            }
+        }
+    }
+
+    // At most one cut per decrease interval, however many slow samples arrive in it
+    private void decrease(long now) {
+        while (true) {
+            Limit current = limit.get();
+            if (now - current.lastDecreaseNanos() < decreaseIntervalNanos) {
+                return;
+            }
+            double value = Math.max(config.getMinLimit(), current.value() * config.getBackoffRatio());
+            if (limit.compareAndSet(current, new Limit(value, now))) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.rdp.backenddrivex.security;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Exposes the current adaptive limits at /actuator/concurrencylimits
+ */
+@Component
+@Endpoint(id = "concurrencylimits")
+@RequiredArgsConstructor
+public class ConcurrencyLimitEndpoint {
+
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    @ReadOperation
+    public Map<String, Object> limits() {
+        return concurrencyLimiter.snapshot();
+    }
+}
@@ -0,0 +1,88 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.ConcurrencyLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Load shedding in front of the API: requests beyond the adaptive limit of
+ * their endpoint class are rejected immediately with 503 instead of queueing
+ * in Tomcat until the database pool times out.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Pattern ID_SEGMENT = Pattern.compile("[0-9a-fA-F-]{8,}|\\d+");
+    private static final long MEBIBYTE = 1024 * 1024;
+
+    private final ConcurrencyLimitProperties properties;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+
+        if (!properties.isEnabled()) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        EndpointClass endpointClass = EndpointClass.of(request);
+        if (!concurrencyLimiter.tryAcquire(endpointClass)) {
+            log.warn("Shedding {} request {} {}", endpointClass, request.getMethod(), request.getRequestURI());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setContentType("application/json");
+            response.getWriter().write("{\"success\": false, \"message\": \"Server is busy, please retry\"}");
+            return;
+        }
+
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            filterChain.doFilter(request, response);
+            failed = response.getStatus() >= 500;
+        } finally {
+            concurrencyLimiter.release(endpointClass, route(request),
+                    perMebibyte(System.nanoTime() - start, transferSize(request, response)), failed);
+        }
+    }
+
+    // Method plus path with id segments collapsed, so every file shares one route
+    private static String route(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        StringBuilder route = new StringBuilder(request.getMethod()).append(' ');
+        for (String segment : path.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            route.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+        }
+        return route.toString();
+    }
+
+    // The upload or download size, whichever is larger
+    private static long transferSize(HttpServletRequest request, HttpServletResponse response) {
+        String contentLength = response.getHeader(HttpHeaders.CONTENT_LENGTH);
+        long responseLength = contentLength != null ? Long.parseLong(contentLength) : -1;
+        return Math.max(request.getContentLengthLong(), responseLength);
+    }
+
+    // Large uploads and downloads take longer because they are large, not because the server is congested
+    private static long perMebibyte(long latencyNanos, long contentLength) {
+        return contentLength > MEBIBYTE ? latencyNanos * MEBIBYTE / contentLength : latencyNanos;
+    }
+}
@@ -0,0 +1,84 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.ConcurrencyLimitProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One adaptive limit per {@link EndpointClass}. A request must fit under its own
+ * class limit and under its class's share of the combined limit, so lower
+ * priority classes are shed before they can crowd out auth and health checks.
+ */
+@Component
+public class ConcurrencyLimiter {
+
+    private final Map<EndpointClass, AimdLimit> limits = new EnumMap<>(EndpointClass.class);
+
+    public ConcurrencyLimiter(ConcurrencyLimitProperties properties, MeterRegistry meterRegistry) {
+        long decreaseInterval = properties.getDecreaseInterval().toNanos();
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            ConcurrencyLimitProperties.ClassLimit config = properties.getClasses().get(endpointClass);
+            if (config == null) {
+                throw new IllegalStateException("No concurrency limit configured for " + endpointClass);
+            }
+            AimdLimit limit = new AimdLimit(config, decreaseInterval);
+            limits.put(endpointClass, limit);
+
+            String tag = endpointClass.name().toLowerCase();
+            Gauge.builder("drivex.concurrency.limit", limit, AimdLimit::getLimit)
+                    .tag("class", tag).register(meterRegistry);
+            Gauge.builder("drivex.concurrency.inflight", limit, AimdLimit::getInFlight)
+                    .tag("class", tag).register(meterRegistry);
+            FunctionCounter.builder("drivex.concurrency.dropped", limit, AimdLimit::getDropped)
+                    .tag("class", tag).register(meterRegistry);
+        }
+    }
+
+    public boolean tryAcquire(EndpointClass endpointClass) {
+        AimdLimit limit = limits.get(endpointClass);
+        if (!limit.tryAcquire()) {
+            limit.recordDrop();
+            return false;
+        }
+
+        int totalLimit = 0;
+        int totalInFlight = 0;
+        for (AimdLimit each : limits.values()) {
+            totalLimit += each.getLimit();
+            totalInFlight += each.getInFlight();
+        }
+        if (totalInFlight > totalLimit * limit.getShare()) {
+            limit.release();
+            limit.recordDrop();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @param route identifies requests of similar cost within the class, e.g. "GET /api/files"
+     */
+    public void release(EndpointClass endpointClass, String route, long latencyNanos, boolean failed) {
+        AimdLimit limit = limits.get(endpointClass);
+        // Sample first so the finishing request still counts towards the limit being used
+        limit.onSample(route, latencyNanos, failed, System.nanoTime());
+        limit.release();
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        limits.forEach((endpointClass, limit) -> result.put(endpointClass.name().toLowerCase(), Map.of(
+                "limit", limit.getLimit(),
+                "inFlight", limit.getInFlight(),
+                "dropped", limit.getDropped(),
+                "baselineLatencyMs", limit.getBaselineMillis()
+        )));
+        return result;
+    }
+}
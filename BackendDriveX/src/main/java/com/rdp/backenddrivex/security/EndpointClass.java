@@ -0,0 +1,31 @@
+package com.rdp.backenddrivex.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Priority classes used by the concurrency limiter. Under overload BULK work is
+ * shed first and CRITICAL (auth, health) last.
+ */
+public enum EndpointClass {
+    CRITICAL,
+    STANDARD,
+    BULK;
+
+    public static EndpointClass of(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+
+        if (path.startsWith("/api/auth/") || path.startsWith("/actuator/health")) {
+            return CRITICAL;
+        }
+        if (path.equals("/api/files/upload")
+                || ("GET".equals(method) && (path.equals("/api/files") || path.equals("/api/files/")))
+                || path.equals("/api/files/duplicates")
+                || path.equals("/api/files/search")
+                || path.equals("/api/files/archive")
+                || (path.startsWith("/api/files/") && (path.endsWith("/content") || path.endsWith("/entries")))) {
+            return BULK;
+        }
+        return STANDARD;
+    }
+}
@@ -1,6 +1,10 @@
 package com.rdp.backenddrivex.security;
 
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.observability.jfr.FlightEvents;
+import com.rdp.backenddrivex.observability.jfr.TokenVerificationEvent;
 import com.rdp.backenddrivex.service.CustomUserDetailsService;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,6 +29,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtTokenProvider tokenProvider;
     private final CustomUserDetailsService customUserDetailsService;
+    private final DriveXMetrics metrics;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -34,8 +39,10 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                UUID userId = tokenProvider.getUserIdFromToken(jwt);
+            UUID userId = StringUtils.hasText(jwt) ? verify(jwt) : null;
+
+            if (userId != null) {
+                FlightEvents.bindUser(userId);
 
                 UserDetails userDetails = customUserDetailsService.loadUserById(userId);
                 UsernamePasswordAuthenticationToken authentication = 
@@ -48,7 +55,29 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             log.error("Could not set user authentication in security context", ex);
         }
 
-        filterChain.doFilter(request, response);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            FlightEvents.clearUser();
+        }
+    }
+
+    /**
+     * Validates the token and extracts the user id, timing the signature check
+     */
+    private UUID verify(String jwt) {
+        Timer.Sample sample = metrics.start();
+        TokenVerificationEvent event = TokenVerificationEvent.start();
+        String outcome = DriveXMetrics.ERROR;
+        UUID userId = null;
+        try {
+            userId = tokenProvider.validateToken(jwt) ? tokenProvider.getUserIdFromToken(jwt) : null;
+            outcome = userId != null ? "valid" : "invalid";
+            return userId;
+        } finally {
+            event.finish(userId);
+            metrics.stop(sample, "drivex.auth.jwt", "verify", outcome);
+        }
     }
 
     private String getJwtFromRequest(HttpServletRequest request) {
@@ -0,0 +1,94 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the configured per-route token bucket policies. Runs ahead of
+ * {@link JwtAuthenticationFilter} so rejected requests never reach BCrypt,
+ * the database or storage.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimitProperties properties;
+    private final RateLimiter rateLimiter;
+    private final JwtTokenProvider tokenProvider;
+    private final MeterRegistry meterRegistry;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                  HttpServletResponse response,
+                                  FilterChain filterChain) throws ServletException, IOException {
+
+        RateLimitProperties.Policy policy = properties.isEnabled() ? findPolicy(request) : null;
+        if (policy == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long waitNanos = rateLimiter.tryAcquire(policy, clientKey(policy, request));
+        if (waitNanos == 0) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.warn("Rate limit '{}' exceeded for {} {}", policy.getName(), request.getMethod(), request.getRequestURI());
+        Counter.builder("drivex.ratelimit.rejected")
+                .tag("policy", policy.getName())
+                .register(meterRegistry)
+                .increment();
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType("application/json");
+        response.getWriter().write(
+            "{\"success\": false, \"message\": \"Too many requests - retry after " + retryAfterSeconds + " seconds\"}"
+        );
+    }
+
+    private RateLimitProperties.Policy findPolicy(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (RateLimitProperties.Policy policy : properties.getPolicies()) {
+            if ((policy.getMethod() == null || policy.getMethod().equalsIgnoreCase(request.getMethod()))
+                    && pathMatcher.match(policy.getPath(), path)) {
+                return policy;
+            }
+        }
+        return null;
+    }
+
+    private String clientKey(RateLimitProperties.Policy policy, HttpServletRequest request) {
+        if (policy.getKey() == RateLimitProperties.KeyType.USER) {
+            String bearerToken = request.getHeader(HttpHeaders.AUTHORIZATION);
+            if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
+                try {
+                    return "user:" + tokenProvider.getUserIdFromToken(bearerToken.substring(7));
+                } catch (Exception e) {
+                    // Invalid token - limit by address instead
+                }
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,59 @@
+package com.rdp.backenddrivex.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rdp.backenddrivex.config.RateLimitProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Holds one token bucket per (policy, client key) in a bounded Caffeine cache.
+ * Idle buckets expire, and once {@code maxBuckets} is reached the cache's
+ * frequency-based admission keeps the buckets of clients seen often and drops
+ * one-off keys first, so a flood of new addresses cannot push out everyone
+ * else. Eviction runs in the cache's own maintenance, never as a scan on the
+ * request thread.
+ *
+ * <p>Every client always gets a bucket of its own. When the cache is full, a
+ * new client's bucket may be evicted again quickly, and its next request
+ * starts with a full bucket: the limiter fails open for that client rather
+ * than locking legitimate new users out behind a shared bucket.
+ */
+@Component
+public class RateLimiter {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxBuckets())
+                // An idle bucket would be full again anyway
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+        Gauge.builder("drivex.ratelimit.buckets", buckets, Cache::estimatedSize)
+                .description("Rate limit buckets currently tracked")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return 0 if the request may proceed, otherwise nanoseconds until it would be allowed
+     */
+    public long tryAcquire(RateLimitProperties.Policy policy, String clientKey) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(policy.getName() + ':' + clientKey, key -> newBucket(policy, now));
+        return bucket.tryConsume(now);
+    }
+
+    // Expired buckets are otherwise removed only as a side effect of later requests
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval:PT1M}")
+    public void sweep() {
+        buckets.cleanUp();
+    }
+
+    private static TokenBucket newBucket(RateLimitProperties.Policy policy, long now) {
+        return new TokenBucket(policy.getCapacity(), policy.getRefillTokens(),
+                policy.getRefillPeriod().toNanos(), now);
+    }
+}
@@ -0,0 +1,43 @@
+package com.rdp.backenddrivex.security;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. The state is an immutable snapshot swapped with CAS,
+ * so concurrent requests for the same key never block each other.
+ */
+final class TokenBucket {
+
+    private record State(double tokens, long refilledAt) {
+    }
+
+    private final int capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    TokenBucket(int capacity, int refillTokens, long refillPeriodNanos, long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = (double) refillTokens / refillPeriodNanos;
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return 0 if a token was taken, otherwise the nanoseconds until one is available
+     */
+    long tryConsume(long now) {
+        while (true) {
+            State current = state.get();
+            // Another thread may have read a slightly later clock value
+            long refilledAt = Math.max(now, current.refilledAt());
+            double tokens = Math.min(capacity, current.tokens() + (refilledAt - current.refilledAt()) * tokensPerNano);
+            if (tokens < 1) {
+                return (long) Math.ceil((1 - tokens) / tokensPerNano);
+            }
+            if (state.compareAndSet(current, new State(tokens - 1, refilledAt))) {
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ArchiveProperties;
+import com.rdp.backenddrivex.dto.request.ArchiveRequest;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.exception.BadRequestException;
+import com.rdp.backenddrivex.exception.FileStorageException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams a set of files to the client as a ZIP built on the fly. Entries are
+ * copied from storage as they arrive, so neither the archive nor any entry is
+ * ever held in memory; while one is written the next few are already being
+ * requested, each holding only a few network buffers until its turn.
+ *
+ * <p>Already-compressed files (most media) are written without compression.
+ * A true STORED entry would need its CRC before its data, i.e. the whole
+ * file, so they are deflated at level 0 instead, which only frames the bytes.
+ */
+@Slf4j
+@Service
+public class ArchiveService {
+
+    private static final DateTimeFormatter ARCHIVE_NAME = DateTimeFormatter.ofPattern("'DriveX-'yyyyMMdd-HHmmss'.zip'");
+
+    private final FileService fileService;
+    private final StorageCache storageCache;
+    private final ArchiveProperties properties;
+    private final DriveXMetrics metrics;
+    private final List<MimeType> compressibleTypes;
+    private final ExecutorService prefetchers;
+
+    public ArchiveService(FileService fileService, StorageCache storageCache, ArchiveProperties properties,
+                          DriveXMetrics metrics) {
+        this.fileService = fileService;
+        this.storageCache = storageCache;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.compressibleTypes = properties.getCompressibleTypes().stream().map(MimeTypeUtils::parseMimeType).toList();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.prefetchers = Executors.newFixedThreadPool(properties.getPrefetchThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "archive-prefetch-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prefetchers.shutdownNow();
+    }
+
+    public List<File> selectFiles(User user, ArchiveRequest request) {
+        boolean byIds = request.getIds() != null && !request.getIds().isEmpty();
+        if (byIds == (request.getType() != null)) {
+            throw new BadRequestException("Give either file ids or a type");
+        }
+        if (byIds && request.getIds().size() > properties.getMaxEntries()) {
+            throw new BadRequestException("At most " + properties.getMaxEntries() + " files can be downloaded at once");
+        }
+
+        List<File> files = fileService.getStoredFiles(user, request.getIds(), request.getType(),
+                properties.getMaxEntries() + 1);
+        if (files.isEmpty()) {
+            throw new BadRequestException("No files to download");
+        }
+        if (files.size() > properties.getMaxEntries()) {
+            throw new BadRequestException("At most " + properties.getMaxEntries() + " files can be downloaded at once");
+        }
+        long totalSize = files.stream().mapToLong(File::getSizeBytes).sum();
+        if (totalSize > properties.getMaxTotalSize().toBytes()) {
+            throw new BadRequestException("Files total more than " + properties.getMaxTotalSize() + ", too much for one download");
+        }
+        return files;
+    }
+
+    public void writeArchive(List<File> files, HttpServletResponse response) throws IOException {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        AtomicBoolean abandoned = new AtomicBoolean();
+        Deque<CompletableFuture<InputStream>> opening = new ArrayDeque<>();
+        int next = 0;
+
+        response.setBufferSize((int) properties.getOutputBufferSize().toBytes());
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(LocalDateTime.now().format(ARCHIVE_NAME), StandardCharsets.UTF_8).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        try {
+            ZipOutputStream zip = new ZipOutputStream(response.getOutputStream(), StandardCharsets.UTF_8);
+            Set<String> names = new HashSet<>();
+            for (File file : files) {
+                while (next < files.size() && opening.size() < properties.getPrefetch()) {
+                    opening.add(open(files.get(next++), abandoned));
+                }
+                try (InputStream in = ContentCompression.decode(await(opening.remove()), file.getContentEncoding())) {
+                    ZipEntry entry = new ZipEntry(entryName(file.getFilename(), names));
+                    if (file.getUploadedAt() != null) {
+                        entry.setTimeLocal(file.getUploadedAt());
+                    }
+                    zip.setLevel(isCompressible(file.getMimeType()) ? Deflater.BEST_SPEED : Deflater.NO_COMPRESSION);
+                    zip.putNextEntry(entry);
+                    long copied = in.transferTo(zip);
+                    if (copied != file.getSizeBytes()) {
+                        // Throwing aborts the connection, so the client sees a failed download rather than a bad archive
+                        throw new IOException("Storage sent " + copied + " of " + file.getSizeBytes() + " bytes for "
+                                + file.getStoragePath());
+                    }
+                    zip.closeEntry();
+                }
+            }
+            zip.finish();
+            outcome = DriveXMetrics.SUCCESS;
+        } catch (FileStorageException e) {
+            // Nothing sent yet: drop the archive's headers so the error handler can answer with JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        } finally {
+            abandoned.set(true);
+            for (CompletableFuture<InputStream> future : opening) {
+                future.thenAccept(ArchiveService::closeQuietly);
+            }
+            metrics.stop(sample, "drivex.archive", "zip", outcome);
+        }
+    }
+
+    private CompletableFuture<InputStream> open(File file, AtomicBoolean abandoned) {
+        // Files not started by the time the download ends are never requested
+        long size = file.getStorageSize();
+        if (size == 0) {
+            return CompletableFuture.completedFuture(InputStream.nullInputStream());
+        }
+        return CompletableFuture.supplyAsync(() -> abandoned.get()
+                ? null
+                : storageCache.openFile(file.getStoragePath(), size, 0, size - 1), prefetchers);
+    }
+
+    private static InputStream await(CompletableFuture<InputStream> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for storage");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FileStorageException storageException) {
+                throw storageException;
+            }
+            throw new FileStorageException("Could not download file from Supabase", e.getCause());
+        }
+    }
+
+    private boolean isCompressible(String mimeType) {
+        try {
+            MimeType type = MimeTypeUtils.parseMimeType(mimeType);
+            return compressibleTypes.stream().anyMatch(compressible -> compressible.includes(type));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    // Flat, unique names; path separators are replaced so entries cannot land outside the folder they are unpacked to
+    private static String entryName(String filename, Set<String> names) {
+        String name = filename == null ? "" : filename.replace('/', '_').replace('\\', '_').strip();
+        if (name.isEmpty() || name.equals(".") || name.equals("..")) {
+            name = "file";
+        }
+        int dot = name.lastIndexOf('.');
+        String unique = name;
+        // Case-insensitive, as on Windows and macOS
+        for (int count = 2; !names.add(unique.toLowerCase(Locale.ROOT)); count++) {
+            unique = dot > 0
+                    ? name.substring(0, dot) + " (" + count + ")" + name.substring(dot)
+                    : name + " (" + count + ")";
+        }
+        return unique;
+    }
+
+    private static void closeQuietly(InputStream in) {
+        if (in == null) {
+            return;
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            log.debug("Could not close storage stream: {}", e.getMessage());
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.rdp.backenddrivex.dto.request.RegisterRequest;
 import com.rdp.backenddrivex.dto.request.SupabaseAuthRequest;
 import com.rdp.backenddrivex.dto.response.AuthResponse;
 import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.event.StorageProvisioningRequestedEvent;
 import com.rdp.backenddrivex.exception.BadRequestException;
 import com.rdp.backenddrivex.exception.ResourceNotFoundException;
 import com.rdp.backenddrivex.repository.UserRepository;
@@ -15,6 +16,7 @@ import com.rdp.backenddrivex.security.UserPrincipal;
 import io.jsonwebtoken.Claims;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -38,9 +40,9 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final JwtTokenProvider tokenProvider;
     private final JwtProperties jwtProperties;
-    private final SupabaseService supabaseService;
     private final SupabaseAuthService supabaseAuthService;
     private final EmailService emailService;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Transactional
     public AuthResponse register(RegisterRequest registerRequest) {
@@ -61,13 +63,8 @@ public class AuthService {
         User savedUser = userRepository.save(user);
         log.info("User registered successfully with ID: {}", savedUser.getId());
 
-        // Create user folder in Supabase Storage
-        try {
-            supabaseService.createUserFolder(savedUser.getEmail());
-        } catch (Exception e) {
-            log.warn("Failed to create user folder for {}: {}", savedUser.getEmail(), e.getMessage());
-            // Don't fail registration if folder creation fails
-        }
+        // Create user folder in Supabase Storage once this transaction has committed
+        requestStorageProvisioning(savedUser);
 
         // Generate JWT token
         String jwt = tokenProvider.generateToken(savedUser.getId(), savedUser.getName());
@@ -117,6 +114,7 @@ public class AuthService {
         log.info("Password changed successfully for user: {}", user.getName());
     }
 
+    @Transactional(readOnly = true)
     public User getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         
@@ -153,13 +151,9 @@ public class AuthService {
             // Create or update user in our database
             User user = createOrUpdateGoogleUser(email, name);
 
-            // Create user folder in Supabase Storage if it doesn't exist
-            try {
-                supabaseService.createUserFolder(user.getEmail());
-            } catch (Exception e) {
-                log.warn("Failed to create user folder for {}: {}", user.getEmail(), e.getMessage());
-                // Don't fail authentication if folder creation fails
-            }
+            // Create user folder in Supabase Storage if it doesn't exist yet;
+            // returning users skip storage entirely
+            requestStorageProvisioning(user);
 
             // Generate our own JWT token for the user
             String jwt = tokenProvider.generateToken(user.getId(), user.getName());
@@ -173,6 +167,12 @@ public class AuthService {
         }
     }
 
+    private void requestStorageProvisioning(User user) {
+        if (!Boolean.TRUE.equals(user.getStorageProvisioned())) {
+            eventPublisher.publishEvent(new StorageProvisioningRequestedEvent(user.getId(), user.getEmail()));
+        }
+    }
+
     private String extractNameFromClaims(Claims claims) {
         // Try various claim fields for name
         Object userMetadata = claims.get("user_metadata");
@@ -236,18 +236,12 @@ public class AuthService {
     public void resetPassword(String token, String newPassword) {
         log.info("Password reset attempt with token: {}", token);
         
-        // Validate the reset token
-        if (!emailService.isValidResetToken(token)) {
+        // Consuming is the only validity check: the store hands a token's email to exactly one caller,
+        // so two concurrent resets with the same token cannot both succeed, on one node or several
+        String email = emailService.consumeResetToken(token).orElseThrow(() -> {
             log.warn("Invalid or expired reset token: {}", token);
-            throw new BadRequestException("Invalid or expired reset token");
-        }
-        
-        // Get email associated with the token
-        String email = emailService.getEmailForToken(token);
-        if (email == null) {
-            log.warn("No email found for reset token: {}", token);
-            throw new BadRequestException("Invalid reset token");
-        }
+            return new BadRequestException("Invalid or expired reset token");
+        });
         
         // Find user by email
         User user = userRepository.findByEmail(email)
@@ -257,9 +251,6 @@ public class AuthService {
         user.setPasswordHash(passwordEncoder.encode(newPassword));
         userRepository.save(user);
         
-        // Consume the reset token (one-time use)
-        emailService.consumeResetToken(token);
-        
         log.info("Password reset successfully for user: {}", email);
     }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.rdp.backenddrivex.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * BlurHash encoder (https://github.com/woltapp/blurhash): sums the image into a
+ * few cosine components and packs them into a short base 83 string that
+ * clients decode into a blurred placeholder. The cost grows with the pixel
+ * count, so it is given a thumbnail rather than the original.
+ */
+final class BlurHash {
+
+    private static final String BASE83 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz#$%*+,-.:;=?@[]^_{|}~";
+
+    private BlurHash() {
+    }
+
+    /**
+     * Encodes {@code image} with four components along its longer side and
+     * three along the shorter, which gives a 28 character hash
+     */
+    static String encode(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int componentsX = width >= height ? 4 : 3;
+        int componentsY = width >= height ? 3 : 4;
+
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        double[] red = new double[pixels.length];
+        double[] green = new double[pixels.length];
+        double[] blue = new double[pixels.length];
+        for (int i = 0; i < pixels.length; i++) {
+            red[i] = srgbToLinear((pixels[i] >> 16) & 0xff);
+            green[i] = srgbToLinear((pixels[i] >> 8) & 0xff);
+            blue[i] = srgbToLinear(pixels[i] & 0xff);
+        }
+
+        double[][] factors = new double[componentsX * componentsY][];
+        for (int j = 0; j < componentsY; j++) {
+            for (int i = 0; i < componentsX; i++) {
+                factors[j * componentsX + i] = component(i, j, width, height, red, green, blue);
+            }
+        }
+
+        // Largest absolute value, as the C encoder does; the TypeScript one takes the largest signed value
+        double maximum = 0;
+        for (int k = 1; k < factors.length; k++) {
+            for (double value : factors[k]) {
+                maximum = Math.max(maximum, Math.abs(value));
+            }
+        }
+        int quantisedMaximum = factors.length > 1 ? clamp((int) Math.floor(maximum * 166 - 0.5), 0, 82) : 0;
+        double acScale = factors.length > 1 ? (quantisedMaximum + 1) / 166.0 : 1;
+
+        StringBuilder hash = new StringBuilder(4 + 2 * factors.length);
+        appendBase83(hash, (componentsX - 1) + (componentsY - 1) * 9, 1);
+        appendBase83(hash, quantisedMaximum, 1);
+        double[] dc = factors[0];
+        appendBase83(hash, (linearToSrgb(dc[0]) << 16) + (linearToSrgb(dc[1]) << 8) + linearToSrgb(dc[2]), 4);
+        for (int k = 1; k < factors.length; k++) {
+            double[] ac = factors[k];
+            appendBase83(hash, quantiseAc(ac[0], acScale) * 19 * 19
+                    + quantiseAc(ac[1], acScale) * 19
+                    + quantiseAc(ac[2], acScale), 2);
+        }
+        return hash.toString();
+    }
+
+    private static double[] component(int i, int j, int width, int height,
+                                      double[] red, double[] green, double[] blue) {
+        double[] cosX = new double[width];
+        for (int x = 0; x < width; x++) {
+            cosX[x] = Math.cos(Math.PI * i * x / width);
+        }
+        double r = 0;
+        double g = 0;
+        double b = 0;
+        for (int y = 0; y < height; y++) {
+            double cosY = Math.cos(Math.PI * j * y / height);
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                double basis = cosX[x] * cosY;
+                r += basis * red[row + x];
+                g += basis * green[row + x];
+                b += basis * blue[row + x];
+            }
+        }
+        double scale = (i == 0 && j == 0 ? 1.0 : 2.0) / ((double) width * height);
+        return new double[]{r * scale, g * scale, b * scale};
+    }
+
+    private static int quantiseAc(double value, double scale) {
+        double normalised = value / scale;
+        return clamp((int) Math.floor(Math.copySign(Math.sqrt(Math.abs(normalised)), normalised) * 9 + 9.5), 0, 18);
+    }
+
+    private static double srgbToLinear(int value) {
+        double v = value / 255.0;
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static int linearToSrgb(double value) {
+        double v = Math.max(0, Math.min(1, value));
+        return v <= 0.0031308
+                ? (int) (v * 12.92 * 255 + 0.5)
+                : (int) ((1.055 * Math.pow(v, 1 / 2.4) - 0.055) * 255 + 0.5);
+    }
+
+    private static void appendBase83(StringBuilder hash, int value, int length) {
+        for (int digit = length - 1; digit >= 0; digit--) {
+            int power = 1;
+            for (int p = 0; p < digit; p++) {
+                power *= 83;
+            }
+            hash.append(BASE83.charAt((value / power) % 83));
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,179 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.CompressionProperties;
+import com.rdp.backenddrivex.exception.FileStorageException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+import org.springframework.util.InvalidMimeTypeException;
+import org.springframework.util.MimeType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip-compresses compressible uploads (text, JSON, XML) on their way to
+ * storage. The first megabyte is compressed in memory; a file that shrinks
+ * enough by then is streamed through the deflater to storage, so only a
+ * buffer's worth of compressed bytes is held at a time. A file that does not
+ * shrink is stored as uploaded instead, decided after its first megabyte or,
+ * failing that, as soon as its output passes the configured ratio. Downloads
+ * decompress the stored object, or pass it through to clients that accept
+ * gzip; see {@link FileContentService}.
+ */
+@Service
+public class ContentCompression {
+
+    public static final String GZIP = "gzip";
+    public static final String STORED_TYPE = "application/gzip";
+
+    private static final String INCOMPRESSIBLE = "incompressible";
+    // Input compressed before the upload starts; smaller files are uploaded in one piece
+    static final int SAMPLE_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SupabaseService supabaseService;
+    private final CompressionProperties properties;
+    private final DriveXMetrics metrics;
+    private final List<MimeType> types;
+
+    public ContentCompression(SupabaseService supabaseService, CompressionProperties properties, DriveXMetrics metrics) {
+        this.supabaseService = supabaseService;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.types = properties.getTypes().stream().map(MimeTypeUtils::parseMimeType).toList();
+    }
+
+    /**
+     * A file stored compressed: its public URL, its size as stored and the codec
+     */
+    public record Compressed(String url, long storedSize, String encoding) {
+    }
+
+    /**
+     * Stores {@code file} compressed at {@code storagePath} if it is of a
+     * compressible type and shrinks enough; null to store it as uploaded
+     */
+    public Compressed upload(MultipartFile file, String mimeType, String storagePath) throws IOException {
+        if (!properties.isEnabled() || file.getSize() < properties.getMinSize().toBytes() || !isCompressible(mimeType)) {
+            return null;
+        }
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        long limit = (long) (file.getSize() * properties.getMaxRatio());
+        // What the deflater has written and not yet sent
+        ByteArrayOutputStream pending = new ByteArrayOutputStream(BUFFER_SIZE);
+        try (InputStream in = file.getInputStream();
+             GZIPOutputStream gzip = new LeveledGzipOutputStream(pending, properties.getLevel())) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long sampled = 0;
+            int read = 0;
+            while (sampled < SAMPLE_SIZE && (read = in.read(buffer)) >= 0) {
+                gzip.write(buffer, 0, read);
+                sampled += read;
+            }
+
+            if (read < 0) {
+                gzip.finish();
+                if (pending.size() > limit) {
+                    outcome = INCOMPRESSIBLE;
+                    return null;
+                }
+                String url = supabaseService.uploadBytes(pending.toByteArray(), STORED_TYPE, storagePath);
+                outcome = DriveXMetrics.SUCCESS;
+                return new Compressed(url, pending.size(), GZIP);
+            }
+            // The deflater holds back some output, so this errs towards carrying on
+            if (pending.size() > sampled * properties.getMaxRatio()) {
+                outcome = INCOMPRESSIBLE;
+                return null;
+            }
+
+            AtomicLong sent = new AtomicLong();
+            AtomicBoolean overLimit = new AtomicBoolean();
+            String url;
+            try {
+                url = supabaseService.uploadStream(out -> {
+                    send(pending, out, sent, limit, overLimit);
+                    int next;
+                    while ((next = in.read(buffer)) >= 0) {
+                        gzip.write(buffer, 0, next);
+                        send(pending, out, sent, limit, overLimit);
+                    }
+                    gzip.finish();
+                    send(pending, out, sent, limit, overLimit);
+                }, STORED_TYPE, storagePath);
+            } catch (FileStorageException e) {
+                if (overLimit.get()) {
+                    outcome = INCOMPRESSIBLE;
+                    return null;
+                }
+                throw e;
+            }
+            outcome = DriveXMetrics.SUCCESS;
+            return new Compressed(url, sent.get(), GZIP);
+        } finally {
+            metrics.stop(sample, "drivex.upload.compress", GZIP, outcome);
+        }
+    }
+
+    // Sends what the deflater wrote, unless that takes the file past the limit, which cancels the upload
+    private static void send(ByteArrayOutputStream pending, OutputStream out, AtomicLong sent, long limit,
+                             AtomicBoolean overLimit) throws IOException {
+        if (sent.addAndGet(pending.size()) > limit) {
+            overLimit.set(true);
+            throw new IOException("Compressed file is larger than " + limit + " bytes");
+        }
+        pending.writeTo(out);
+        pending.reset();
+    }
+
+    /**
+     * The file as uploaded, from its stored object in {@code encoding}; closes
+     * {@code stored} if it cannot be decoded
+     */
+    public static InputStream decode(InputStream stored, String encoding) throws IOException {
+        if (encoding == null) {
+            return stored;
+        }
+        try {
+            if (!GZIP.equals(encoding)) {
+                throw new IOException("Unknown content encoding " + encoding);
+            }
+            return new GZIPInputStream(stored, 64 * 1024);
+        } catch (IOException e) {
+            stored.close();
+            throw e;
+        }
+    }
+
+    private boolean isCompressible(String mimeType) {
+        // Thumbnail and preview workers read images and PDFs as stored
+        if (ThumbnailService.isImage(mimeType) || PdfPreviewService.isPdf(mimeType)) {
+            return false;
+        }
+        try {
+            MimeType type = MimeTypeUtils.parseMimeType(mimeType);
+            return types.stream().anyMatch(compressible -> compressible.includes(type));
+        } catch (InvalidMimeTypeException e) {
+            return false;
+        }
+    }
+
+    private static final class LeveledGzipOutputStream extends GZIPOutputStream {
+
+        LeveledGzipOutputStream(ByteArrayOutputStream out, int level) throws IOException {
+            super(out, BUFFER_SIZE);
+            def.setLevel(level);
+        }
+    }
+}
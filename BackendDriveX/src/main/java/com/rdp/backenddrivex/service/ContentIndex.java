@@ -0,0 +1,292 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ContentSearchProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FieldType;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.DefaultPassageFormatter;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Embedded Lucene index of the text of documents, on disk in a fixed number
+ * of partitions. All of a user's documents live in the partition chosen by
+ * their user id, and every search is restricted to the user, so a search
+ * reads one partition and sees only the user's own documents. Changes become
+ * searchable, and durable, at the next {@link #commit()}.
+ *
+ * <p>The index is node-local, so it has an {@link #id()} of its own, kept in
+ * its directory, under which its documents are recorded in the database.
+ */
+@Slf4j
+@Service
+public class ContentIndex {
+
+    private static final String ID = "id";
+    private static final String USER = "user";
+    private static final String FILENAME = "filename";
+    private static final String CONTENT = "content";
+    private static final String ID_FILE = "index-id";
+    // Offsets in the postings let snippets be cut without analysing the text again
+    private static final FieldType CONTENT_TYPE = new FieldType(TextField.TYPE_STORED);
+    // Passages joined into a hit's snippet
+    private static final int SNIPPET_PASSAGES = 3;
+    // Snippets come from this much of the start of the text; matches further in still count
+    private static final int SNIPPET_SCAN_CHARS = 100_000;
+
+    static {
+        CONTENT_TYPE.setIndexOptions(IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS);
+        CONTENT_TYPE.freeze();
+    }
+
+    private record Partition(Directory directory, IndexWriter writer, SearcherManager searchers, AtomicBoolean changed) {
+    }
+
+    public record Hit(UUID fileId, String snippet) {
+    }
+
+    public record Hits(long total, List<Hit> hits) {
+    }
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private final Partition[] partitions;
+    private final boolean created;
+    private final UUID id;
+
+    public ContentIndex(ContentSearchProperties properties) {
+        if (!properties.isEnabled()) {
+            partitions = new Partition[0];
+            created = false;
+            id = null;
+            return;
+        }
+        if (properties.getPartitions() < 1) {
+            throw new IllegalStateException("app.content-search.partitions must be at least 1");
+        }
+        Path root = properties.getDirectory();
+        if (root == null) {
+            throw new IllegalStateException("app.content-search.directory must be set");
+        }
+        partitions = new Partition[properties.getPartitions()];
+        try {
+            // The text of users' documents
+            PrivateFiles.createDirectory(root);
+            created = prepare(root, partitions.length);
+            id = readId(root);
+            double bufferMb = properties.getIndexingBuffer().toBytes() / (1024.0 * 1024.0) / partitions.length;
+            for (int i = 0; i < partitions.length; i++) {
+                Directory directory = FSDirectory.open(root.resolve("partition-" + i));
+                IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer)
+                        .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                        .setRAMBufferSizeMB(bufferMb));
+                // Writes the empty index, so the next start finds it
+                writer.commit();
+                partitions[i] = new Partition(directory, writer, new SearcherManager(writer, null), new AtomicBoolean());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open content index in " + root, e);
+        }
+        if (created) {
+            log.info("Created content index {} with {} partitions in {}", id, partitions.length, root);
+        }
+    }
+
+    /**
+     * Identifies this index, and not the node, among the nodes' indexes; it
+     * stays the same across restarts and rebuilds, and changes only when the
+     * directory is lost
+     */
+    public UUID id() {
+        return id;
+    }
+
+    /**
+     * Whether the index was created empty at startup, so documents recorded
+     * as indexed are missing from it
+     */
+    public boolean wasCreated() {
+        return created;
+    }
+
+    /**
+     * Adds a document's text, replacing any earlier version
+     */
+    public void index(UUID userId, UUID fileId, String filename, String text) throws IOException {
+        Document document = new Document();
+        document.add(new StringField(ID, fileId.toString(), Field.Store.YES));
+        document.add(new StringField(USER, userId.toString(), Field.Store.NO));
+        if (filename != null) {
+            // "q3-report.pdf" is one token to the analyzer; split it so "report" matches
+            document.add(new TextField(FILENAME, filename.replaceAll("[._\\-]+", " "), Field.Store.NO));
+        }
+        document.add(new Field(CONTENT, text, CONTENT_TYPE));
+        Partition partition = partition(userId);
+        partition.writer().updateDocument(new Term(ID, fileId.toString()), document);
+        partition.changed().set(true);
+    }
+
+    public void remove(UUID userId, UUID fileId) throws IOException {
+        Partition partition = partition(userId);
+        partition.writer().deleteDocuments(new Term(ID, fileId.toString()));
+        partition.changed().set(true);
+    }
+
+    /**
+     * Makes the changes so far durable and searchable
+     */
+    public void commit() throws IOException {
+        for (Partition partition : partitions) {
+            if (partition.changed().getAndSet(false)) {
+                try {
+                    partition.writer().commit();
+                    partition.searchers().maybeRefresh();
+                } catch (IOException e) {
+                    partition.changed().set(true);
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * The user's documents matching {@code text} (words, "phrases", +, -, |
+     * and * as in Lucene's simple query syntax), best first, with the passages
+     * around the matches as HTML-escaped snippets, matches in {@code <mark>}
+     */
+    public Hits search(UUID userId, String text, int offset, int limit) throws IOException {
+        Query matches = new SimpleQueryParser(analyzer, Map.of(CONTENT, 1f, FILENAME, 2f)).parse(text);
+        Query query = new BooleanQuery.Builder()
+                .add(matches, BooleanClause.Occur.MUST)
+                .add(new TermQuery(new Term(USER, userId.toString())), BooleanClause.Occur.FILTER)
+                .build();
+
+        SearcherManager searchers = partition(userId).searchers();
+        IndexSearcher searcher = searchers.acquire();
+        try {
+            int total = searcher.count(query);
+            TopDocs top = searcher.search(query, offset + limit);
+            ScoreDoc[] page = Arrays.copyOfRange(top.scoreDocs, Math.min(offset, top.scoreDocs.length),
+                    top.scoreDocs.length);
+            if (page.length == 0) {
+                return new Hits(total, List.of());
+            }
+            String[] snippets = UnifiedHighlighter.builder(searcher, analyzer)
+                    .withMaxLength(SNIPPET_SCAN_CHARS)
+                    .withFormatter(new DefaultPassageFormatter("<mark>", "</mark>", " … ", true))
+                    .build()
+                    .highlight(CONTENT, query, new TopDocs(top.totalHits, page), SNIPPET_PASSAGES);
+
+            StoredFields storedFields = searcher.storedFields();
+            List<Hit> hits = new ArrayList<>(page.length);
+            for (int i = 0; i < page.length; i++) {
+                String fileId = storedFields.document(page[i].doc, Set.of(ID)).get(ID);
+                // No snippet when only the filename matched
+                hits.add(new Hit(UUID.fromString(fileId), snippets[i] != null ? snippets[i].strip() : null));
+            }
+            return new Hits(total, hits);
+        } finally {
+            searchers.release(searcher);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (Partition partition : partitions) {
+            try {
+                partition.searchers().close();
+                // Commits whatever was added since the last commit
+                partition.writer().close();
+                partition.directory().close();
+            } catch (IOException e) {
+                log.warn("Could not close content index partition: {}", e.getMessage());
+            }
+        }
+    }
+
+    private Partition partition(UUID userId) {
+        if (partitions.length == 0) {
+            throw new IllegalStateException("Content search is disabled");
+        }
+        return partitions[Math.floorMod(userId.hashCode(), partitions.length)];
+    }
+
+    // The id in the index's directory, made up when there is none
+    private static UUID readId(Path root) throws IOException {
+        Path file = root.resolve(ID_FILE);
+        if (Files.exists(file)) {
+            return UUID.fromString(Files.readString(file).strip());
+        }
+        UUID id = UUID.randomUUID();
+        Path temp = root.resolve(ID_FILE + ".tmp");
+        Files.deleteIfExists(temp);
+        Files.writeString(PrivateFiles.createFile(temp), id.toString());
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+        return id;
+    }
+
+    // True when the index is new: there was none, or it was built with a different
+    // number of partitions and is deleted, since users would map to other partitions
+    private static boolean prepare(Path root, int count) throws IOException {
+        List<Path> existing;
+        try (Stream<Path> children = Files.list(root)) {
+            existing = children.filter(path -> path.getFileName().toString().startsWith("partition-")).toList();
+        }
+        boolean complete = existing.size() == count;
+        for (Path path : existing) {
+            try (Directory directory = FSDirectory.open(path)) {
+                complete &= DirectoryReader.indexExists(directory);
+            }
+        }
+        if (complete) {
+            return false;
+        }
+        if (!existing.isEmpty()) {
+            log.warn("Content index in {} has {} partitions, not {}; rebuilding it", root, existing.size(), count);
+        }
+        for (Path path : existing) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.delete(file);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,405 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ContentSearchProperties;
+import com.rdp.backenddrivex.dto.response.ContentSearchResponse;
+import com.rdp.backenddrivex.dto.response.FileResponse;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.TextIndexStatus;
+import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.event.FileUploadedEvent;
+import com.rdp.backenddrivex.exception.BadRequestException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.repository.FileRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.exception.WriteLimitReachedException;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.apache.tika.parser.txt.TXTParser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.ContentHandlerDecorator;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Extracts the text of uploaded documents (PDF, Office, text, JSON, XML) with
+ * Tika and adds it to the {@link ContentIndex}, on workers of their own. Like
+ * PDF previews, each document is copied to a temp file first, PDFBox's heap
+ * is capped, and extraction gives up after the time limit, keeping only the
+ * first {@code maxChars} characters of text.
+ *
+ * <p>The index is node-local: each node running the workers keeps its own
+ * and indexes every document into it, the ones uploaded to it straight away
+ * and the others through its backfill job. What an index holds is recorded
+ * per index ({@link ContentIndex#id()}), not on the file: a document is
+ * recorded as INDEXED only once the index has committed it, so after a crash
+ * before the commit it has no record and the backfill job queues it again.
+ * Documents deleted through another node are removed by the same job.
+ */
+@Slf4j
+@Service
+public class ContentIndexService {
+
+    private static final int MAX_QUERY_LENGTH = 200;
+    private static final int MAX_PAGE_SIZE = 100;
+    // Deepest result a page may reach; Lucene collects every hit before it
+    private static final int MAX_RESULT_WINDOW = 10_000;
+    // Ids per status update, within Postgres' bind parameter limit
+    private static final int STATUS_BATCH = 1000;
+
+    private record Job(UUID fileId, UUID userId, String storagePath, String filename, String mimeType, long sizeBytes,
+                       String contentEncoding, long storageSize) {
+    }
+
+    private final ContentIndex contentIndex;
+    private final SupabaseService supabaseService;
+    private final FileRepository fileRepository;
+    private final ContentSearchProperties properties;
+    private final DriveXMetrics metrics;
+    private final Parser parser = new AutoDetectParser();
+    private final ThreadPoolExecutor workers;
+    // Files queued, being extracted or waiting for a commit, so the backfill job never queues one twice
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+    // Files added to the index since its last commit
+    private final Queue<UUID> uncommitted = new ConcurrentLinkedQueue<>();
+
+    public ContentIndexService(ContentIndex contentIndex, SupabaseService supabaseService,
+                               FileRepository fileRepository, ContentSearchProperties properties,
+                               DriveXMetrics metrics, MeterRegistry meterRegistry) {
+        this.contentIndex = contentIndex;
+        this.supabaseService = supabaseService;
+        this.fileRepository = fileRepository;
+        this.properties = properties;
+        this.metrics = metrics;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "content-index-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("drivex.content.index.queued", workers, executor -> executor.getQueue().size())
+                .description("Documents waiting for a content index worker")
+                .register(meterRegistry);
+    }
+
+    public boolean shouldIndex(String mimeType) {
+        return properties.isEnabled() && "document".equals(File.kindOf(mimeType));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onReady() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        fileRepository.touchTextIndex(contentIndex.id(), LocalDateTime.now());
+        if (contentIndex.wasCreated()) {
+            // Only this node's index is new; the other nodes' records stand
+            int cleared = fileRepository.clearTextIndexRecords(contentIndex.id());
+            if (cleared > 0) {
+                log.info("Content index is new; {} document(s) will be indexed again by the backfill job", cleared);
+            }
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFileUploaded(FileUploadedEvent event) {
+        if (shouldIndex(event.mimeType())) {
+            submit(new Job(event.fileId(), event.userId(), event.storagePath(), event.filename(), event.mimeType(),
+                    event.sizeBytes(), event.contentEncoding(), event.storageSize()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.content-search.backfill-interval:PT1M}")
+    public void backfill() {
+        if (!properties.isEnabled() || !properties.isBackfillEnabled()) {
+            return;
+        }
+        UUID indexId = contentIndex.id();
+        LocalDateTime now = LocalDateTime.now();
+        fileRepository.touchTextIndex(indexId, now);
+        int forgotten = fileRepository.forgetTextIndexes(now.minus(properties.getForgetIndexAfter()));
+        if (forgotten > 0) {
+            log.info("Forgot {} content index(es) of nodes not seen for {}", forgotten,
+                    properties.getForgetIndexAfter());
+        }
+
+        List<File> deleted = fileRepository.findDeletedInTextIndex(indexId, properties.getBackfillBatchSize());
+        for (File file : deleted) {
+            removeFromIndex(file);
+        }
+        if (!deleted.isEmpty()) {
+            fileRepository.deleteTextIndexRecords(indexId, deleted.stream().map(File::getId).toList());
+            log.info("Removed {} document(s) deleted through other nodes from the content index", deleted.size());
+        }
+
+        int room = workers.getQueue().remainingCapacity();
+        if (room == 0) {
+            return;
+        }
+        List<File> backlog = fileRepository.findTextIndexBacklog(indexId,
+                Math.min(room, properties.getBackfillBatchSize()));
+        int queued = 0;
+        for (File file : backlog) {
+            if (submit(new Job(file.getId(), file.getUser().getId(), file.getStoragePath(), file.getFilename(),
+                    file.getMimeType(), file.getSizeBytes(), file.getContentEncoding(), file.getStorageSize()))) {
+                queued++;
+            }
+        }
+        if (queued > 0) {
+            log.info("Queued {} document(s) for content index backfill", queued);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.content-search.commit-interval:PT5S}")
+    public void commit() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        List<UUID> committed = new ArrayList<>();
+        for (UUID fileId; (fileId = uncommitted.poll()) != null; ) {
+            committed.add(fileId);
+        }
+        try {
+            contentIndex.commit();
+        } catch (IOException e) {
+            uncommitted.addAll(committed);
+            log.warn("Could not commit content index: {}", e.getMessage());
+            return;
+        }
+        try {
+            for (int i = 0; i < committed.size(); i += STATUS_BATCH) {
+                fileRepository.recordTextIndexStatus(contentIndex.id(),
+                        committed.subList(i, Math.min(committed.size(), i + STATUS_BATCH)),
+                        TextIndexStatus.INDEXED.name());
+            }
+        } catch (Exception e) {
+            // They stay without a record and are indexed again by the backfill job
+            log.warn("Could not record {} indexed document(s): {}", committed.size(), e.getMessage());
+        } finally {
+            committed.forEach(inFlight::remove);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued documents have no record yet and are picked up again after a restart
+        workers.shutdownNow();
+    }
+
+    /**
+     * Drops a deleted file from this node's index, and its record with the
+     * caller's transaction, so restoring it queues it again; the other nodes
+     * drop it in their backfill job
+     */
+    public void remove(File file) {
+        if (!shouldIndex(file.getMimeType())) {
+            return;
+        }
+        removeFromIndex(file);
+        fileRepository.deleteTextIndexRecords(contentIndex.id(), List.of(file.getId()));
+    }
+
+    @Transactional(readOnly = true)
+    public ContentSearchResponse search(User user, String query, int page, int size) {
+        if (!properties.isEnabled()) {
+            throw new BadRequestException("Content search is disabled");
+        }
+        if (query == null || query.isBlank()) {
+            throw new BadRequestException("Search query is required");
+        }
+        if (query.length() > MAX_QUERY_LENGTH) {
+            throw new BadRequestException("Search query must be at most " + MAX_QUERY_LENGTH + " characters");
+        }
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Invalid page or size");
+        }
+        if ((long) page * size + size > MAX_RESULT_WINDOW) {
+            throw new BadRequestException("Results beyond the first " + MAX_RESULT_WINDOW + " cannot be paged to");
+        }
+
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        ContentIndex.Hits hits;
+        try {
+            hits = contentIndex.search(user.getId(), query.strip(), page * size, size);
+            outcome = DriveXMetrics.SUCCESS;
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not search content index", e);
+        } finally {
+            metrics.stop(sample, "drivex.content.index", "search", outcome);
+        }
+
+        Map<UUID, File> files = new HashMap<>();
+        List<UUID> ids = hits.hits().stream().map(ContentIndex.Hit::fileId).toList();
+        for (File file : fileRepository.findByIdInAndUserAndNotDeleted(ids, user)) {
+            files.put(file.getId(), file);
+        }
+        List<ContentSearchResponse.Hit> results = new ArrayList<>();
+        for (ContentIndex.Hit hit : hits.hits()) {
+            File file = files.get(hit.fileId());
+            // Deleted since it was indexed
+            if (file != null) {
+                results.add(new ContentSearchResponse.Hit(new FileResponse(file), hit.snippet()));
+            }
+        }
+        return new ContentSearchResponse(page, size, hits.total(), query, results);
+    }
+
+    private void removeFromIndex(File file) {
+        try {
+            contentIndex.remove(file.getUser().getId(), file.getId());
+        } catch (IOException e) {
+            log.warn("Could not remove {} from content index: {}", file.getId(), e.getMessage());
+        }
+    }
+
+    private boolean submit(Job job) {
+        if (!inFlight.add(job.fileId())) {
+            return false;
+        }
+        try {
+            workers.execute(() -> index(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(job.fileId());
+            log.debug("Content index queue full, leaving {} to the backfill job", job.fileId());
+            return false;
+        }
+    }
+
+    private void index(Job job) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            contentIndex.index(job.userId(), job.fileId(), job.filename(), extract(job));
+            // Stays in flight until the commit records it
+            uncommitted.add(job.fileId());
+            outcome = DriveXMetrics.SUCCESS;
+        } catch (Exception e) {
+            log.warn("Could not index text of {} ({}): {}", job.fileId(), job.mimeType(), e.getMessage());
+            try {
+                fileRepository.recordTextIndexStatus(contentIndex.id(), List.of(job.fileId()),
+                        TextIndexStatus.FAILED.name());
+            } catch (Exception recordFailure) {
+                log.warn("Could not record content index failure for {}: {}", job.fileId(), recordFailure.getMessage());
+            }
+            inFlight.remove(job.fileId());
+        } finally {
+            metrics.stop(sample, "drivex.content.index", "extract", outcome);
+        }
+    }
+
+    private String extract(Job job) throws IOException, TikaException {
+        if (job.sizeBytes() > properties.getMaxFileSize().toBytes()) {
+            throw new IOException("Document is " + job.sizeBytes() + " bytes, over the size limit");
+        }
+        long deadline = System.nanoTime() + properties.getExtractTimeout().toNanos();
+        Path document = Files.createTempFile("drivex-content-", ".tmp");
+        try {
+            if (job.storageSize() > 0) {
+                try (InputStream in = ContentCompression.decode(
+                        supabaseService.openFile(job.storagePath(), 0, job.storageSize() - 1), job.contentEncoding())) {
+                    Files.copy(in, document, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+
+            PDFParserConfig pdfConfig = new PDFParserConfig();
+            pdfConfig.setMaxMainMemoryBytes(properties.getMaxPdfMemory().toBytes());
+            pdfConfig.setOcrStrategy(PDFParserConfig.OCR_STRATEGY.NO_OCR);
+            pdfConfig.setExtractInlineImages(false);
+            ParseContext context = new ParseContext();
+            context.set(PDFParserConfig.class, pdfConfig);
+            Metadata metadata = new Metadata();
+            metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, job.filename());
+            metadata.set(Metadata.CONTENT_TYPE, job.mimeType());
+
+            WriteOutContentHandler text = new WriteOutContentHandler(properties.getMaxChars());
+            ContentHandler handler = new DeadlineContentHandler(new BodyContentHandler(text), deadline);
+            try (InputStream in = Files.newInputStream(document)) {
+                parserFor(job.mimeType()).parse(in, handler, metadata, context);
+            } catch (SAXException e) {
+                // Past the character limit: index the text so far
+                if (!WriteLimitReachedException.isWriteLimitReached(e)) {
+                    throw new TikaException("Could not extract text", e);
+                }
+            }
+            return text.toString();
+        } finally {
+            Files.deleteIfExists(document);
+        }
+    }
+
+    // Tika has no JSON parser, so JSON is read as plain text
+    private Parser parserFor(String mimeType) {
+        return mimeType != null && mimeType.toLowerCase().contains("json") ? new TXTParser() : parser;
+    }
+
+    // Tika cannot be interrupted, so the deadline is checked as text and elements arrive
+    private static final class DeadlineContentHandler extends ContentHandlerDecorator {
+
+        private final long deadline;
+
+        DeadlineContentHandler(ContentHandler handler, long deadline) {
+            super(handler);
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String name, Attributes atts) throws SAXException {
+            checkDeadline();
+            super.startElement(uri, localName, name, atts);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) throws SAXException {
+            checkDeadline();
+            super.characters(ch, start, length);
+        }
+
+        private void checkDeadline() throws SAXException {
+            if (System.nanoTime() - deadline > 0) {
+                throw new SAXException("Extraction took longer than the time limit");
+            }
+        }
+    }
+}
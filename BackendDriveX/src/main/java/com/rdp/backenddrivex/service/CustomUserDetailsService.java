@@ -1,6 +1,7 @@
 package com.rdp.backenddrivex.service;
 
 import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.observability.jfr.UserLookupEvent;
 import com.rdp.backenddrivex.repository.UserRepository;
 import com.rdp.backenddrivex.security.UserPrincipal;
 import lombok.RequiredArgsConstructor;
@@ -21,16 +22,24 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        User user = userRepository.findByEmail(email)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
+        UserLookupEvent event = UserLookupEvent.start("email");
+        User user = userRepository.findByEmail(email).orElse(null);
+        event.finish(user != null ? user.getId() : null);
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with email: " + email);
+        }
 
         return UserPrincipal.create(user);
     }
 
     @Transactional
     public UserDetails loadUserById(UUID id) {
-        User user = userRepository.findById(id)
-                .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
+        UserLookupEvent event = UserLookupEvent.start("id");
+        User user = userRepository.findById(id).orElse(null);
+        event.finish(user != null ? user.getId() : null);
+        if (user == null) {
+            throw new UsernameNotFoundException("User not found with id: " + id);
+        }
 
         return UserPrincipal.create(user);
     }
@@ -0,0 +1,81 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ResetTokenProperties;
+import com.rdp.backenddrivex.entity.PasswordResetToken;
+import com.rdp.backenddrivex.repository.PasswordResetTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+
+/**
+ * Token store shared by every node through the database. Only a SHA-256 hash
+ * of each token is stored, and expired rows are removed by a batched sweep.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.reset-token", name = "store", havingValue = "database")
+public class DatabaseResetTokenStore implements ResetTokenStore {
+
+    private final PasswordResetTokenRepository tokenRepository;
+    private final ResetTokenProperties properties;
+
+    @Override
+    @Transactional
+    public void save(String token, String email, Duration ttl) {
+        tokenRepository.save(new PasswordResetToken(hash(token), email, LocalDateTime.now().plus(ttl)));
+    }
+
+    @Override
+    @Transactional
+    public Optional<String> consume(String token) {
+        String tokenHash = hash(token);
+        Optional<PasswordResetToken> stored = tokenRepository.findById(tokenHash);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+
+        // The row delete decides the winner when two nodes consume the same token
+        if (tokenRepository.deleteByTokenHash(tokenHash) == 0 || stored.get().isExpired()) {
+            return Optional.empty();
+        }
+        return Optional.of(stored.get().getEmail());
+    }
+
+    // Each batch commits on its own so the sweep never holds locks for long
+    @Scheduled(fixedDelayString = "${app.reset-token.sweep.interval:PT1M}")
+    public void sweepExpired() {
+        int batchSize = properties.getSweep().getBatchSize();
+        LocalDateTime cutoff = LocalDateTime.now();
+        int total = 0;
+        int removed;
+        do {
+            removed = tokenRepository.deleteExpiredBatch(cutoff, batchSize);
+            total += removed;
+        } while (removed == batchSize);
+
+        if (total > 0) {
+            log.debug("Removed {} expired password reset tokens", total);
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.rdp.backenddrivex.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rdp.backenddrivex.config.DuplicateProperties;
+import com.rdp.backenddrivex.dto.response.DuplicateClustersResponse;
+import com.rdp.backenddrivex.dto.response.FileResponse;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.exception.BadRequestException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.repository.FileRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Groups a user's near-duplicate images (burst shots, re-edited or re-saved
+ * copies) by the perceptual hashes recorded with their thumbnails. Each user's
+ * hashes are loaded into a {@link HammingIndex} on first use and kept in a
+ * bounded cache; recording a hash, deleting or restoring a file drops the
+ * user's index on this node, and the next request rebuilds it. Other nodes
+ * rebuild theirs once it reaches {@code index-max-age}; until then they miss
+ * new images, while deleted ones are already left out of their responses.
+ *
+ * <p>Images whose hashes are within the distance are linked, and clusters are
+ * the connected groups, so a burst can chain further apart end to end.
+ */
+@Service
+public class DuplicateService {
+
+    private static final class UserIndex {
+
+        final HammingIndex index;
+        // Distance -> clusters as entry numbers in the index
+        final Map<Integer, List<int[]>> clusters = new ConcurrentHashMap<>();
+
+        UserIndex(HammingIndex index) {
+            this.index = index;
+        }
+    }
+
+    private final FileRepository fileRepository;
+    private final DuplicateProperties properties;
+    private final DriveXMetrics metrics;
+    private final Cache<UUID, UserIndex> indexes;
+
+    public DuplicateService(FileRepository fileRepository, DuplicateProperties properties, DriveXMetrics metrics,
+                            MeterRegistry meterRegistry) {
+        this.fileRepository = fileRepository;
+        this.properties = properties;
+        this.metrics = metrics;
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxIndexedHashes())
+                .weigher((UUID userId, UserIndex userIndex) -> Math.max(1, userIndex.index.size()))
+                // Not after access: a user polling the page would keep a stale index alive forever
+                .expireAfterWrite(properties.getIndexMaxAge())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, indexes, "drivex.duplicates.indexes");
+    }
+
+    // On the primary: thumbnail workers record hashes there, and an index built
+    // from a lagging replica would be cached as if it were current
+    @Transactional
+    public DuplicateClustersResponse findDuplicates(User user, Integer distance, int page, int size) {
+        int maxDistance = distance != null ? distance : properties.getDefaultDistance();
+        if (maxDistance < 0 || maxDistance > HammingIndex.MAX_DISTANCE) {
+            throw new BadRequestException("Distance must be between 0 and " + HammingIndex.MAX_DISTANCE);
+        }
+        if (page < 0 || size < 1) {
+            throw new BadRequestException("Invalid page or size");
+        }
+
+        UserIndex userIndex = indexes.get(user.getId(), userId -> load(user));
+        List<int[]> clusters = userIndex.clusters.computeIfAbsent(maxDistance,
+                key -> cluster(userIndex.index, maxDistance));
+
+        int from = (int) Math.min(clusters.size(), (long) page * size);
+        List<int[]> pageClusters = clusters.subList(from, (int) Math.min(clusters.size(), (long) from + size));
+        List<UUID> ids = new ArrayList<>();
+        for (int[] cluster : pageClusters) {
+            for (int entry : cluster) {
+                ids.add(userIndex.index.fileId(entry));
+            }
+        }
+        Map<UUID, File> files = new HashMap<>();
+        for (File file : fileRepository.findAllById(ids)) {
+            files.put(file.getId(), file);
+        }
+
+        List<List<FileResponse>> responses = new ArrayList<>();
+        for (int[] cluster : pageClusters) {
+            List<FileResponse> members = new ArrayList<>();
+            for (int entry : cluster) {
+                File file = files.get(userIndex.index.fileId(entry));
+                // The index may predate a deletion still being committed
+                if (file != null && !file.getIsDeleted()) {
+                    members.add(new FileResponse(file));
+                }
+            }
+            if (members.size() > 1) {
+                responses.add(members);
+            }
+        }
+        return new DuplicateClustersResponse(page, size, clusters.size(), maxDistance, responses);
+    }
+
+    /**
+     * Drops the user's index after their hashes change; the next request
+     * rebuilds it
+     */
+    public void invalidate(UUID userId) {
+        indexes.invalidate(userId);
+    }
+
+    private UserIndex load(User user) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            List<FileRepository.HashedFile> rows = fileRepository.findPerceptualHashes(user);
+            long[] hashes = new long[rows.size()];
+            UUID[] fileIds = new UUID[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                hashes[i] = rows.get(i).getPerceptualHash();
+                fileIds[i] = rows.get(i).getId();
+            }
+            UserIndex userIndex = new UserIndex(new HammingIndex(hashes, fileIds));
+            outcome = DriveXMetrics.SUCCESS;
+            return userIndex;
+        } finally {
+            metrics.stop(sample, "drivex.duplicates", "index", outcome);
+        }
+    }
+
+    private List<int[]> cluster(HammingIndex index, int maxDistance) {
+        Timer.Sample sample = metrics.start();
+        // Union-find over the entries, linking each to every match after it
+        int[] parent = new int[index.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < parent.length; i++) {
+            int entry = i;
+            index.search(index.hash(entry), maxDistance, match -> {
+                if (match > entry) {
+                    int a = root(parent, entry);
+                    int b = root(parent, match);
+                    if (a != b) {
+                        parent[Math.max(a, b)] = Math.min(a, b);
+                    }
+                }
+            });
+        }
+
+        int[] sizes = new int[parent.length];
+        for (int i = 0; i < parent.length; i++) {
+            sizes[root(parent, i)]++;
+        }
+        Map<Integer, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < parent.length; i++) {
+            int root = root(parent, i);
+            if (sizes[root] > 1) {
+                groups.computeIfAbsent(root, key -> new ArrayList<>(sizes[root])).add(i);
+            }
+        }
+        // UUIDv7 ids sort by upload time
+        Comparator<Integer> newestFirst = Comparator.comparing(index::fileId, Comparator.reverseOrder());
+        List<int[]> clusters = new ArrayList<>();
+        for (List<Integer> group : groups.values()) {
+            group.sort(newestFirst);
+            clusters.add(group.stream().mapToInt(Integer::intValue).toArray());
+        }
+        clusters.sort(Comparator.<int[]>comparingInt(cluster -> cluster.length).reversed()
+                .thenComparing(cluster -> index.fileId(cluster[0]), Comparator.reverseOrder()));
+        metrics.stop(sample, "drivex.duplicates", "cluster", DriveXMetrics.SUCCESS);
+        return clusters;
+    }
+
+    private static int root(int[] parent, int entry) {
+        while (parent[entry] != entry) {
+            parent[entry] = parent[parent[entry]];
+            entry = parent[entry];
+        }
+        return entry;
+    }
+}
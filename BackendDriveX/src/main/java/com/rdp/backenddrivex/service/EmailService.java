@@ -1,24 +1,27 @@
 package com.rdp.backenddrivex.service;
 
+import com.rdp.backenddrivex.config.ResetTokenProperties;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.HexFormat;
+import java.util.Optional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailService {
     
-    private final JavaMailSender mailSender;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    private static final HexFormat HEX = HexFormat.of();
+    
+    private final OutboundMailQueue outboundMailQueue;
+    private final ResetTokenStore resetTokenStore;
+    private final ResetTokenProperties resetTokenProperties;
     
     @Value("${spring.mail.username:noreply@drivex.com}")
     private String fromEmail;
@@ -26,20 +29,13 @@ public class EmailService {
     @Value("${app.frontend.url:http://localhost:3000}")
     private String frontendUrl;
     
-    // Store reset tokens temporarily (in production, use Redis or database)
-    private final ConcurrentHashMap<String, String> resetTokens = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
-    
     public void sendPasswordResetEmail(String toEmail) {
         try {
             // Generate a secure reset token
             String resetToken = generateResetToken();
             
-            // Store the token with email (expires in 1 hour)
-            resetTokens.put(resetToken, toEmail);
-            
-            // Schedule token cleanup after 1 hour
-            scheduler.schedule(() -> resetTokens.remove(resetToken), 1, TimeUnit.HOURS);
+            // Store the token with email (expires in 1 hour by default)
+            resetTokenStore.save(resetToken, toEmail, resetTokenProperties.getTtl());
             
             // Create reset URL
             String resetUrl = frontendUrl + "/reset-password?token=" + resetToken;
@@ -56,9 +52,9 @@ public class EmailService {
                     message.setSubject("Password Reset Request - DriveX");
                     message.setText(emailBody);
                     
-                    // Send email
-                    mailSender.send(message);
-                    log.info("✅ Password reset email sent successfully to: {}", toEmail);
+                    // Hand off to the outbound queue - delivery happens off the request thread
+                    outboundMailQueue.enqueue(message);
+                    log.info("✅ Password reset email queued for: {}", toEmail);
                 } else {
                     throw new RuntimeException("SMTP not configured");
                 }
@@ -83,27 +79,18 @@ public class EmailService {
         }
     }
     
-    public boolean isValidResetToken(String token) {
-        return resetTokens.containsKey(token);
-    }
-    
-    public String getEmailForToken(String token) {
-        return resetTokens.get(token);
-    }
-    
-    public void consumeResetToken(String token) {
-        resetTokens.remove(token);
+    /**
+     * Removes the token and returns its email if it was still valid; only one
+     * caller ever gets the email for a given token
+     */
+    public Optional<String> consumeResetToken(String token) {
+        return resetTokenStore.consume(token);
     }
     
     private String generateResetToken() {
-        SecureRandom random = new SecureRandom();
         byte[] bytes = new byte[32];
-        random.nextBytes(bytes);
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02x", b));
-        }
-        return sb.toString();
+        RANDOM.nextBytes(bytes);
+        return HEX.formatHex(bytes);
     }
     
     private String createPasswordResetEmailBody(String resetUrl) {
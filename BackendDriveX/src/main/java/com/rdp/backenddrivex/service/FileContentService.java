@@ -0,0 +1,284 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.exception.FileStorageException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Streams a file's bytes from storage to the client. Handles conditional
+ * requests (If-None-Match, If-Modified-Since, If-Match, If-Unmodified-Since),
+ * single and multiple byte ranges, and If-Range. Each range is requested from
+ * storage as a range, so seeking in a large video only fetches what is played,
+ * and bytes are passed on as they arrive rather than held in memory.
+ *
+ * <p>Files stored compressed are sent as stored, with Content-Encoding, to
+ * clients that accept it, and decompressed on the way out for the rest and
+ * for range requests, whose ranges are of the file as uploaded.
+ */
+@Service
+@RequiredArgsConstructor
+public class FileContentService {
+
+    // Beyond this many parts the Range header is ignored; each part is a separate storage request
+    private static final int MAX_PARTS = 16;
+    private static final byte[] CRLF = "\r\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final StorageCache storageCache;
+    private final DriveXMetrics metrics;
+
+    private record ByteRange(long first, long last) {
+
+        long length() {
+            return last - first + 1;
+        }
+
+        String contentRange(long size) {
+            return "bytes " + first + "-" + last + "/" + size;
+        }
+    }
+
+    public void writeContent(File file, boolean inline, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        String encoding = file.getContentEncoding();
+        boolean passThrough = encoding != null && request.getHeader(HttpHeaders.RANGE) == null
+                && acceptsEncoding(request, encoding);
+        if (encoding != null) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+        // Uploads always get a new id and storage path, so a file's bytes never change;
+        // the compressed representation is a different set of bytes, so it gets its own tag
+        String etag = "\"" + file.getId() + (passThrough ? "-" + encoding : "") + "\"";
+        long lastModified = file.getUploadedAt() != null
+                ? file.getUploadedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        long size = file.getSizeBytes();
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        List<ByteRange> ranges = requestedRanges(request, etag, lastModified, size);
+        if (ranges != null && ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + size);
+            response.setContentLength(0);
+            return;
+        }
+
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                        .filename(file.getFilename(), StandardCharsets.UTF_8).build().toString());
+        // Uploaded HTML or SVG opened inline must not run scripts as this origin
+        response.setHeader("Content-Security-Policy", "sandbox");
+        boolean head = "HEAD".equals(request.getMethod());
+        try {
+            if (passThrough) {
+                response.setContentType(file.getMimeType());
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+                response.setContentLengthLong(file.getStorageSize());
+                if (!head) {
+                    copyStored(file, response.getOutputStream());
+                    metrics.compressionSaved("egress", file.getFileKind(), size - file.getStorageSize());
+                }
+            } else if (ranges == null) {
+                response.setContentType(file.getMimeType());
+                response.setContentLengthLong(size);
+                if (!head) {
+                    copy(file, new ByteRange(0, size - 1), response.getOutputStream());
+                }
+            } else if (ranges.size() == 1) {
+                ByteRange range = ranges.get(0);
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setContentType(file.getMimeType());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, range.contentRange(size));
+                response.setContentLengthLong(range.length());
+                if (!head) {
+                    copy(file, range, response.getOutputStream());
+                }
+            } else {
+                writeParts(file, ranges, head, response);
+            }
+        } catch (FileStorageException e) {
+            // Nothing sent yet: drop the file's headers so the error handler can answer with JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * The ranges to send, sorted and with overlapping or adjacent ones merged;
+     * null to send the whole file, empty when none of them is satisfiable
+     */
+    private List<ByteRange> requestedRanges(HttpServletRequest request, String etag, long lastModified, long size) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request, etag, lastModified)) {
+            return null;
+        }
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(header);
+        } catch (IllegalArgumentException e) {
+            // A malformed Range header is ignored, as if it had not been sent
+            return null;
+        }
+
+        List<ByteRange> satisfiable = new ArrayList<>();
+        for (HttpRange httpRange : httpRanges) {
+            long first = httpRange.getRangeStart(size);
+            long last = httpRange.getRangeEnd(size);
+            if (first < size && first <= last) {
+                satisfiable.add(new ByteRange(first, last));
+            }
+        }
+        satisfiable.sort(Comparator.comparingLong(ByteRange::first));
+
+        List<ByteRange> merged = new ArrayList<>();
+        for (ByteRange range : satisfiable) {
+            ByteRange previous = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (previous != null && range.first() <= previous.last() + 1) {
+                merged.set(merged.size() - 1, new ByteRange(previous.first(), Math.max(previous.last(), range.last())));
+            } else {
+                merged.add(range);
+            }
+        }
+        return merged.size() > MAX_PARTS ? null : merged;
+    }
+
+    // A coding listed without q=0, or a wildcard
+    private static boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        String header = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (header == null) {
+            return false;
+        }
+        for (String part : header.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim();
+            if (coding.equalsIgnoreCase(encoding) || coding.equals("*")) {
+                for (int i = 1; i < params.length; i++) {
+                    String param = params[i].trim();
+                    if (param.startsWith("q=") && param.substring(2).trim().matches("0(\\.0{0,3})?")) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // If-Range needs a strong match: the exact ETag, or the exact Last-Modified date
+    private static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return lastModified >= 0 && request.getDateHeader(HttpHeaders.IF_RANGE) == lastModified / 1000 * 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    // multipart/byteranges; the part headers are built up front so the total length can be sent
+    private void writeParts(File file, List<ByteRange> ranges, boolean head, HttpServletResponse response)
+            throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        long size = file.getSizeBytes();
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] partHeader = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + file.getMimeType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.contentRange(size) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length();
+        }
+        byte[] end = ("\r\n--" + boundary + "--").getBytes(StandardCharsets.US_ASCII);
+        contentLength += end.length + CRLF.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+        OutputStream out = response.getOutputStream();
+        for (int i = 0; i < ranges.size(); i++) {
+            out.write(partHeaders.get(i));
+            copy(file, ranges.get(i), out);
+        }
+        out.write(end);
+        out.write(CRLF);
+    }
+
+    private void copy(File file, ByteRange range, OutputStream out) throws IOException {
+        long copied;
+        if (file.getContentEncoding() == null) {
+            try (InputStream in = storageCache.openFile(file.getStoragePath(), file.getSizeBytes(), range.first(), range.last())) {
+                copied = in.transferTo(out);
+            }
+        } else {
+            // Compressed files are decompressed from the start; they are text, and ranges of them are rare
+            long storageSize = file.getStorageSize();
+            try (InputStream in = ContentCompression.decode(
+                    storageCache.openFile(file.getStoragePath(), storageSize, 0, storageSize - 1),
+                    file.getContentEncoding())) {
+                in.skipNBytes(range.first());
+                copied = transfer(in, out, range.length());
+            }
+        }
+        if (copied != range.length()) {
+            // Throwing aborts the connection, so the client sees a failed download rather than a short one
+            throw new IOException("Storage sent " + copied + " of " + range.length() + " bytes for "
+                    + file.getStoragePath());
+        }
+    }
+
+    private void copyStored(File file, OutputStream out) throws IOException {
+        long storageSize = file.getStorageSize();
+        try (InputStream in = storageCache.openFile(file.getStoragePath(), storageSize, 0, storageSize - 1)) {
+            long copied = in.transferTo(out);
+            if (copied != storageSize) {
+                throw new IOException("Storage sent " + copied + " of " + storageSize + " bytes for "
+                        + file.getStoragePath());
+            }
+        }
+    }
+
+    // Like transferTo, but stops after length bytes
+    private static long transfer(InputStream in, OutputStream out, long length) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        long copied = 0;
+        int read;
+        while (copied < length && (read = in.read(buffer, 0, (int) Math.min(buffer.length, length - copied))) >= 0) {
+            out.write(buffer, 0, read);
+            copied += read;
+        }
+        return copied;
+    }
+}
@@ -4,15 +4,22 @@ import com.rdp.backenddrivex.config.FileUploadProperties;
 import com.rdp.backenddrivex.dto.response.FileListResponse;
 import com.rdp.backenddrivex.dto.response.FileResponse;
 import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.ThumbnailStatus;
 import com.rdp.backenddrivex.entity.User;
+import com.rdp.backenddrivex.event.FileUploadedEvent;
 import com.rdp.backenddrivex.exception.BadRequestException;
 import com.rdp.backenddrivex.exception.FileStorageException;
 import com.rdp.backenddrivex.exception.ResourceNotFoundException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.observability.jfr.UploadStageEvent;
 import com.rdp.backenddrivex.repository.FileRepository;
 import com.fasterxml.uuid.Generators;
+import io.micrometer.observation.annotation.Observed;
 import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -22,61 +29,157 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Observed(name = "drivex.files.service")
 public class FileService {
 
     private final FileRepository fileRepository;
     private final SupabaseService supabaseService;
     private final FileUploadProperties fileUploadProperties;
+    private final DriveXMetrics metrics;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ImageMetadataService imageMetadataService;
+    private final DuplicateService duplicateService;
+    private final StorageCache storageCache;
+    private final ContentCompression contentCompression;
+    private final ContentIndexService contentIndexService;
+    private final ThumbnailService thumbnailService;
     private final Tika tika = new Tika();
 
+    private static final String[] DANGEROUS_EXTENSIONS = {".exe", ".bat", ".cmd", ".com", ".scr", ".pif",
+            ".msi", ".dll", ".sh", ".ps1", ".vbs", ".js", ".jar"};
+
     @Transactional
     public FileResponse uploadFile(MultipartFile file, User user, String description) {
         log.info("Starting file upload for user: {}, filename: {}", user.getName(), file.getOriginalFilename());
 
-        // Validate file
-        validateFile(file);
-
+        Timer.Sample uploadSample = metrics.start();
+        metrics.uploadStarted();
+        String outcome = "rejected";
+        String kind = "other";
         try {
-            // Generate unique filename and storage path using user's email
-            String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
-            String fileExtension = getFileExtension(originalFilename);
-            String uniqueFilename = Generators.timeBasedGenerator().generate().toString() + fileExtension;
-            String storagePath = user.getEmail() + "/" + uniqueFilename;
-
-            // Detect MIME type
+            // Detect MIME type once; validation and the saved metadata share the result
+            UploadStageEvent detectStage = UploadStageEvent.start("detect", user.getId(), file.getSize());
             String mimeType = detectMimeType(file);
-            
-            // Upload to Supabase
-            String publicUrl = supabaseService.uploadFile(file, storagePath);
-
-            // Save file metadata to database
-            File fileEntity = new File();
-            fileEntity.setUser(user);
-            fileEntity.setFilename(originalFilename);
-            fileEntity.setStoragePath(storagePath);
-            fileEntity.setUrl(publicUrl);
-            fileEntity.setMimeType(mimeType);
-            fileEntity.setSizeBytes(file.getSize());
-            fileEntity.setDescription(description);
-
-            File savedFile = fileRepository.save(fileEntity);
-            
-            log.info("File uploaded successfully. ID: {}, Storage Path: {}", savedFile.getId(), storagePath);
-            
-            return new FileResponse(savedFile);
+            detectStage.finish(mimeType, true);
+
+            // Validate file
+            UploadStageEvent validateStage = UploadStageEvent.start("validate", user.getId(), file.getSize());
+            boolean validated = false;
+            try {
+                validateFile(file, mimeType);
+                validated = true;
+            } finally {
+                validateStage.finish(mimeType, validated);
+            }
 
-        } catch (Exception e) {
-            log.error("Error uploading file: {}", e.getMessage());
-            throw new FileStorageException("Could not upload file", e);
+            try {
+                // Generate unique filename and storage path using user's email
+                String originalFilename = StringUtils.cleanPath(file.getOriginalFilename());
+                String fileExtension = getFileExtension(originalFilename);
+                String uniqueFilename = Generators.timeBasedGenerator().generate().toString() + fileExtension;
+                String storagePath = user.getEmail() + "/" + uniqueFilename;
+
+                // Compressible files are compressed on their way to storage, so this stage includes their upload
+                UploadStageEvent compressStage = UploadStageEvent.start("compress", user.getId(), file.getSize());
+                ContentCompression.Compressed compressed = null;
+                try {
+                    compressed = contentCompression.upload(file, mimeType, storagePath);
+                } finally {
+                    compressStage.finish(mimeType, compressed != null);
+                }
+
+                // Upload to Supabase
+                String publicUrl;
+                if (compressed != null) {
+                    publicUrl = compressed.url();
+                } else {
+                    UploadStageEvent putStage = UploadStageEvent.start("storage-put", user.getId(), file.getSize());
+                    boolean stored = false;
+                    try {
+                        publicUrl = supabaseService.uploadFile(file, storagePath);
+                        stored = true;
+                    } finally {
+                        putStage.finish(mimeType, stored);
+                    }
+                }
+
+                // Save file metadata to database
+                File fileEntity = new File();
+                fileEntity.setUser(user);
+                fileEntity.setFilename(originalFilename);
+                fileEntity.setStoragePath(storagePath);
+                fileEntity.setUrl(publicUrl);
+                fileEntity.setMimeType(mimeType);
+                fileEntity.setSizeBytes(file.getSize());
+                fileEntity.setDescription(description);
+                if (compressed != null) {
+                    fileEntity.setContentEncoding(compressed.encoding());
+                    fileEntity.setStoredSizeBytes(compressed.storedSize());
+                }
+                if (ThumbnailService.isImage(mimeType) || PdfPreviewService.isPdf(mimeType)) {
+                    fileEntity.setThumbnailStatus(ThumbnailStatus.PENDING);
+                }
+                if (ThumbnailService.isImage(mimeType)) {
+                    ImageMetadataService.ImageMetadata metadata = imageMetadataService.read(file);
+                    fileEntity.setWidth(metadata.width());
+                    fileEntity.setHeight(metadata.height());
+                    fileEntity.setOrientation(metadata.orientation());
+                    fileEntity.setTakenAt(metadata.takenAt());
+                }
+
+                UploadStageEvent saveStage = UploadStageEvent.start("db-save", user.getId(), file.getSize());
+                File savedFile = null;
+                try {
+                    savedFile = saveFile(fileEntity);
+                } finally {
+                    saveStage.finish(mimeType, savedFile != null);
+                }
+                
+                log.info("File uploaded successfully. ID: {}, Storage Path: {}", savedFile.getId(), storagePath);
+                // Thumbnails and other post-processing start once this transaction commits
+                eventPublisher.publishEvent(new FileUploadedEvent(savedFile.getId(), user.getId(), storagePath,
+                        mimeType, savedFile.getSizeBytes(), savedFile.getOrientation(), savedFile.getFilename(),
+                        savedFile.getContentEncoding(), savedFile.getStorageSize()));
+                
+                outcome = DriveXMetrics.SUCCESS;
+                kind = savedFile.getFileKind();
+                if (compressed != null) {
+                    metrics.compressionSaved("storage", kind, savedFile.getSizeBytes() - savedFile.getStoredSizeBytes());
+                }
+                return new FileResponse(savedFile);
+
+            } catch (Exception e) {
+                outcome = DriveXMetrics.ERROR;
+                log.error("Error uploading file: {}", e.getMessage());
+                throw new FileStorageException("Could not upload file", e);
+            }
+        } finally {
+            metrics.stop(uploadSample, "drivex.upload", "upload", outcome);
+            metrics.uploadFinished(file.getSize(), kind, outcome);
         }
     }
 
+    private File saveFile(File fileEntity) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            // Flush so the timer covers the INSERT rather than just the persist call
+            File savedFile = fileRepository.saveAndFlush(fileEntity);
+            outcome = DriveXMetrics.SUCCESS;
+            return savedFile;
+        } finally {
+            metrics.stop(sample, "drivex.db.save", "file", outcome);
+        }
+    }
+
+    @Transactional(readOnly = true)
     public FileListResponse getFiles(User user, int page, int size, String type, String search) {
         log.info("Getting files for user: {}, page: {}, size: {}, type: {}, search: {}", 
                 user.getName(), page, size, type, search);
@@ -84,12 +187,19 @@ public class FileService {
         Pageable pageable = PageRequest.of(page, size);
         Page<File> filePage;
 
-        if (StringUtils.hasText(search)) {
-            filePage = fileRepository.findByUserAndFilenameContainingAndNotDeleted(user, search, pageable);
-        } else if (StringUtils.hasText(type) && !type.equals("all")) {
-            filePage = getFilesByType(user, type, pageable);
-        } else {
-            filePage = fileRepository.findByUserAndNotDeleted(user, pageable);
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            if (StringUtils.hasText(search)) {
+                filePage = fileRepository.findByUserAndFilenameContainingAndNotDeleted(user, search, pageable);
+            } else if (StringUtils.hasText(type) && !type.equals("all")) {
+                filePage = getFilesByType(user, type, pageable);
+            } else {
+                filePage = fileRepository.findByUserAndNotDeleted(user, pageable);
+            }
+            outcome = DriveXMetrics.SUCCESS;
+        } finally {
+            metrics.stop(sample, "drivex.files.list", listOperation(type, search), outcome);
         }
 
         List<FileResponse> fileResponses = filePage.getContent().stream()
@@ -110,6 +220,21 @@ public class FileService {
         };
     }
 
+    // Bounded tag values only - type and search come straight from the request
+    private String listOperation(String type, String search) {
+        if (StringUtils.hasText(search)) {
+            return "search";
+        }
+        if (type == null) {
+            return "all";
+        }
+        return switch (type.toLowerCase()) {
+            case "image", "video", "audio", "document", "other" -> type.toLowerCase();
+            default -> "all";
+        };
+    }
+
+    @Transactional(readOnly = true)
     public FileResponse getFile(UUID fileId, User user) {
         File file = fileRepository.findByIdAndUserAndNotDeleted(fileId, user)
                 .orElseThrow(() -> new ResourceNotFoundException("File not found"));
@@ -117,6 +242,31 @@ public class FileService {
         return new FileResponse(file);
     }
 
+    // The entity itself, for callers that need its storage path
+    @Transactional(readOnly = true)
+    public File getStoredFile(UUID fileId, User user) {
+        return fileRepository.findByIdAndUserAndNotDeleted(fileId, user)
+                .orElseThrow(() -> new ResourceNotFoundException("File not found"));
+    }
+
+    /**
+     * The entities themselves, for streaming as an archive: the given files in
+     * the given order, or else the latest {@code limit} files of a type
+     */
+    @Transactional(readOnly = true)
+    public List<File> getStoredFiles(User user, List<UUID> ids, String type, int limit) {
+        if (ids != null && !ids.isEmpty()) {
+            List<UUID> distinct = ids.stream().distinct().toList();
+            Map<UUID, File> found = fileRepository.findByIdInAndUserAndNotDeleted(distinct, user).stream()
+                    .collect(Collectors.toMap(File::getId, file -> file));
+            if (found.size() != distinct.size()) {
+                throw new ResourceNotFoundException("File not found");
+            }
+            return distinct.stream().map(found::get).toList();
+        }
+        return getFilesByType(user, type != null ? type : "all", PageRequest.of(0, limit)).getContent();
+    }
+
     @Transactional
     public void deleteFile(UUID fileId, User user) {
         log.info("Deleting file: {} for user: {}", fileId, user.getName());
@@ -127,10 +277,18 @@ public class FileService {
         // Soft delete
         file.markAsDeleted();
         fileRepository.save(file);
+        duplicateService.invalidate(user.getId());
+        contentIndexService.remove(file);
 
         // Optionally delete from Supabase immediately (or schedule for later)
         try {
             supabaseService.deleteFile(file.getStoragePath());
+            storageCache.invalidate(file.getStoragePath());
+            if (file.getThumbnailStatus() != null) {
+                // Also while PENDING: a running job may have uploaded thumbnails without recording them
+                thumbnailService.deleteThumbnails(file.getStoragePath(),
+                        file.getThumbnails() != null ? file.getThumbnails().keySet() : List.of());
+            }
         } catch (Exception e) {
             log.warn("Failed to delete file from Supabase, but marked as deleted in database: {}", e.getMessage());
         }
@@ -149,23 +307,24 @@ public class FileService {
             throw new BadRequestException("File is not deleted");
         }
 
+        // Removed from the content indexes on delete; their backfill jobs add it back
         file.restore();
         fileRepository.save(file);
+        duplicateService.invalidate(user.getId());
 
         log.info("File restored successfully: {}", fileId);
     }
 
+    @Transactional(readOnly = true)
     public Long getStorageUsage(User user) {
         return fileRepository.calculateTotalStorageByUser(user);
     }
 
-    private void validateFile(MultipartFile file) {
+    private void validateFile(MultipartFile file, String mimeType) {
         if (file.isEmpty()) {
             throw new BadRequestException("File is empty");
         }
 
-        // Detect MIME type for security logging
-        String mimeType = detectMimeType(file);
         log.info("Uploading file with MIME type: {}", mimeType);
         
         // Block potentially dangerous executable files for security
@@ -176,7 +335,8 @@ public class FileService {
         // Note: Spring Boot handles max file size validation automatically
     }
 
-    private boolean isDangerousFile(String mimeType, String filename) {
+    // Package-private for the JMH benchmarks
+    static boolean isDangerousFile(String mimeType, String filename) {
         // Block executable files and scripts that could be dangerous
         if (mimeType != null) {
             String lowerMimeType = mimeType.toLowerCase();
@@ -192,9 +352,7 @@ public class FileService {
         
         if (filename != null) {
             String lowerFilename = filename.toLowerCase();
-            String[] dangerousExtensions = {".exe", ".bat", ".cmd", ".com", ".scr", ".pif", 
-                                          ".msi", ".dll", ".sh", ".ps1", ".vbs", ".js", ".jar"};
-            for (String ext : dangerousExtensions) {
+            for (String ext : DANGEROUS_EXTENSIONS) {
                 if (lowerFilename.endsWith(ext)) {
                     return true;
                 }
@@ -205,9 +363,13 @@ public class FileService {
     }
 
     private String detectMimeType(MultipartFile file) {
+        Timer.Sample sample = metrics.start();
         try {
-            return tika.detect(file.getBytes(), file.getOriginalFilename());
+            String mimeType = tika.detect(file.getBytes(), file.getOriginalFilename());
+            metrics.stop(sample, "drivex.upload.detect", "tika", DriveXMetrics.SUCCESS);
+            return mimeType;
         } catch (Exception e) {
+            metrics.stop(sample, "drivex.upload.detect", "tika", DriveXMetrics.ERROR);
             log.warn("Could not detect MIME type, falling back to content type: {}", e.getMessage());
             return file.getContentType() != null ? file.getContentType() : "application/octet-stream";
         }
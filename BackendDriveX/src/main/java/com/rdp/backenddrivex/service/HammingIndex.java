@@ -0,0 +1,128 @@
+package com.rdp.backenddrivex.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable index of 64-bit hashes for finding those within a Hamming distance
+ * of a query, by multi-index hashing: each hash is split into four 16-bit
+ * chunks. If two hashes differ in more than {@code s_i} bits of every chunk
+ * {@code i}, they differ in at least {@code sum(s_i + 1)} bits; so with radii
+ * summing to {@code r + 1 - 4}, two hashes within {@code r} bits of each other
+ * agree on some chunk to within its radius. A search probes every chunk value
+ * that close in one table per chunk and checks only the hashes found there, a
+ * small fraction of the whole for large indexes. Small indexes are just
+ * scanned.
+ */
+final class HammingIndex {
+
+    // Beyond this, probing costs more than scanning even 100k hashes
+    static final int MAX_DISTANCE = 12;
+
+    private static final int CHUNKS = 4;
+    private static final int CHUNK_BITS = 16;
+    private static final int LINEAR_LIMIT = 4096;
+    // Chunk masks in order of bit count; PROBES_WITHIN[s] is how many have at most s bits set
+    private static final int[] PROBES;
+    private static final int[] PROBES_WITHIN;
+
+    static {
+        List<Integer> probes = new ArrayList<>();
+        PROBES_WITHIN = new int[MAX_DISTANCE / CHUNKS + 1];
+        for (int bits = 0; bits <= MAX_DISTANCE / CHUNKS; bits++) {
+            for (int mask = 0; mask < 1 << CHUNK_BITS; mask++) {
+                if (Integer.bitCount(mask) == bits) {
+                    probes.add(mask);
+                }
+            }
+            PROBES_WITHIN[bits] = probes.size();
+        }
+        PROBES = probes.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private final long[] hashes;
+    private final UUID[] fileIds;
+    // Per chunk, entries grouped by chunk value: those for value v are entries[offsets[v]..offsets[v + 1])
+    private final int[][] offsets;
+    private final int[][] entries;
+
+    HammingIndex(long[] hashes, UUID[] fileIds) {
+        this.hashes = hashes;
+        this.fileIds = fileIds;
+        if (hashes.length <= LINEAR_LIMIT) {
+            offsets = null;
+            entries = null;
+            return;
+        }
+        offsets = new int[CHUNKS][];
+        entries = new int[CHUNKS][];
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int[] chunkOffsets = new int[(1 << CHUNK_BITS) + 1];
+            for (long hash : hashes) {
+                chunkOffsets[chunk(hash, chunk) + 1]++;
+            }
+            for (int value = 0; value < 1 << CHUNK_BITS; value++) {
+                chunkOffsets[value + 1] += chunkOffsets[value];
+            }
+            int[] next = chunkOffsets.clone();
+            int[] chunkEntries = new int[hashes.length];
+            for (int i = 0; i < hashes.length; i++) {
+                chunkEntries[next[chunk(hashes[i], chunk)]++] = i;
+            }
+            offsets[chunk] = chunkOffsets;
+            entries[chunk] = chunkEntries;
+        }
+    }
+
+    int size() {
+        return hashes.length;
+    }
+
+    long hash(int entry) {
+        return hashes[entry];
+    }
+
+    UUID fileId(int entry) {
+        return fileIds[entry];
+    }
+
+    /**
+     * Calls {@code matches} with every entry within {@code maxDistance} of
+     * {@code hash}, possibly more than once
+     */
+    void search(long hash, int maxDistance, IntConsumer matches) {
+        if (maxDistance < 0 || maxDistance > MAX_DISTANCE) {
+            throw new IllegalArgumentException("Distance must be between 0 and " + MAX_DISTANCE);
+        }
+        if (offsets == null) {
+            for (int i = 0; i < hashes.length; i++) {
+                if (Long.bitCount(hashes[i] ^ hash) <= maxDistance) {
+                    matches.accept(i);
+                }
+            }
+            return;
+        }
+        int spare = Math.max(0, maxDistance + 1 - CHUNKS);
+        for (int chunk = 0; chunk < CHUNKS; chunk++) {
+            int probeCount = PROBES_WITHIN[spare / CHUNKS + (chunk < spare % CHUNKS ? 1 : 0)];
+            int value = chunk(hash, chunk);
+            int[] chunkOffsets = offsets[chunk];
+            int[] chunkEntries = entries[chunk];
+            for (int probe = 0; probe < probeCount; probe++) {
+                int probed = value ^ PROBES[probe];
+                for (int i = chunkOffsets[probed]; i < chunkOffsets[probed + 1]; i++) {
+                    int entry = chunkEntries[i];
+                    if (Long.bitCount(hashes[entry] ^ hash) <= maxDistance) {
+                        matches.accept(entry);
+                    }
+                }
+            }
+        }
+    }
+
+    private static int chunk(long hash, int chunk) {
+        return (int) (hash >>> (chunk * CHUNK_BITS)) & ((1 << CHUNK_BITS) - 1);
+    }
+}
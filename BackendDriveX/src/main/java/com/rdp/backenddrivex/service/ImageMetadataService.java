@@ -0,0 +1,109 @@
+package com.rdp.backenddrivex.service;
+
+import com.drew.imaging.ImageMetadataReader;
+import com.drew.metadata.Metadata;
+import com.drew.metadata.exif.ExifIFD0Directory;
+import com.drew.metadata.exif.ExifSubIFDDirectory;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Iterator;
+
+/**
+ * Reads an uploaded image's dimensions, EXIF orientation and EXIF date taken
+ * from its headers, without decoding any pixels, so they can be saved with
+ * the upload and returned straight away.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ImageMetadataService {
+
+    private static final DateTimeFormatter EXIF_DATE = DateTimeFormatter.ofPattern("yyyy:MM:dd HH:mm:ss");
+
+    private final DriveXMetrics metrics;
+
+    /**
+     * What could be read; each part is null when the image does not have it or
+     * its headers cannot be read. Width and height are as displayed.
+     */
+    public record ImageMetadata(Integer width, Integer height, Short orientation, LocalDateTime takenAt) {
+    }
+
+    public ImageMetadata read(MultipartFile file) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.SUCCESS;
+        Integer width = null;
+        Integer height = null;
+        Short orientation = null;
+        LocalDateTime takenAt = null;
+        try (InputStream in = file.getInputStream();
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers != null && readers.hasNext()) {
+                ImageReader reader = readers.next();
+                try {
+                    // Only the header is parsed for the first image's size
+                    reader.setInput(input, true, true);
+                    width = reader.getWidth(0);
+                    height = reader.getHeight(0);
+                } finally {
+                    reader.dispose();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            outcome = DriveXMetrics.ERROR;
+            log.debug("Could not read the size of {}: {}", file.getOriginalFilename(), e.getMessage());
+        }
+
+        try (InputStream in = file.getInputStream()) {
+            // Stops at the image data for JPEG; other formats skip over it
+            Metadata metadata = ImageMetadataReader.readMetadata(in, file.getSize());
+            ExifIFD0Directory ifd0 = metadata.getFirstDirectoryOfType(ExifIFD0Directory.class);
+            if (ifd0 != null) {
+                Integer value = ifd0.getInteger(ExifIFD0Directory.TAG_ORIENTATION);
+                if (value != null && value >= 1 && value <= 8) {
+                    orientation = value.shortValue();
+                }
+            }
+            ExifSubIFDDirectory exif = metadata.getFirstDirectoryOfType(ExifSubIFDDirectory.class);
+            if (exif != null) {
+                takenAt = parseExifDate(exif.getString(ExifSubIFDDirectory.TAG_DATETIME_ORIGINAL));
+            }
+        } catch (Exception e) {
+            outcome = DriveXMetrics.ERROR;
+            log.debug("Could not read the EXIF metadata of {}: {}", file.getOriginalFilename(), e.getMessage());
+        }
+        metrics.stop(sample, "drivex.upload.metadata", "image", outcome);
+
+        // Orientations 5 to 8 turn the image by a quarter
+        if (orientation != null && orientation >= 5 && width != null) {
+            return new ImageMetadata(height, width, orientation, takenAt);
+        }
+        return new ImageMetadata(width, height, orientation, takenAt);
+    }
+
+    // EXIF dates have no time zone; unset ones are often blank or all zeros
+    private static LocalDateTime parseExifDate(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.trim(), EXIF_DATE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
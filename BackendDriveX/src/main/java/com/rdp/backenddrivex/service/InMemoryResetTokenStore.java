@@ -0,0 +1,120 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ResetTokenProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-node token store. Expiry uses a hashed timing wheel driven by one
+ * ticker thread, so no task is scheduled per token: each token is dropped into
+ * the bucket of its deadline tick and removed when the wheel reaches it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.reset-token", name = "store", havingValue = "memory", matchIfMissing = true)
+public class InMemoryResetTokenStore implements ResetTokenStore {
+
+    private record Entry(String email, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return expiresAtNanos - now <= 0;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<String>[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService ticker;
+
+    // Last tick whose bucket has been processed; only written by the ticker thread
+    private volatile long processedTick;
+
+    @SuppressWarnings("unchecked")
+    public InMemoryResetTokenStore(ResetTokenProperties properties) {
+        int size = Integer.highestOneBit(Math.max(2, properties.getWheel().getSize() - 1)) << 1;
+        this.wheel = new ConcurrentLinkedQueue[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = size - 1;
+        this.tickNanos = Math.max(1, properties.getWheel().getTick().toNanos());
+
+        this.ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "reset-token-wheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void save(String token, String email, Duration ttl) {
+        long expiresAt = System.nanoTime() + ttl.toNanos();
+        tokens.put(token, new Entry(email, expiresAt));
+
+        // Never place a token in a bucket the wheel has already passed
+        long tick = Math.max(tickOf(expiresAt), processedTick + 1);
+        wheel[(int) (tick & mask)].offer(token);
+    }
+
+    @Override
+    public Optional<String> consume(String token) {
+        Entry entry = tokens.remove(token);
+        if (entry == null || entry.isExpired(System.nanoTime())) {
+            return Optional.empty();
+        }
+        return Optional.of(entry.email());
+    }
+
+    private long tickOf(long nanos) {
+        // Round up so a token is never expired before its deadline
+        return (nanos - startNanos + tickNanos - 1) / tickNanos;
+    }
+
+    private void advance() {
+        try {
+            long now = System.nanoTime();
+            long target = (now - startNanos) / tickNanos;
+            // After a long pause one full turn visits every bucket once
+            long from = Math.max(processedTick + 1, target - mask);
+            for (long tick = from; tick <= target; tick++) {
+                expireBucket(wheel[(int) (tick & mask)], now);
+                processedTick = tick;
+            }
+        } catch (Exception e) {
+            log.error("Reset token wheel tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void expireBucket(ConcurrentLinkedQueue<String> bucket, long now) {
+        for (Iterator<String> it = bucket.iterator(); it.hasNext(); ) {
+            String token = it.next();
+            Entry entry = tokens.get(token);
+            if (entry == null) {
+                // Already consumed
+                it.remove();
+            } else if (entry.isExpired(now)) {
+                tokens.remove(token, entry);
+                it.remove();
+            }
+            // Otherwise the deadline is a later turn of the wheel; leave it in place
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,321 @@
+package com.rdp.backenddrivex.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rdp.backenddrivex.config.MailQueueProperties;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process outbound mail queue. Callers only enqueue, so request threads never
+ * wait on the SMTP relay. A small pool of senders drains the queue in batches,
+ * sending each batch over one SMTP connection, and retries failures with
+ * exponential backoff. Every message is written to the spill directory before
+ * it is queued and its file is only deleted once it has been sent, so a crash
+ * or restart loses nothing; delivery is at least once. Messages that don't fit
+ * in memory, or that used up their attempts, stay on disk and are picked up
+ * again by {@link #reloadSpilled()}.
+ */
+@Slf4j
+@Service
+public class OutboundMailQueue {
+
+    // What gets written to the spill directory
+    record SpilledMail(String from, String[] to, String subject, String text, int attempts) {
+    }
+
+    private static final class QueuedMail implements Delayed {
+        private final SimpleMailMessage message;
+        // Its spill file, or null if that could not be written
+        private final Path file;
+        private final int attempts;
+        private final long notBeforeNanos;
+
+        QueuedMail(SimpleMailMessage message, Path file, int attempts, long notBeforeNanos) {
+            this.message = message;
+            this.file = file;
+            this.attempts = attempts;
+            this.notBeforeNanos = notBeforeNanos;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(notBeforeNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(notBeforeNanos, ((QueuedMail) other).notBeforeNanos);
+        }
+    }
+
+    private final JavaMailSender mailSender;
+    private final MailQueueProperties properties;
+    private final ObjectMapper objectMapper;
+    private final DelayQueue<QueuedMail> queue = new DelayQueue<>();
+    // Messages in the queue or currently being sent
+    private final AtomicInteger pending = new AtomicInteger();
+    // Spill files whose message is in the queue or being sent, so a reload skips them
+    private final Set<Path> claimed = ConcurrentHashMap.newKeySet();
+    private final ExecutorService senders;
+    private volatile boolean running = true;
+
+    public OutboundMailQueue(JavaMailSender mailSender, MailQueueProperties properties, ObjectMapper objectMapper) {
+        this.mailSender = mailSender;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        if (properties.getSpillDirectory() == null) {
+            throw new IllegalStateException("app.mail.queue.spill-directory must be set");
+        }
+        try {
+            PrivateFiles.createDirectory(properties.getSpillDirectory());
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not create mail spill directory " + properties.getSpillDirectory(), e);
+        }
+
+        reloadSpilled();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(properties.getSenders(), runnable -> {
+            Thread thread = new Thread(runnable, "mail-sender-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < properties.getSenders(); i++) {
+            senders.execute(this::sendLoop);
+        }
+    }
+
+    /**
+     * Queues a message for delivery. Never blocks on the relay; if the in-memory
+     * buffer is full the message is only written to disk, for a later reload.
+     */
+    public void enqueue(SimpleMailMessage message) {
+        Path file = spillFile();
+        if (running && pending.incrementAndGet() <= properties.getCapacity()) {
+            // Claimed before it exists, so a reload cannot queue it a second time
+            claimed.add(file);
+            if (!spill(file, message, 0)) {
+                claimed.remove(file);
+                file = null;
+            }
+            queue.offer(new QueuedMail(message, file, 0, System.nanoTime()));
+            return;
+        }
+        if (running) {
+            pending.decrementAndGet();
+        }
+        log.warn("Mail queue full, leaving message for {} on disk", String.join(",", message.getTo()));
+        spill(file, message, 0);
+    }
+
+    public int size() {
+        return pending.get();
+    }
+
+    private void sendLoop() {
+        List<QueuedMail> batch = new ArrayList<>(properties.getBatchSize());
+        while (running) {
+            try {
+                QueuedMail first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Only messages whose backoff has elapsed are drained
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("Mail sender loop failed: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<QueuedMail> batch) {
+        Map<MimeMessage, QueuedMail> byMessage = new IdentityHashMap<>();
+        for (QueuedMail mail : batch) {
+            MimeMessage mimeMessage = mailSender.createMimeMessage();
+            mail.message.copyTo(new MimeMailMessage(mimeMessage));
+            byMessage.put(mimeMessage, mail);
+        }
+
+        try {
+            // JavaMailSender sends all messages of one call over a single connection
+            mailSender.send(byMessage.keySet().toArray(new MimeMessage[0]));
+            batch.forEach(this::sent);
+            log.info("✅ Sent {} queued email(s)", batch.size());
+        } catch (MailSendException e) {
+            Map<Object, Exception> failed = e.getFailedMessages();
+            for (Map.Entry<MimeMessage, QueuedMail> entry : byMessage.entrySet()) {
+                if (failed.isEmpty() || failed.containsKey(entry.getKey())) {
+                    retry(entry.getValue(), failed.getOrDefault(entry.getKey(), e));
+                } else {
+                    sent(entry.getValue());
+                }
+            }
+        } catch (Exception e) {
+            batch.forEach(mail -> retry(mail, e));
+        }
+    }
+
+    private void sent(QueuedMail mail) {
+        if (mail.file != null) {
+            try {
+                Files.deleteIfExists(mail.file);
+            } catch (IOException e) {
+                log.warn("Could not delete spill file of sent email {}, it may be sent again: {}",
+                        mail.file.getFileName(), e.getMessage());
+            }
+            claimed.remove(mail.file);
+        }
+        pending.decrementAndGet();
+    }
+
+    private void retry(QueuedMail mail, Exception cause) {
+        int attempts = mail.attempts + 1;
+        String to = String.join(",", mail.message.getTo());
+        if (attempts >= properties.getMaxAttempts()) {
+            // Left on disk, so each reload tries it once more until the relay takes it
+            Path file = mail.file != null ? mail.file : spillFile();
+            if (spill(file, mail.message, attempts)) {
+                log.error("❌ Email to {} failed after {} attempts, leaving it in the spill directory: {}",
+                        to, attempts, cause.getMessage());
+            }
+            claimed.remove(file);
+            pending.decrementAndGet();
+            return;
+        }
+
+        long initial = properties.getInitialBackoff().toNanos();
+        long max = properties.getMaxBackoff().toNanos();
+        long factor = 1L << Math.min(attempts - 1, 30);
+        long backoff = initial > max / factor ? max : initial * factor;
+        // Jitter so a relay outage doesn't turn into synchronized retry storms
+        backoff += ThreadLocalRandom.current().nextLong(backoff / 4 + 1);
+
+        log.warn("⚠️ Email to {} failed (attempt {}), retrying in {} ms: {}",
+                to, attempts, TimeUnit.NANOSECONDS.toMillis(backoff), cause.getMessage());
+        queue.offer(new QueuedMail(mail.message, mail.file, attempts, System.nanoTime() + backoff));
+    }
+
+    /**
+     * Queues spilled messages once there is room for them. Their files stay until
+     * they have been sent.
+     */
+    @Scheduled(fixedDelayString = "${app.mail.queue.spill-reload-interval:PT30S}")
+    public void reloadSpilled() {
+        Path directory = properties.getSpillDirectory();
+        if (!running || !Files.isDirectory(directory)) {
+            return;
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.json")) {
+            for (Path file : files) {
+                if (pending.get() >= properties.getCapacity() / 2) {
+                    break;
+                }
+                if (!claimed.add(file)) {
+                    continue;
+                }
+                SpilledMail spilled;
+                try {
+                    spilled = objectMapper.readValue(file.toFile(), SpilledMail.class);
+                } catch (IOException e) {
+                    // Moved aside so it cannot block the messages after it on every run
+                    log.error("❌ Could not read spilled email {}, moving it aside: {}", file.getFileName(), e.getMessage());
+                    Files.move(file, file.resolveSibling(file.getFileName() + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+                    claimed.remove(file);
+                    continue;
+                }
+
+                SimpleMailMessage message = new SimpleMailMessage();
+                message.setFrom(spilled.from());
+                message.setTo(spilled.to());
+                message.setSubject(spilled.subject());
+                message.setText(spilled.text());
+                pending.incrementAndGet();
+                queue.offer(new QueuedMail(message, file, spilled.attempts(), System.nanoTime()));
+            }
+        } catch (IOException e) {
+            log.error("Could not reload spilled emails from {}: {}", directory, e.getMessage());
+        }
+    }
+
+    // Named by time, so reloads pick up older messages first
+    private Path spillFile() {
+        return properties.getSpillDirectory().resolve(System.currentTimeMillis() + "-" + UUID.randomUUID() + ".json");
+    }
+
+    private boolean spill(Path target, SimpleMailMessage message, int attempts) {
+        try {
+            PrivateFiles.createDirectory(target.getParent());
+            Path temp = PrivateFiles.createFile(target.resolveSibling(target.getFileName() + ".tmp"));
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                objectMapper.writeValue(out, new SpilledMail(
+                        message.getFrom(), message.getTo(), message.getSubject(), message.getText(), attempts));
+            }
+            // Rename so a reload never sees a half-written file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            log.error("❌ Could not spill email for {} to disk: {}",
+                    String.join(",", message.getTo()), e.getMessage());
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        senders.shutdown();
+        if (!senders.awaitTermination(Duration.ofSeconds(10).toMillis(), TimeUnit.MILLISECONDS)) {
+            senders.shutdownNow();
+        }
+
+        // Queued messages are on disk already, apart from any whose spill file could
+        // not be written. drainTo would skip messages still waiting out their backoff.
+        List<QueuedMail> remaining = List.of(queue.toArray(new QueuedMail[0]));
+        queue.clear();
+        remaining.stream()
+                .filter(m -> m.file == null)
+                .forEach(m -> spill(spillFile(), m.message, m.attempts));
+        claimed.clear();
+        pending.set(0);
+        if (!remaining.isEmpty()) {
+            log.info("Left {} unsent email(s) in {}", remaining.size(), properties.getSpillDirectory());
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.PdfPreviewProperties;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.event.FileUploadedEvent;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.repository.FileRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.rendering.PageDrawer;
+import org.apache.pdfbox.rendering.PageDrawerParameters;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Renders the first page of uploaded PDFs to the same variants as image
+ * thumbnails (stored and recorded by {@link ThumbnailService}), on workers of
+ * its own so slow documents never hold up image thumbnails.
+ *
+ * <p>Each PDF is copied to a temp file rather than into memory, and PDFBox's
+ * stream cache is capped in heap and on disk. The page is rendered straight
+ * at the largest variant's size with embedded images subsampled, and
+ * rendering gives up once the time limit has passed.
+ */
+@Slf4j
+@Service
+public class PdfPreviewService {
+
+    private record Job(UUID fileId, String storagePath, long sizeBytes) {
+    }
+
+    private final SupabaseService supabaseService;
+    private final ThumbnailService thumbnailService;
+    private final FileRepository fileRepository;
+    private final PdfPreviewProperties properties;
+    private final DriveXMetrics metrics;
+    private final ThreadPoolExecutor workers;
+    // Files queued or being rendered, so the backfill job never queues one twice
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PdfPreviewService(SupabaseService supabaseService, ThumbnailService thumbnailService,
+                             FileRepository fileRepository, PdfPreviewProperties properties, DriveXMetrics metrics,
+                             MeterRegistry meterRegistry) {
+        this.supabaseService = supabaseService;
+        this.thumbnailService = thumbnailService;
+        this.fileRepository = fileRepository;
+        this.properties = properties;
+        this.metrics = metrics;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "pdf-preview-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("drivex.pdf.previews.queued", workers, executor -> executor.getQueue().size())
+                .description("PDFs waiting for a preview worker")
+                .register(meterRegistry);
+    }
+
+    public static boolean isPdf(String mimeType) {
+        return "application/pdf".equalsIgnoreCase(mimeType);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFileUploaded(FileUploadedEvent event) {
+        if (isPdf(event.mimeType())) {
+            submit(new Job(event.fileId(), event.storagePath(), event.sizeBytes()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.pdf-previews.backfill-interval:PT1M}")
+    public void backfill() {
+        int room = workers.getQueue().remainingCapacity();
+        if (!properties.isBackfillEnabled() || room == 0) {
+            return;
+        }
+        List<File> backlog = fileRepository.findPdfPreviewBacklog(
+                LocalDateTime.now().minus(properties.getPendingTimeout()),
+                PageRequest.of(0, Math.min(room, properties.getBackfillBatchSize())));
+        int queued = 0;
+        for (File file : backlog) {
+            if (submit(new Job(file.getId(), file.getStoragePath(), file.getSizeBytes()))) {
+                queued++;
+            }
+        }
+        if (queued > 0) {
+            log.info("Queued {} PDF(s) for preview backfill", queued);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued PDFs stay PENDING and are picked up again after a restart
+        workers.shutdownNow();
+    }
+
+    private boolean submit(Job job) {
+        if (!inFlight.add(job.fileId())) {
+            return false;
+        }
+        try {
+            workers.execute(() -> generate(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(job.fileId());
+            log.debug("PDF preview queue full, leaving {} to the backfill job", job.fileId());
+            return false;
+        }
+    }
+
+    private void generate(Job job) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            thumbnailService.storeThumbnails(job.fileId(), job.storagePath(), render(job));
+            outcome = DriveXMetrics.SUCCESS;
+        } catch (Exception e) {
+            thumbnailService.markFailed(job.fileId(), "application/pdf", e);
+        } finally {
+            inFlight.remove(job.fileId());
+            metrics.stop(sample, "drivex.thumbnails", "pdf", outcome);
+        }
+    }
+
+    private BufferedImage render(Job job) throws IOException {
+        if (job.sizeBytes() > properties.getMaxFileSize().toBytes()) {
+            throw new IOException("PDF is " + job.sizeBytes() + " bytes, over the size limit");
+        }
+        long deadline = System.nanoTime() + properties.getRenderTimeout().toNanos();
+        Path pdf = Files.createTempFile("drivex-preview-", ".pdf");
+        try {
+            try (InputStream in = supabaseService.openFile(job.storagePath(), 0, job.sizeBytes() - 1)) {
+                Files.copy(in, pdf, StandardCopyOption.REPLACE_EXISTING);
+            }
+            MemoryUsageSetting memory = MemoryUsageSetting.setupMixed(properties.getMaxMemory().toBytes(),
+                    properties.getMaxTempStorage().toBytes());
+            try (PDDocument document = Loader.loadPDF(pdf.toFile(), memory.streamCache)) {
+                if (document.getNumberOfPages() == 0) {
+                    throw new IOException("PDF has no pages");
+                }
+                PDRectangle box = document.getPage(0).getCropBox();
+                float longestSide = Math.max(box.getWidth(), box.getHeight());
+                if (longestSide <= 0) {
+                    throw new IOException("First page has no size");
+                }
+                PDFRenderer renderer = new DeadlineRenderer(document, deadline);
+                renderer.setSubsamplingAllowed(true);
+                return renderer.renderImage(0, thumbnailService.largestVariant() / longestSide, ImageType.RGB);
+            }
+        } finally {
+            Files.deleteIfExists(pdf);
+        }
+    }
+
+    // PDFBox cannot be interrupted, so the deadline is checked before every drawing operator
+    private static final class DeadlineRenderer extends PDFRenderer {
+
+        private final long deadline;
+
+        DeadlineRenderer(PDDocument document, long deadline) {
+            super(document);
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected PageDrawer createPageDrawer(PageDrawerParameters parameters) throws IOException {
+            return new PageDrawer(parameters) {
+                @Override
+                protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+                    if (System.nanoTime() - deadline > 0) {
+                        throw new InterruptedIOException("Rendering took longer than the time limit");
+                    }
+                    super.processOperator(operator, operands);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.rdp.backenddrivex.service;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Difference hash (dHash): the image is averaged down to 9x8 cells of
+ * brightness, and each of the 64 bits says whether a cell is brighter than
+ * its right-hand neighbour. Resizing, recompression and small edits change
+ * few bits, so near-duplicates have hashes a small Hamming distance apart.
+ */
+final class PerceptualHash {
+
+    private static final int COLUMNS = 9;
+    private static final int ROWS = 8;
+
+    private PerceptualHash() {
+    }
+
+    static long dHash(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        double[] brightness = new double[COLUMNS * ROWS];
+        int[] counts = new int[COLUMNS * ROWS];
+        for (int y = 0; y < height; y++) {
+            int row = y * ROWS / height;
+            for (int x = 0; x < width; x++) {
+                int cell = row * COLUMNS + x * COLUMNS / width;
+                int rgb = pixels[y * width + x];
+                brightness[cell] += 0.299 * ((rgb >> 16) & 0xff) + 0.587 * ((rgb >> 8) & 0xff) + 0.114 * (rgb & 0xff);
+                counts[cell]++;
+            }
+        }
+        long hash = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++) {
+                int cell = row * COLUMNS + column;
+                double left = brightness[cell] / Math.max(1, counts[cell]);
+                double right = brightness[cell + 1] / Math.max(1, counts[cell + 1]);
+                hash = hash << 1 | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,48 @@
+package com.rdp.backenddrivex.service;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Set;
+
+/**
+ * Directories and files readable only by the user the application runs as,
+ * for data written to local disk that holds users' content or secrets (mail
+ * with reset links, cached files, the content index). On file systems without
+ * POSIX permissions they are created with the defaults.
+ */
+final class PrivateFiles {
+
+    private static final boolean POSIX = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    private static final Set<PosixFilePermission> OWNER_DIRECTORY = PosixFilePermissions.fromString("rwx------");
+    private static final Set<PosixFilePermission> OWNER_FILE = PosixFilePermissions.fromString("rw-------");
+
+    private PrivateFiles() {
+    }
+
+    /**
+     * Creates {@code directory} and any missing parents, and makes it
+     * owner-only, also when it already existed
+     */
+    static Path createDirectory(Path directory) throws IOException {
+        if (!POSIX) {
+            return Files.createDirectories(directory);
+        }
+        Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(OWNER_DIRECTORY));
+        Files.setPosixFilePermissions(directory, OWNER_DIRECTORY);
+        return directory;
+    }
+
+    /**
+     * Creates a new, empty, owner-only file; fails if it exists
+     */
+    static Path createFile(Path file) throws IOException {
+        return POSIX
+                ? Files.createFile(file, PosixFilePermissions.asFileAttribute(OWNER_FILE))
+                : Files.createFile(file, new FileAttribute<?>[0]);
+    }
+}
@@ -0,0 +1,21 @@
+package com.rdp.backenddrivex.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Keeps password reset tokens until they are used or expire.
+ */
+public interface ResetTokenStore {
+
+    /**
+     * Stores a token for the given email, valid for {@code ttl}
+     */
+    void save(String token, String email, Duration ttl);
+
+    /**
+     * Removes the token and returns its email if it was still valid.
+     * Only one caller can successfully consume a given token.
+     */
+    Optional<String> consume(String token);
+}
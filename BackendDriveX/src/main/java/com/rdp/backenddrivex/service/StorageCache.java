@@ -0,0 +1,273 @@
+package com.rdp.backenddrivex.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.rdp.backenddrivex.config.StorageCacheProperties;
+import com.rdp.backenddrivex.exception.FileStorageException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Node-local disk copies of recently downloaded files, in front of storage on
+ * the download paths. A file is copied to disk when it is downloaded a second
+ * time within the admission window, and Caffeine's W-TinyLFU policy decides
+ * which copies stay within the size limit, so a burst of one-off downloads
+ * cannot push out the popular ones. Concurrent misses for the same file share
+ * one copy from storage. Storage paths are never reused, so a copy stays
+ * valid until the file is deleted.
+ */
+@Slf4j
+@Service
+public class StorageCache {
+
+    private static final String HIT = "hit";
+    private static final String MISS = "miss";
+    private static final String FILL = "fill";
+    private static final String BYPASS = "bypass";
+    // Paths remembered for admission; older ones are forgotten first
+    private static final int MAX_RECENT_READS = 100_000;
+
+    private record CachedFile(Path path, long size) {
+    }
+
+    private final SupabaseService supabaseService;
+    private final StorageCacheProperties properties;
+    private final DriveXMetrics metrics;
+    private final AsyncCache<String, CachedFile> files;
+    // Paths downloaded once within the admission window
+    private final Cache<String, Boolean> recentReads;
+    private final ExecutorService fillers;
+
+    public StorageCache(SupabaseService supabaseService, StorageCacheProperties properties, DriveXMetrics metrics,
+                        MeterRegistry meterRegistry) {
+        this.supabaseService = supabaseService;
+        this.properties = properties;
+        this.metrics = metrics;
+        if (properties.getMaxObjectSize().toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("app.storage-cache.max-object-size must be at most 2GB");
+        }
+        if (properties.isEnabled()) {
+            if (properties.getDirectory() == null) {
+                throw new IllegalStateException("app.storage-cache.directory must be set");
+            }
+            prepareDirectory(properties.getDirectory());
+        }
+
+        this.files = Caffeine.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String storagePath, CachedFile file) -> (int) file.size())
+                .removalListener((String storagePath, CachedFile file, RemovalCause cause) -> {
+                    if (file != null) {
+                        deleteQuietly(file.path());
+                    }
+                })
+                .buildAsync();
+        this.recentReads = Caffeine.newBuilder()
+                .maximumSize(MAX_RECENT_READS)
+                .expireAfterWrite(properties.getAdmissionWindow())
+                .build();
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.fillers = Executors.newFixedThreadPool(properties.getFillThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "storage-cache-fill-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("drivex.storage.cache.size", files, cache -> cache.synchronous().policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0))
+                        .orElse(0L))
+                .baseUnit("bytes")
+                .description("Disk space taken by cached files")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fillers.shutdownNow();
+    }
+
+    /**
+     * Like {@link SupabaseService#openFile}, for a stored file of {@code size}
+     * bytes, reading from the local copy when there is one
+     */
+    public InputStream openFile(String storagePath, long size, long first, long last) {
+        if (!properties.isEnabled() || size == 0 || size > properties.getMaxObjectSize().toBytes()) {
+            metrics.storageCacheRead(BYPASS, 0);
+            return supabaseService.openFile(storagePath, first, last);
+        }
+
+        CompletableFuture<CachedFile> cached = files.getIfPresent(storagePath);
+        String result = cached != null && cached.isDone() ? HIT : FILL;
+        if (cached == null) {
+            if (recentReads.asMap().putIfAbsent(storagePath, Boolean.TRUE) == null) {
+                metrics.storageCacheRead(MISS, 0);
+                return supabaseService.openFile(storagePath, first, last);
+            }
+            // Concurrent misses for one path wait on the same copy
+            cached = files.get(storagePath, (key, executor) ->
+                    CompletableFuture.supplyAsync(() -> fill(key, size), fillers));
+        }
+
+        CachedFile file = await(cached);
+        try {
+            InputStream in = new RangeInputStream(FileChannel.open(file.path(), StandardOpenOption.READ), first, last + 1);
+            metrics.storageCacheRead(result, HIT.equals(result) ? last - first + 1 : 0);
+            return in;
+        } catch (NoSuchFileException e) {
+            // Evicted since the lookup
+            metrics.storageCacheRead(MISS, 0);
+            return supabaseService.openFile(storagePath, first, last);
+        } catch (IOException e) {
+            throw new FileStorageException("Could not read cached copy of " + storagePath, e);
+        }
+    }
+
+    /**
+     * Bytes {@code first} to {@code last} of a stored file, from the local copy
+     * when there is one; otherwise a range read from storage that does not count
+     * towards caching the file, for readers that only ever need small parts of it
+     */
+    public InputStream openRange(String storagePath, long first, long last) {
+        CompletableFuture<CachedFile> cached = properties.isEnabled() ? files.getIfPresent(storagePath) : null;
+        if (cached != null && cached.isDone() && !cached.isCompletedExceptionally()) {
+            try {
+                InputStream in = new RangeInputStream(FileChannel.open(cached.join().path(), StandardOpenOption.READ),
+                        first, last + 1);
+                metrics.storageCacheRead(HIT, last - first + 1);
+                return in;
+            } catch (IOException e) {
+                // Evicted since the lookup; read from storage instead
+            }
+        }
+        metrics.storageCacheRead(BYPASS, 0);
+        return supabaseService.openFile(storagePath, first, last);
+    }
+
+    /**
+     * Drops the local copy of a file removed from storage
+     */
+    public void invalidate(String storagePath) {
+        files.synchronous().invalidate(storagePath);
+        recentReads.invalidate(storagePath);
+    }
+
+    private CachedFile fill(String storagePath, long size) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        Path path = properties.getDirectory().resolve(UUID.randomUUID().toString());
+        try (InputStream in = supabaseService.openFile(storagePath, 0, size - 1);
+             OutputStream out = Files.newOutputStream(PrivateFiles.createFile(path))) {
+            long copied = in.transferTo(out);
+            if (copied != size) {
+                throw new FileStorageException("Storage sent " + copied + " of " + size + " bytes for " + storagePath);
+            }
+            outcome = DriveXMetrics.SUCCESS;
+            return new CachedFile(path, size);
+        } catch (IOException e) {
+            throw new FileStorageException("Could not cache " + storagePath, e);
+        } finally {
+            if (!DriveXMetrics.SUCCESS.equals(outcome)) {
+                deleteQuietly(path);
+            }
+            metrics.stop(sample, "drivex.storage.cache", "fill", outcome);
+        }
+    }
+
+    private static CachedFile await(CompletableFuture<CachedFile> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof FileStorageException storageException) {
+                throw storageException;
+            }
+            throw new FileStorageException("Could not cache file", e.getCause());
+        }
+    }
+
+    // Copies left by an earlier run are not in the index, so they would never be evicted
+    private static void prepareDirectory(Path directory) {
+        try {
+            PrivateFiles.createDirectory(directory);
+            try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory, Files::isRegularFile)) {
+                for (Path leftover : leftovers) {
+                    Files.delete(leftover);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not prepare storage cache directory " + directory, e);
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            // Readers that already opened it keep reading; the space is freed when they close it
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete cached file {}: {}", path, e.getMessage());
+        }
+    }
+
+    /**
+     * Bytes {@code position} up to {@code end} of a file, by positional reads
+     */
+    private static final class RangeInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        RangeInputStream(FileChannel channel, long position, long end) {
+            this.channel = channel;
+            this.position = position;
+            this.end = end;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
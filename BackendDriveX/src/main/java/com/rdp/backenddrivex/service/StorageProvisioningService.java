@@ -0,0 +1,38 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.event.StorageProvisioningRequestedEvent;
+import com.rdp.backenddrivex.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageProvisioningService {
+
+    private final SupabaseService supabaseService;
+    private final UserRepository userRepository;
+
+    /**
+     * Creates the user's storage folder once and records it on the user row.
+     * Runs after the registering/login transaction has committed, on a task
+     * thread: the request thread still holds its connection at that point, and
+     * waiting for a second one could exhaust the pool under concurrent sign-ups.
+     */
+    @Async
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onProvisioningRequested(StorageProvisioningRequestedEvent event) {
+        try {
+            supabaseService.createUserFolder(event.email());
+            userRepository.markStorageProvisioned(event.userId());
+            log.info("Storage provisioned for user: {}", event.email());
+        } catch (Exception e) {
+            // Not fatal - the next login will try again
+            log.warn("Failed to create user folder for {}: {}", event.email(), e.getMessage());
+        }
+    }
+}
@@ -2,42 +2,79 @@ package com.rdp.backenddrivex.service;
 
 import com.rdp.backenddrivex.config.SupabaseProperties;
 import com.rdp.backenddrivex.exception.FileStorageException;
-import lombok.RequiredArgsConstructor;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.observability.jfr.StorageCallEvent;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
+import org.springframework.util.function.ThrowingConsumer;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.multipart.MultipartFile;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class SupabaseService {
 
+    // Attribute WebClient reads the "uri" observation tag from. Setting it keeps
+    // per-file paths out of http.client.requests tags and span names.
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+    private static final String OBJECT_TEMPLATE = "/storage/v1/object/{bucket}/{path}";
+    private static final String OBJECT_INFO_TEMPLATE = "/storage/v1/object/info/public/{bucket}/{path}";
+    // Network buffers requested from a download at a time; bounds what a slow client can make us hold
+    private static final int DOWNLOAD_DEMAND = 4;
+    // Run the writers of streamed uploads, which block while storage catches up
+    private static final Executor UPLOAD_WRITERS =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("storage-upload-", 0).factory());
+
     private final SupabaseProperties supabaseProperties;
-    private final WebClient.Builder webClientBuilder;
+    private final DriveXMetrics metrics;
+    // One client for all storage calls; the shared builder bean is cloned, never mutated
+    private final WebClient webClient;
+
+    public SupabaseService(SupabaseProperties supabaseProperties, WebClient.Builder webClientBuilder, DriveXMetrics metrics) {
+        this.supabaseProperties = supabaseProperties;
+        this.metrics = metrics;
+        this.webClient = webClientBuilder.clone()
+            .baseUrl(supabaseProperties.getUrl())
+            .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + supabaseProperties.getService().getKey())
+            .build();
+    }
 
     public String uploadFile(MultipartFile file, String storagePath) {
         try {
             log.info("Uploading file to Supabase: {}", storagePath);
 
-            WebClient webClient = webClientBuilder
-                .baseUrl(supabaseProperties.getUrl())
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + supabaseProperties.getService().getKey())
-                .build();
 
             String uploadUrl = "/storage/v1/object/" + supabaseProperties.getBucket().getName() + "/" + storagePath;
 
             // Upload file to Supabase Storage
-            String response = webClient.post()
+            byte[] content = file.getBytes();
+            timed("put", content.length, file.getContentType(), () -> webClient.post()
                 .uri(uploadUrl)
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_TEMPLATE)
                 .contentType(MediaType.parseMediaType(file.getContentType()))
-                .body(BodyInserters.fromValue(file.getBytes()))
+                .body(BodyInserters.fromValue(content))
                 .retrieve()
                 .onStatus(status -> !status.is2xxSuccessful(), 
                     clientResponse -> clientResponse.bodyToMono(String.class)
@@ -46,7 +83,7 @@ public class SupabaseService {
                             return Mono.error(new FileStorageException("Failed to upload file to Supabase: " + errorBody));
                         }))
                 .bodyToMono(String.class)
-                .block();
+                .block());
 
             // Generate public URL
             String publicUrl = generatePublicUrl(storagePath);
@@ -63,19 +100,85 @@ public class SupabaseService {
         }
     }
 
+    /**
+     * Stores content generated by the server (thumbnails, compressed uploads and the like), replacing
+     * any earlier version at the same path, and returns its public URL
+     */
+    public String uploadBytes(byte[] content, String contentType, String storagePath) {
+        try {
+            String uploadUrl = "/storage/v1/object/" + supabaseProperties.getBucket().getName() + "/" + storagePath;
+
+            timed("put", content.length, contentType, () -> webClient.post()
+                .uri(uploadUrl)
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_TEMPLATE)
+                .contentType(MediaType.parseMediaType(contentType))
+                .header("x-upsert", "true")
+                .body(BodyInserters.fromValue(content))
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(),
+                    clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(errorBody -> {
+                            log.error("Supabase upload failed with status {}: {}", clientResponse.statusCode(), errorBody);
+                            return Mono.error(new FileStorageException("Failed to upload file to Supabase: " + errorBody));
+                        }))
+                .bodyToMono(String.class)
+                .block());
+
+            return generatePublicUrl(storagePath);
+
+        } catch (Exception e) {
+            log.error("Error uploading generated file to Supabase: {}", e.getMessage());
+            throw new FileStorageException("Could not upload file to Supabase", e);
+        }
+    }
+
+    /**
+     * Like {@link #uploadBytes}, for content the server generates as it goes (compressed
+     * uploads): what {@code writer} writes is sent on in chunks rather than held in memory.
+     * If the writer throws, the upload is cancelled and nothing is stored.
+     */
+    public String uploadStream(ThrowingConsumer<OutputStream> writer, String contentType, String storagePath) {
+        AtomicLong written = new AtomicLong();
+        try {
+            String uploadUrl = "/storage/v1/object/" + supabaseProperties.getBucket().getName() + "/" + storagePath;
+            Publisher<DataBuffer> body = DataBufferUtils.outputStreamPublisher(
+                    out -> writer.accept(new CountingOutputStream(out, written)),
+                    DefaultDataBufferFactory.sharedInstance, UPLOAD_WRITERS);
+
+            timed("put", written::get, contentType, () -> webClient.post()
+                .uri(uploadUrl)
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_TEMPLATE)
+                .contentType(MediaType.parseMediaType(contentType))
+                .header("x-upsert", "true")
+                .body(BodyInserters.fromDataBuffers(body))
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(),
+                    clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(errorBody -> {
+                            log.error("Supabase upload failed with status {}: {}", clientResponse.statusCode(), errorBody);
+                            return Mono.error(new FileStorageException("Failed to upload file to Supabase: " + errorBody));
+                        }))
+                .bodyToMono(String.class)
+                .block());
+
+            return generatePublicUrl(storagePath);
+
+        } catch (Exception e) {
+            log.error("Error streaming generated file to Supabase: {}", e.getMessage());
+            throw new FileStorageException("Could not upload file to Supabase", e);
+        }
+    }
+
     public void deleteFile(String storagePath) {
         try {
             log.info("Deleting file from Supabase: {}", storagePath);
 
-            WebClient webClient = webClientBuilder
-                .baseUrl(supabaseProperties.getUrl())
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + supabaseProperties.getService().getKey())
-                .build();
 
             String deleteUrl = "/storage/v1/object/" + supabaseProperties.getBucket().getName() + "/" + storagePath;
 
-            webClient.delete()
+            timed("delete", 0, null, () -> webClient.delete()
                 .uri(deleteUrl)
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_TEMPLATE)
                 .retrieve()
                 .onStatus(status -> !status.is2xxSuccessful(),
                     clientResponse -> clientResponse.bodyToMono(String.class)
@@ -84,7 +187,7 @@ public class SupabaseService {
                             return Mono.error(new FileStorageException("Failed to delete file from Supabase: " + errorBody));
                         }))
                 .bodyToMono(String.class)
-                .block();
+                .block());
 
             log.info("File deleted successfully from Supabase: {}", storagePath);
 
@@ -94,6 +197,49 @@ public class SupabaseService {
         }
     }
 
+    /**
+     * Requests bytes {@code first} to {@code last} (inclusive) of a stored object and
+     * returns once storage has answered. The body is read from the returned stream as
+     * it arrives, a few network buffers at a time; closing the stream releases them
+     * and cancels whatever has not been read.
+     */
+    public InputStream openFile(String storagePath, long first, long last) {
+        long length = last - first + 1;
+        try {
+            String downloadUrl = "/storage/v1/object/" + supabaseProperties.getBucket().getName() + "/" + storagePath;
+
+            ResponseEntity<Flux<DataBuffer>> response = timed("get", length, null, () -> webClient.get()
+                .uri(downloadUrl)
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_TEMPLATE)
+                .header(HttpHeaders.RANGE, "bytes=" + first + "-" + last)
+                .retrieve()
+                .onStatus(status -> !status.is2xxSuccessful(),
+                    clientResponse -> clientResponse.bodyToMono(String.class)
+                        .flatMap(errorBody -> {
+                            log.error("Supabase download failed with status {}: {}", clientResponse.statusCode(), errorBody);
+                            return Mono.error(new FileStorageException("Failed to download file from Supabase: " + errorBody));
+                        }))
+                .toEntityFlux(DataBuffer.class)
+                .block());
+
+            InputStream body = DataBufferUtils.subscriberInputStream(response.getBody(), DOWNLOAD_DEMAND);
+            long contentLength = response.getHeaders().getContentLength();
+            // A 200 carries the whole object, which is only what was asked for if the range started at 0
+            if ((response.getStatusCode() != HttpStatus.PARTIAL_CONTENT && first > 0)
+                    || (contentLength >= 0 && contentLength != length)) {
+                body.close();
+                throw new FileStorageException("Supabase did not return bytes " + first + "-" + last + " of " + storagePath);
+            }
+            return body;
+
+        } catch (FileStorageException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Error downloading file from Supabase: {}", e.getMessage());
+            throw new FileStorageException("Could not download file from Supabase", e);
+        }
+    }
+
     public String generatePublicUrl(String storagePath) {
         return supabaseProperties.getUrl() + "/storage/v1/object/public/" + 
                supabaseProperties.getBucket().getName() + "/" + storagePath;
@@ -101,18 +247,15 @@ public class SupabaseService {
 
     public boolean fileExists(String storagePath) {
         try {
-            WebClient webClient = webClientBuilder
-                .baseUrl(supabaseProperties.getUrl())
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + supabaseProperties.getService().getKey())
-                .build();
 
             String checkUrl = "/storage/v1/object/info/public/" + supabaseProperties.getBucket().getName() + "/" + storagePath;
 
-            webClient.head()
+            timed("head", 0, null, () -> webClient.head()
                 .uri(checkUrl)
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_INFO_TEMPLATE)
                 .retrieve()
                 .toBodilessEntity()
-                .block();
+                .block());
 
             return true;
         } catch (Exception e) {
@@ -128,20 +271,20 @@ public class SupabaseService {
             // Supabase Storage doesn't support empty folders, so we create a .gitkeep file
             String folderPath = userEmail + "/.gitkeep";
             
-            WebClient webClient = webClientBuilder
-                .baseUrl(supabaseProperties.getUrl())
-                .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + supabaseProperties.getService().getKey())
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, "text/plain")
-                .build();
 
             String uploadUrl = "/storage/v1/object/" + supabaseProperties.getBucket().getName() + "/" + folderPath;
 
-            webClient.post()
+            String placeholder = "# User folder placeholder";
+            timed("put", placeholder.length(), MediaType.TEXT_PLAIN_VALUE, () -> webClient.post()
                 .uri(uploadUrl)
-                .body(BodyInserters.fromValue("# User folder placeholder"))
+                .attribute(URI_TEMPLATE_ATTRIBUTE, OBJECT_TEMPLATE)
+                .contentType(MediaType.TEXT_PLAIN)
+                // Overwrite instead of failing if the placeholder already exists
+                .header("x-upsert", "true")
+                .body(BodyInserters.fromValue(placeholder))
                 .retrieve()
                 .bodyToMono(String.class)
-                .block();
+                .block());
 
             log.info("User folder created successfully: {}", userEmail);
         } catch (Exception e) {
@@ -149,4 +292,52 @@ public class SupabaseService {
             throw new FileStorageException("Could not create user folder", e);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Runs a blocking storage call, recording its latency, bytes and in-flight count
+     * as metrics and as a flight recorder event
+     */
+    private <T> T timed(String operation, long bytes, String mimeType, Supplier<T> call) {
+        return timed(operation, () -> bytes, mimeType, call);
+    }
+
+    // For bodies whose size is only known once they have been sent
+    private <T> T timed(String operation, LongSupplier bytes, String mimeType, Supplier<T> call) {
+        metrics.storageCallStarted();
+        Timer.Sample sample = metrics.start();
+        StorageCallEvent event = StorageCallEvent.start(operation, bytes.getAsLong(), mimeType);
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            T result = call.get();
+            outcome = DriveXMetrics.SUCCESS;
+            return result;
+        } finally {
+            long sent = bytes.getAsLong();
+            event.finish(DriveXMetrics.SUCCESS.equals(outcome), sent);
+            metrics.stop(sample, "drivex.storage.request", operation, outcome);
+            metrics.storageCallFinished(operation, DriveXMetrics.SUCCESS.equals(outcome) ? sent : 0);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private final AtomicLong count;
+
+        CountingOutputStream(OutputStream out, AtomicLong count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count.addAndGet(len);
+        }
+    }
+}
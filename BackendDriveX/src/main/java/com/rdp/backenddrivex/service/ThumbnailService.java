@@ -0,0 +1,331 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ThumbnailProperties;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.entity.ThumbnailStatus;
+import com.rdp.backenddrivex.event.FileUploadedEvent;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.repository.FileRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.imgscalr.Scalr;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.IIOException;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates JPEG thumbnails for uploaded images on a small pool of workers with
+ * a bounded queue, so uploads never wait for them and a burst of uploads cannot
+ * pile up decoded images in memory. Each image is decoded once, subsampled
+ * while reading so only about twice the largest variant is held, then scaled
+ * down variant by variant, after being turned upright per its EXIF orientation.
+ * Thumbnails are stored next to the original and recorded on the file row,
+ * with a BlurHash placeholder and a perceptual hash (for DuplicateService)
+ * computed from the smallest.
+ *
+ * <p>Images that never reach a worker (queue full, restart) stay PENDING and
+ * are queued again by the backfill job, which also covers images uploaded
+ * before thumbnails existed. Images that fail are marked FAILED.
+ */
+@Slf4j
+@Service
+public class ThumbnailService {
+
+    private record Job(UUID fileId, UUID userId, String storagePath, String mimeType, long sizeBytes,
+                       Short orientation) {
+    }
+
+    private final SupabaseService supabaseService;
+    private final FileRepository fileRepository;
+    private final DuplicateService duplicateService;
+    private final ThumbnailProperties properties;
+    private final DriveXMetrics metrics;
+    private final ThreadPoolExecutor workers;
+    // Files queued or being processed, so the backfill job never queues one twice
+    private final Set<UUID> inFlight = ConcurrentHashMap.newKeySet();
+
+    public ThumbnailService(SupabaseService supabaseService, FileRepository fileRepository,
+                            DuplicateService duplicateService, ThumbnailProperties properties, DriveXMetrics metrics,
+                            MeterRegistry meterRegistry) {
+        this.supabaseService = supabaseService;
+        this.fileRepository = fileRepository;
+        this.duplicateService = duplicateService;
+        this.properties = properties;
+        this.metrics = metrics;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(properties.getWorkers(), properties.getWorkers(),
+                0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(properties.getQueueCapacity()), runnable -> {
+            Thread thread = new Thread(runnable, "thumbnail-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("drivex.thumbnails.queued", workers, executor -> executor.getQueue().size())
+                .description("Images waiting for a thumbnail worker")
+                .register(meterRegistry);
+    }
+
+    public static boolean isImage(String mimeType) {
+        return mimeType != null && mimeType.toLowerCase().startsWith("image/");
+    }
+
+    /**
+     * Where a variant of the file at {@code storagePath} is stored: next to it,
+     * with the variant name in place of the extension
+     */
+    public static String thumbnailPath(String storagePath, String variant) {
+        int dot = storagePath.lastIndexOf('.');
+        String base = dot > storagePath.lastIndexOf('/') ? storagePath.substring(0, dot) : storagePath;
+        return base + "-thumb-" + variant + ".jpg";
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void onFileUploaded(FileUploadedEvent event) {
+        if (isImage(event.mimeType())) {
+            submit(new Job(event.fileId(), event.userId(), event.storagePath(), event.mimeType(),
+                    event.sizeBytes(), event.orientation()));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.thumbnails.backfill-interval:PT1M}")
+    public void backfill() {
+        int room = workers.getQueue().remainingCapacity();
+        if (!properties.isBackfillEnabled() || room == 0) {
+            return;
+        }
+        List<File> backlog = fileRepository.findThumbnailBacklog(
+                LocalDateTime.now().minus(properties.getPendingTimeout()),
+                PageRequest.of(0, Math.min(room, properties.getBackfillBatchSize())));
+        int queued = 0;
+        for (File file : backlog) {
+            // getId() on the lazy user does not load it
+            if (submit(new Job(file.getId(), file.getUser().getId(), file.getStoragePath(), file.getMimeType(),
+                    file.getSizeBytes(), file.getOrientation()))) {
+                queued++;
+            }
+        }
+        if (queued > 0) {
+            log.info("Queued {} image(s) for thumbnail backfill", queued);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Queued images stay PENDING and are picked up again after a restart
+        workers.shutdownNow();
+    }
+
+    private boolean submit(Job job) {
+        if (!inFlight.add(job.fileId())) {
+            return false;
+        }
+        try {
+            workers.execute(() -> generate(job));
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(job.fileId());
+            log.debug("Thumbnail queue full, leaving {} to the backfill job", job.fileId());
+            return false;
+        }
+    }
+
+    /**
+     * Scales {@code image} to every variant, stores the JPEGs next to the file and
+     * records them on its row with a BlurHash of the smallest. Also used for
+     * rendered PDF pages.
+     */
+    public void storeThumbnails(UUID fileId, String storagePath, BufferedImage image) throws IOException {
+        store(fileId, storagePath, image, false);
+    }
+
+    // Perceptual hashes are for photos; PDF pages are not checked for duplicates
+    private void store(UUID fileId, String storagePath, BufferedImage image, boolean perceptualHash)
+            throws IOException {
+        // Largest first, each variant scaled from the one before
+        List<Map.Entry<String, Integer>> variants = new ArrayList<>(properties.getVariants().entrySet());
+        variants.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        Map<String, String> thumbnails = new LinkedHashMap<>();
+        BufferedImage opaque = null;
+        for (Map.Entry<String, Integer> variant : variants) {
+            image = scale(image, variant.getValue());
+            opaque = flatten(image);
+            thumbnails.put(variant.getKey(), supabaseService.uploadBytes(encode(opaque), "image/jpeg",
+                    thumbnailPath(storagePath, variant.getKey())));
+        }
+        int updated = fileRepository.recordThumbnails(fileId, ThumbnailStatus.READY, thumbnails,
+                opaque != null ? BlurHash.encode(opaque) : null,
+                opaque != null && perceptualHash ? PerceptualHash.dHash(opaque) : null);
+        if (updated == 0) {
+            // Deleted while its thumbnails were made, possibly after the delete cleaned up storage
+            log.info("File {} was deleted during thumbnail generation, removing its thumbnails", fileId);
+            deleteThumbnails(storagePath, thumbnails.keySet());
+        }
+    }
+
+    /**
+     * Deletes a file's thumbnails from storage: the {@code recorded} variants
+     * and every configured one, since a job still running may have uploaded
+     * some it has not recorded yet. Missing ones are skipped.
+     */
+    public void deleteThumbnails(String storagePath, Collection<String> recorded) {
+        Set<String> variants = new LinkedHashSet<>(properties.getVariants().keySet());
+        variants.addAll(recorded);
+        for (String variant : variants) {
+            try {
+                supabaseService.deleteFile(thumbnailPath(storagePath, variant));
+            } catch (Exception e) {
+                log.debug("Could not delete thumbnail {} of {}: {}", variant, storagePath, e.getMessage());
+            }
+        }
+    }
+
+    // Not retried automatically: most failures (unreadable or missing originals) would only fail again
+    public void markFailed(UUID fileId, String mimeType, Exception cause) {
+        log.warn("Thumbnail generation failed for {} ({}): {}", fileId, mimeType, cause.getMessage());
+        try {
+            fileRepository.recordThumbnails(fileId, ThumbnailStatus.FAILED, null, null, null);
+        } catch (Exception e) {
+            log.warn("Could not mark thumbnails failed for {}: {}", fileId, e.getMessage());
+        }
+    }
+
+    // Longest side of the largest variant, in pixels
+    public int largestVariant() {
+        return properties.getVariants().values().stream().mapToInt(Integer::intValue).max().orElse(0);
+    }
+
+    private void generate(Job job) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            store(job.fileId(), job.storagePath(), orient(decode(job), job.orientation()), true);
+            duplicateService.invalidate(job.userId());
+            outcome = DriveXMetrics.SUCCESS;
+        } catch (Exception e) {
+            markFailed(job.fileId(), job.mimeType(), e);
+        } finally {
+            inFlight.remove(job.fileId());
+            metrics.stop(sample, "drivex.thumbnails", "image", outcome);
+        }
+    }
+
+    /**
+     * Reads the image straight from storage, skipping rows and columns so the
+     * decoded image is no more than about twice the largest variant
+     */
+    private BufferedImage decode(Job job) throws IOException {
+        int largest = largestVariant();
+        try (InputStream in = supabaseService.openFile(job.storagePath(), 0, job.sizeBytes() - 1);
+             ImageInputStream input = ImageIO.createImageInputStream(in)) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IIOException("No image reader for " + job.mimeType());
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > properties.getMaxPixels()) {
+                    throw new IIOException("Image is " + width + "x" + height + ", over the pixel limit");
+                }
+                int step = Math.max(1, Math.max(width, height) / (2 * largest));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Turns the image upright; ImageIO ignores the EXIF orientation
+    private static BufferedImage orient(BufferedImage image, Short orientation) {
+        if (orientation == null) {
+            return image;
+        }
+        return switch (orientation) {
+            case 2 -> Scalr.rotate(image, Scalr.Rotation.FLIP_HORZ);
+            case 3 -> Scalr.rotate(image, Scalr.Rotation.CW_180);
+            case 4 -> Scalr.rotate(image, Scalr.Rotation.FLIP_VERT);
+            case 5 -> Scalr.rotate(Scalr.rotate(image, Scalr.Rotation.CW_90), Scalr.Rotation.FLIP_HORZ);
+            case 6 -> Scalr.rotate(image, Scalr.Rotation.CW_90);
+            case 7 -> Scalr.rotate(Scalr.rotate(image, Scalr.Rotation.CW_90), Scalr.Rotation.FLIP_VERT);
+            case 8 -> Scalr.rotate(image, Scalr.Rotation.CW_270);
+            default -> image;
+        };
+    }
+
+    private static BufferedImage scale(BufferedImage image, int longestSide) {
+        if (Math.max(image.getWidth(), image.getHeight()) <= longestSide) {
+            return image;
+        }
+        return Scalr.resize(image, Scalr.Method.QUALITY, longestSide);
+    }
+
+    // JPEG has no alpha channel; transparent areas become white
+    private static BufferedImage flatten(BufferedImage image) {
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, rgb.getWidth(), rgb.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private byte[] encode(BufferedImage rgb) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream output = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(properties.getQuality());
+            writer.write(null, new IIOImage(rgb, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,257 @@
+package com.rdp.backenddrivex.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipException;
+
+/**
+ * Reads a ZIP archive's central directory, the listing of its entries at the
+ * end of the file, through range reads: the tail holding the end record, and
+ * then the directory itself unless the tail already covers it. ZIP64 archives
+ * and archives with data in front (self-extractors) are handled; multi-volume
+ * archives are not.
+ */
+final class ZipDirectory {
+
+    static final int METHOD_STORED = 0;
+    static final int METHOD_DEFLATED = 8;
+
+    private static final int END_SIGNATURE = 0x06054b50;
+    private static final int END_SIZE = 22;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_LOCATOR_SIZE = 20;
+    private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_END_SIZE = 56;
+    private static final int ZIP64_EXTRA = 0x0001;
+    private static final int ENTRY_SIGNATURE = 0x02014b50;
+    private static final int ENTRY_SIZE = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    static final int LOCAL_HEADER_SIZE = 30;
+    private static final int MAX_COMMENT = 0xffff;
+    private static final long ZIP64_MARKER = 0xffffffffL;
+    // Flag bits: the entry is encrypted; its name is UTF-8 rather than CP437
+    private static final int FLAG_ENCRYPTED = 0x1;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final Charset CP437 = Charset.forName("IBM437");
+
+    /**
+     * An entry as listed in the central directory; {@code headerLength} is
+     * the length of its name and extra field there, usually also those of
+     * its local header
+     */
+    record Entry(String name, int method, int flags, long crc, long compressedSize, long size,
+                 long localHeaderOffset, int headerLength, LocalDateTime modifiedAt) {
+
+        boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        boolean isEncrypted() {
+            return (flags & FLAG_ENCRYPTED) != 0;
+        }
+    }
+
+    @FunctionalInterface
+    interface RangeReader {
+
+        /**
+         * Exactly {@code length} bytes of the archive from {@code offset}
+         */
+        byte[] read(long offset, int length) throws IOException;
+    }
+
+    private ZipDirectory() {
+    }
+
+    /**
+     * The entries of an archive of {@code archiveSize} bytes, in directory
+     * order; {@code tailSize} bytes are read first, in the hope that they hold
+     * the whole directory
+     */
+    static List<Entry> read(long archiveSize, int tailSize, long maxDirectorySize, int maxEntries, RangeReader reader)
+            throws IOException {
+        if (archiveSize < END_SIZE) {
+            throw new ZipException("Too short to be a ZIP archive");
+        }
+        int tailLength = (int) Math.min(archiveSize, Math.max(tailSize, END_SIZE));
+        byte[] tail = reader.read(archiveSize - tailLength, tailLength);
+        int end = findEnd(tail);
+        int longestTail = (int) Math.min(archiveSize, END_SIZE + MAX_COMMENT);
+        if (end < 0 && tailLength < longestTail) {
+            // A long archive comment pushed the end record out of the first read
+            tailLength = longestTail;
+            tail = reader.read(archiveSize - tailLength, tailLength);
+            end = findEnd(tail);
+        }
+        if (end < 0) {
+            throw new ZipException("No end of central directory record");
+        }
+        long tailStart = archiveSize - tailLength;
+        ByteBuffer buffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+
+        long disk = u16(buffer, end + 4);
+        long directoryDisk = u16(buffer, end + 6);
+        long directorySize = u32(buffer, end + 12);
+        long directoryOffset = u32(buffer, end + 16);
+        // Where the directory ends: at the end record, or at the ZIP64 end record before it
+        long directoryEnd = tailStart + end;
+        int locator = end - ZIP64_LOCATOR_SIZE;
+        if ((directorySize == ZIP64_MARKER || directoryOffset == ZIP64_MARKER || u16(buffer, end + 10) == 0xffff)
+                && locator >= 0 && buffer.getInt(locator) == ZIP64_LOCATOR_SIGNATURE) {
+            long zip64End = buffer.getLong(locator + 8);
+            if (zip64End < 0 || zip64End > archiveSize - ZIP64_END_SIZE) {
+                throw new ZipException("ZIP64 end of central directory record lies outside the archive");
+            }
+            ByteBuffer record = zip64End >= tailStart
+                    ? ByteBuffer.wrap(tail, (int) (zip64End - tailStart), ZIP64_END_SIZE).slice()
+                    : ByteBuffer.wrap(reader.read(zip64End, ZIP64_END_SIZE));
+            record.order(ByteOrder.LITTLE_ENDIAN);
+            if (record.getInt(0) != ZIP64_END_SIGNATURE) {
+                throw new ZipException("Bad ZIP64 end of central directory record");
+            }
+            disk = u32(record, 16);
+            directoryDisk = u32(record, 20);
+            directorySize = record.getLong(40);
+            directoryOffset = record.getLong(48);
+            directoryEnd = zip64End;
+        }
+        if (disk != 0 || directoryDisk != 0) {
+            throw new ZipException("Multi-volume archives are not supported");
+        }
+        // Data in front of the archive shifts every offset in it by the same amount
+        long shift = directoryEnd - directorySize - directoryOffset;
+        if (directorySize < 0 || directoryOffset < 0 || shift < 0 || directoryEnd > archiveSize) {
+            throw new ZipException("Central directory does not fit the archive");
+        }
+        if (directorySize > maxDirectorySize) {
+            throw new ZipException("Central directory is " + directorySize + " bytes, over the limit of "
+                    + maxDirectorySize);
+        }
+
+        long directoryStart = directoryOffset + shift;
+        byte[] directory = directoryStart >= tailStart
+                ? Arrays.copyOfRange(tail, (int) (directoryStart - tailStart), (int) (directoryEnd - tailStart))
+                : reader.read(directoryStart, (int) directorySize);
+        return parse(ByteBuffer.wrap(directory).order(ByteOrder.LITTLE_ENDIAN), shift, maxEntries);
+    }
+
+    /**
+     * Length of the local header at the start of {@code header}, which holds
+     * at least {@link #LOCAL_HEADER_SIZE} bytes: the entry's data follows it
+     */
+    static int localHeaderLength(byte[] header) throws ZipException {
+        ByteBuffer buffer = ByteBuffer.wrap(header).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.length < LOCAL_HEADER_SIZE || buffer.getInt(0) != LOCAL_SIGNATURE) {
+            throw new ZipException("Bad local file header");
+        }
+        return LOCAL_HEADER_SIZE + (int) u16(buffer, 26) + (int) u16(buffer, 28);
+    }
+
+    // Entries until the directory runs out; the count in the end record wraps at 65535 in older writers
+    private static List<Entry> parse(ByteBuffer directory, long shift, int maxEntries) throws ZipException {
+        List<Entry> entries = new ArrayList<>();
+        int position = 0;
+        while (position < directory.limit()) {
+            if (position + ENTRY_SIZE > directory.limit() || directory.getInt(position) != ENTRY_SIGNATURE) {
+                throw new ZipException("Bad central directory entry at " + position);
+            }
+            if (entries.size() == maxEntries) {
+                throw new ZipException("Archive has more than " + maxEntries + " entries");
+            }
+            int flags = (int) u16(directory, position + 8);
+            int method = (int) u16(directory, position + 10);
+            int time = (int) u16(directory, position + 12);
+            int date = (int) u16(directory, position + 14);
+            long crc = u32(directory, position + 16);
+            long compressedSize = u32(directory, position + 20);
+            long size = u32(directory, position + 24);
+            int nameLength = (int) u16(directory, position + 28);
+            int extraLength = (int) u16(directory, position + 30);
+            int commentLength = (int) u16(directory, position + 32);
+            long localHeaderOffset = u32(directory, position + 42);
+            int next = position + ENTRY_SIZE + nameLength + extraLength + commentLength;
+            if (next > directory.limit()) {
+                throw new ZipException("Central directory entry at " + position + " runs past the directory");
+            }
+
+            byte[] nameBytes = new byte[nameLength];
+            directory.get(position + ENTRY_SIZE, nameBytes);
+            String name = new String(nameBytes, (flags & FLAG_UTF8) != 0 ? StandardCharsets.UTF_8 : CP437);
+
+            // Sizes and offset too large for 32 bits are in the ZIP64 extra field, in this order
+            int extra = position + ENTRY_SIZE + nameLength;
+            int extraEnd = extra + extraLength;
+            while (extra + 4 <= extraEnd) {
+                int id = (int) u16(directory, extra);
+                int length = (int) u16(directory, extra + 2);
+                int field = extra + 4;
+                int fieldEnd = field + length;
+                if (fieldEnd > extraEnd) {
+                    break;
+                }
+                if (id == ZIP64_EXTRA) {
+                    if (size == ZIP64_MARKER && field + 8 <= fieldEnd) {
+                        size = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (compressedSize == ZIP64_MARKER && field + 8 <= fieldEnd) {
+                        compressedSize = directory.getLong(field);
+                        field += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MARKER && field + 8 <= fieldEnd) {
+                        localHeaderOffset = directory.getLong(field);
+                    }
+                }
+                extra += 4 + length;
+            }
+            if (size < 0 || compressedSize < 0 || localHeaderOffset < 0) {
+                throw new ZipException("Entry " + name + " has an impossible size or offset");
+            }
+
+            entries.add(new Entry(name, method, flags, crc, compressedSize, size, localHeaderOffset + shift,
+                    nameLength + extraLength, dosTime(date, time)));
+            position = next;
+        }
+        return entries;
+    }
+
+    // Last end record signature that is followed by exactly its comment, searching back from the end
+    private static int findEnd(byte[] tail) {
+        ByteBuffer buffer = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = tail.length - END_SIZE; i >= 0; i--) {
+            if (buffer.getInt(i) == END_SIGNATURE && i + END_SIZE + u16(buffer, i + 20) == tail.length) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // MS-DOS date and time, local time with two-second resolution
+    private static LocalDateTime dosTime(int date, int time) {
+        if (date == 0) {
+            return null;
+        }
+        try {
+            return LocalDateTime.of(((date >> 9) & 0x7f) + 1980, (date >> 5) & 0x0f, date & 0x1f,
+                    (time >> 11) & 0x1f, (time >> 5) & 0x3f, (time & 0x1f) * 2);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static long u16(ByteBuffer buffer, int index) {
+        return buffer.getShort(index) & 0xffffL;
+    }
+
+    private static long u32(ByteBuffer buffer, int index) {
+        return buffer.getInt(index) & 0xffffffffL;
+    }
+}
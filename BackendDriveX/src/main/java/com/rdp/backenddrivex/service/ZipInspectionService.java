@@ -0,0 +1,325 @@
+package com.rdp.backenddrivex.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.rdp.backenddrivex.config.ZipInspectionProperties;
+import com.rdp.backenddrivex.dto.response.ZipEntriesResponse;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.exception.BadRequestException;
+import com.rdp.backenddrivex.exception.FileStorageException;
+import com.rdp.backenddrivex.exception.ResourceNotFoundException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Lists the entries of uploaded ZIP archives and streams single entries out
+ * of them without fetching the archive. A listing range-reads the end of the
+ * archive and its central directory (usually one read covers both) and is
+ * cached; an entry is one range read from its local header to the end of its
+ * data, inflated on the way out and checked against its CRC.
+ *
+ * <p>Reads go through {@link StorageCache#openRange}, so they use a local copy
+ * of the archive if it was downloaded often enough to have one, but never
+ * cause one to be made.
+ */
+@Service
+public class ZipInspectionService {
+
+    private static final Set<String> ZIP_TYPES = Set.of("application/zip", "application/x-zip-compressed",
+            "application/x-zip");
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Read past the data in case the local header's extra field is longer than the directory's
+    private static final int LOCAL_HEADER_SLACK = 256;
+
+    private final StorageCache storageCache;
+    private final ZipInspectionProperties properties;
+    private final DriveXMetrics metrics;
+    // Storage path -> entries; paths are never reused, so listings never go stale
+    private final Cache<String, List<ZipDirectory.Entry>> listings;
+
+    public ZipInspectionService(StorageCache storageCache, ZipInspectionProperties properties, DriveXMetrics metrics,
+                                MeterRegistry meterRegistry) {
+        this.storageCache = storageCache;
+        this.properties = properties;
+        this.metrics = metrics;
+        if (properties.getMaxDirectorySize().toBytes() > Integer.MAX_VALUE
+                || properties.getTailReadSize().toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalStateException("app.zip-inspection read sizes must be at most 2GB");
+        }
+        this.listings = Caffeine.newBuilder()
+                .maximumWeight(properties.getCacheMaxEntries())
+                .weigher((String storagePath, List<ZipDirectory.Entry> entries) -> entries.size() + 1)
+                .expireAfterAccess(properties.getCacheIdleTimeout())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, listings, "drivex.zip.listings");
+    }
+
+    public static boolean isZip(String mimeType) {
+        return mimeType != null && ZIP_TYPES.contains(mimeType.toLowerCase());
+    }
+
+    public ZipEntriesResponse listEntries(File file, int page, int size) {
+        if (page < 0 || size < 1 || size > MAX_PAGE_SIZE) {
+            throw new BadRequestException("Invalid page or size");
+        }
+        List<ZipDirectory.Entry> entries = entries(file);
+        int from = (int) Math.min(entries.size(), (long) page * size);
+        int to = (int) Math.min(entries.size(), (long) from + size);
+        List<ZipEntriesResponse.Entry> pageEntries = new ArrayList<>(to - from);
+        for (int index = from; index < to; index++) {
+            ZipDirectory.Entry entry = entries.get(index);
+            pageEntries.add(new ZipEntriesResponse.Entry(index, entry.name(), entry.isDirectory(), entry.size(),
+                    entry.compressedSize(), entry.modifiedAt(), isExtractable(entry)));
+        }
+        return new ZipEntriesResponse(page, size, entries.size(), pageEntries);
+    }
+
+    public void writeEntry(File file, int index, HttpServletResponse response) throws IOException {
+        List<ZipDirectory.Entry> entries = entries(file);
+        if (index < 0 || index >= entries.size()) {
+            throw new ResourceNotFoundException("Archive entry not found");
+        }
+        ZipDirectory.Entry entry = entries.get(index);
+        if (!isExtractable(entry)) {
+            throw new BadRequestException(entry.isDirectory() ? "Entry is a directory"
+                    : "Entry is encrypted or compressed in a way that cannot be extracted");
+        }
+        if (entry.compressedSize() == 0 && entry.size() > 0) {
+            throw new BadRequestException("Archive entry " + entry.name() + " has no data");
+        }
+        // Neither is negative, so this cannot overflow
+        if (entry.compressedSize() > file.getStorageSize() - ZipDirectory.LOCAL_HEADER_SIZE - entry.localHeaderOffset()) {
+            throw new BadRequestException("Archive entry " + entry.name() + " lies outside the archive");
+        }
+
+        String name = entry.name().substring(entry.name().lastIndexOf('/') + 1);
+        response.setContentType(MediaTypeFactory.getMediaType(name).orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(entry.size());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(name, StandardCharsets.UTF_8).build().toString());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        // Archived HTML or SVG must not run scripts as this origin
+        response.setHeader("Content-Security-Policy", "sandbox");
+
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            if (entry.compressedSize() > 0) {
+                copyEntry(file, entry, response);
+            }
+            outcome = DriveXMetrics.SUCCESS;
+        } catch (FileStorageException e) {
+            // Nothing sent yet: drop the entry's headers so the error handler can answer with JSON
+            if (!response.isCommitted()) {
+                response.reset();
+            }
+            throw e;
+        } finally {
+            metrics.stop(sample, "drivex.zip", "entry", outcome);
+        }
+    }
+
+    private List<ZipDirectory.Entry> entries(File file) {
+        if (!isZip(file.getMimeType()) || file.getContentEncoding() != null) {
+            throw new BadRequestException("File is not a ZIP archive");
+        }
+        return listings.get(file.getStoragePath(), storagePath -> readDirectory(storagePath, file.getStorageSize()));
+    }
+
+    private List<ZipDirectory.Entry> readDirectory(String storagePath, long archiveSize) {
+        Timer.Sample sample = metrics.start();
+        String outcome = DriveXMetrics.ERROR;
+        try {
+            List<ZipDirectory.Entry> entries = ZipDirectory.read(archiveSize,
+                    (int) properties.getTailReadSize().toBytes(), properties.getMaxDirectorySize().toBytes(),
+                    properties.getMaxEntries(), (offset, length) -> readRange(storagePath, offset, length));
+            outcome = DriveXMetrics.SUCCESS;
+            return List.copyOf(entries);
+        } catch (ZipException e) {
+            outcome = "invalid";
+            throw new BadRequestException("Cannot list archive: " + e.getMessage());
+        } catch (IOException e) {
+            throw new FileStorageException("Could not read archive " + storagePath, e);
+        } finally {
+            metrics.stop(sample, "drivex.zip", "list", outcome);
+        }
+    }
+
+    private byte[] readRange(String storagePath, long offset, int length) throws IOException {
+        try (InputStream in = storageCache.openRange(storagePath, offset, offset + length - 1)) {
+            byte[] bytes = in.readNBytes(length);
+            if (bytes.length != length) {
+                throw new IOException("Storage sent " + bytes.length + " of " + length + " bytes for " + storagePath);
+            }
+            return bytes;
+        }
+    }
+
+    private void copyEntry(File file, ZipDirectory.Entry entry, HttpServletResponse response) throws IOException {
+        long archiveSize = file.getStorageSize();
+        long first = entry.localHeaderOffset();
+        long last = Math.min(archiveSize - 1, first + ZipDirectory.LOCAL_HEADER_SIZE + entry.headerLength()
+                + LOCAL_HEADER_SLACK + entry.compressedSize() - 1);
+
+        InputStream in = storageCache.openRange(file.getStoragePath(), first, last);
+        Inflater inflater = null;
+        try {
+            int headerLength = ZipDirectory.localHeaderLength(in.readNBytes(ZipDirectory.LOCAL_HEADER_SIZE));
+            long dataStart = first + headerLength;
+            // The local header's own name and extra field can differ from the directory's
+            if (entry.compressedSize() > archiveSize - dataStart) {
+                throw new ZipException("Entry " + entry.name() + " lies outside the archive");
+            }
+            if (dataStart + entry.compressedSize() - 1 > last) {
+                // Local extra field longer than expected: read the data on its own
+                in.close();
+                in = storageCache.openRange(file.getStoragePath(), dataStart, dataStart + entry.compressedSize() - 1);
+            } else {
+                in.skipNBytes(headerLength - ZipDirectory.LOCAL_HEADER_SIZE);
+            }
+            InputStream data = new LimitedInputStream(in, entry.compressedSize());
+            if (entry.method() == ZipDirectory.METHOD_DEFLATED) {
+                inflater = new Inflater(true);
+                // A few KB can inflate to gigabytes: stop at the first byte past the size the directory claims
+                data = new OversizeCheckingInputStream(new InflaterInputStream(data, inflater, 64 * 1024),
+                        entry.name(), entry.size());
+            }
+            CheckedInputStream checked = new CheckedInputStream(data, new CRC32());
+            long copied = checked.transferTo(response.getOutputStream());
+            // Throwing aborts the connection, so the client sees a failed download rather than a bad file
+            if (copied != entry.size()) {
+                throw new IOException("Entry " + entry.name() + " extracted to " + copied + " of " + entry.size()
+                        + " bytes");
+            }
+            if (checked.getChecksum().getValue() != entry.crc()) {
+                throw new IOException("Entry " + entry.name() + " failed its CRC check");
+            }
+        } catch (ZipException e) {
+            if (!response.isCommitted()) {
+                response.reset();
+                throw new BadRequestException("Cannot extract entry: " + e.getMessage());
+            }
+            throw e;
+        } finally {
+            in.close();
+            if (inflater != null) {
+                inflater.end();
+            }
+        }
+    }
+
+    private static boolean isExtractable(ZipDirectory.Entry entry) {
+        return !entry.isDirectory() && !entry.isEncrypted()
+                && (entry.method() == ZipDirectory.METHOD_STORED || entry.method() == ZipDirectory.METHOD_DEFLATED);
+    }
+
+    /**
+     * The first {@code remaining} bytes of a stream
+     */
+    private static final class LimitedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        LimitedInputStream(InputStream in, long remaining) {
+            super(in);
+            this.remaining = remaining;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read();
+            if (read >= 0) {
+                remaining--;
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+    }
+
+    /**
+     * A stream that must end after {@code remaining} bytes; a byte past them
+     * fails the read
+     */
+    private static final class OversizeCheckingInputStream extends FilterInputStream {
+
+        private final String name;
+        private final long size;
+        private long remaining;
+
+        OversizeCheckingInputStream(InputStream in, String name, long size) {
+            super(in);
+            this.name = name;
+            this.size = size;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0 && remaining-- == 0) {
+                throw oversize();
+            }
+            return read;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (remaining == 0) {
+                // Only the end of the stream may follow
+                if (super.read() >= 0) {
+                    throw oversize();
+                }
+                return -1;
+            }
+            int read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        private ZipException oversize() {
+            return new ZipException("Entry " + name + " extracts to more than " + size + " bytes");
+        }
+    }
+}
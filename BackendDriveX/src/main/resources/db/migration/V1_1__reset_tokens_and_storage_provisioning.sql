@@ -0,0 +1,16 @@
+-- Added with the database reset token store and one-time storage
+-- provisioning, after the schema V1 describes. Databases baselined at V1
+-- run this; IF NOT EXISTS keeps it safe where ddl-auto=update already
+-- created either while it still owned the schema.
+
+-- SHA-256 of each outstanding password reset token (DatabaseResetTokenStore)
+CREATE TABLE IF NOT EXISTS password_reset_tokens (
+    token_hash VARCHAR(64)  NOT NULL,
+    email      VARCHAR(255) NOT NULL,
+    expires_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT password_reset_tokens_pkey PRIMARY KEY (token_hash)
+);
+
+-- Existing users are provisioned again once at their next sign-in, which is
+-- idempotent (StorageProvisioningService)
+ALTER TABLE users ADD COLUMN IF NOT EXISTS storage_provisioned BOOLEAN NOT NULL DEFAULT FALSE;
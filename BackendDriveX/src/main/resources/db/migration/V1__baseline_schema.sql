@@ -0,0 +1,31 @@
+-- Schema as Hibernate's ddl-auto=update created it before migrations existed.
+-- Databases that already have these tables are baselined at version 1
+-- (spring.flyway.baseline-on-migrate) and only run later versions.
+
+CREATE TABLE users (
+    id            UUID         NOT NULL,
+    name          VARCHAR(100) NOT NULL,
+    email         VARCHAR(255) NOT NULL,
+    password_hash VARCHAR(60),
+    created_at    TIMESTAMP(6) NOT NULL,
+    auth_provider VARCHAR(255) NOT NULL,
+    CONSTRAINT users_pkey PRIMARY KEY (id),
+    CONSTRAINT users_email_key UNIQUE (email),
+    CONSTRAINT users_auth_provider_check CHECK (auth_provider IN ('LOCAL', 'GOOGLE'))
+);
+
+CREATE TABLE files (
+    id           UUID         NOT NULL,
+    user_id      UUID         NOT NULL,
+    filename     VARCHAR(255) NOT NULL,
+    storage_path VARCHAR(255) NOT NULL,
+    url          VARCHAR(255),
+    mime_type    VARCHAR(255) NOT NULL,
+    size_bytes   BIGINT       NOT NULL,
+    uploaded_at  TIMESTAMP(6) NOT NULL,
+    is_deleted   BOOLEAN      NOT NULL,
+    deleted_at   TIMESTAMP(6),
+    description  VARCHAR(255),
+    CONSTRAINT files_pkey PRIMARY KEY (id),
+    CONSTRAINT files_user_id_fkey FOREIGN KEY (user_id) REFERENCES users (id)
+);
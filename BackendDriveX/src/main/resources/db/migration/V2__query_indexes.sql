@@ -0,0 +1,36 @@
+-- Indexes for the FileRepository and PasswordResetTokenRepository queries.
+-- Built CONCURRENTLY so existing tables stay writable; that can't run in a
+-- transaction (see the .conf file). A build that fails part way leaves an
+-- INVALID index behind, which the startup check reports; rebuild it with
+-- REINDEX INDEX CONCURRENTLY (and flyway repair if V2 is marked failed).
+-- Names are listed in DatabaseMigrationConfig.REQUIRED_INDEXES.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+-- Lets one GIN index combine the user_id equality with the trigram match
+CREATE EXTENSION IF NOT EXISTS btree_gin;
+
+-- Listing, type filters, page counts and the storage SUM: all filter on one
+-- user's live files and most sort by upload time. Partial, so soft-deleted
+-- rows cost nothing, and covering, so page counts (with or without a MIME
+-- filter) and the SUM are index-only scans.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_user_live_uploaded_idx
+    ON files (user_id, uploaded_at DESC)
+    INCLUDE (id, size_bytes, mime_type)
+    WHERE NOT is_deleted;
+
+-- Search: LOWER(filename) LIKE '%term%' within one user's live files
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_user_live_filename_trgm_idx
+    ON files USING gin (user_id, lower(filename) gin_trgm_ops)
+    WHERE NOT is_deleted;
+
+-- Cleanup of soft-deleted files older than a cutoff
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_deleted_at_idx
+    ON files (deleted_at)
+    WHERE is_deleted;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_storage_path_idx
+    ON files (storage_path);
+
+-- Batched removal of expired reset tokens
+CREATE INDEX CONCURRENTLY IF NOT EXISTS password_reset_tokens_expires_at_idx
+    ON password_reset_tokens (expires_at);
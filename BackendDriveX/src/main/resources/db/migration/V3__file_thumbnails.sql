@@ -0,0 +1,14 @@
+-- Thumbnails generated after upload (ThumbnailService). thumbnail_status is
+-- NULL for images uploaded before thumbnails existed, which the backfill job
+-- picks up; PENDING while queued; READY or FAILED afterwards. thumbnails maps
+-- each variant name to the public URL of its JPEG.
+-- Runs outside a transaction for the concurrent index build (see the .conf
+-- file); adding nullable columns without a default only touches the catalog.
+ALTER TABLE files ADD COLUMN IF NOT EXISTS thumbnail_status VARCHAR(16);
+ALTER TABLE files ADD COLUMN IF NOT EXISTS thumbnails JSONB;
+
+-- The backfill job's work list: live images still without thumbnails
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_thumbnail_backlog_idx
+    ON files (uploaded_at DESC)
+    WHERE NOT is_deleted AND mime_type LIKE 'image/%'
+      AND (thumbnail_status IS NULL OR thumbnail_status = 'PENDING');
@@ -0,0 +1,7 @@
+-- PDFs get a first-page preview (PdfPreviewService), recorded in the
+-- thumbnail columns from V3. This is the PDF backfill job's work list: live
+-- PDFs still without a preview. Built concurrently (see the .conf file).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_pdf_preview_backlog_idx
+    ON files (uploaded_at DESC)
+    WHERE NOT is_deleted AND mime_type = 'application/pdf'
+      AND (thumbnail_status IS NULL OR thumbnail_status = 'PENDING');
@@ -0,0 +1,10 @@
+-- Read from image headers at upload (ImageMetadataService): width and height
+-- as displayed, i.e. after the EXIF orientation is applied; the EXIF
+-- orientation itself (1-8); and the EXIF date taken, in the camera's local
+-- time. blurhash is a compact placeholder computed with the thumbnails. All
+-- are NULL for files that are not images and for images uploaded before.
+ALTER TABLE files ADD COLUMN IF NOT EXISTS width INTEGER;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS height INTEGER;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS orientation SMALLINT;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS taken_at TIMESTAMP;
+ALTER TABLE files ADD COLUMN IF NOT EXISTS blurhash VARCHAR(64);
@@ -0,0 +1,14 @@
+-- 64-bit difference hash of each image, recorded with its thumbnails, for
+-- finding near-duplicates (DuplicateService). Images thumbnailed before have
+-- none; to hash them, regenerate their thumbnails:
+--   UPDATE files SET thumbnail_status = NULL
+--   WHERE thumbnail_status = 'READY' AND perceptual_hash IS NULL AND mime_type LIKE 'image/%'
+-- Runs outside a transaction for the concurrent index build (see the .conf file).
+ALTER TABLE files ADD COLUMN IF NOT EXISTS perceptual_hash BIGINT;
+
+-- A user's hashes, read whole to build their in-memory index; covering, so
+-- the read never touches the table
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_user_perceptual_hash_idx
+    ON files (user_id)
+    INCLUDE (id, perceptual_hash)
+    WHERE NOT is_deleted AND perceptual_hash IS NOT NULL;
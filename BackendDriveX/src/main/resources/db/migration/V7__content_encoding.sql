@@ -0,0 +1,6 @@
+-- Compressible uploads (text, JSON, XML) may be stored gzip-compressed
+-- (app.compression). content_encoding names the codec the stored object is in
+-- and stored_size_bytes its size in storage; size_bytes stays the size of the
+-- file as uploaded. Both are NULL for files stored as uploaded.
+ALTER TABLE files ADD COLUMN IF NOT EXISTS content_encoding VARCHAR(16);
+ALTER TABLE files ADD COLUMN IF NOT EXISTS stored_size_bytes BIGINT;
@@ -0,0 +1,19 @@
+-- The text of documents is extracted after upload and indexed for content
+-- search (ContentIndexService). text_index_status is NULL for documents
+-- uploaded before, which the backfill job picks up; PENDING while queued;
+-- INDEXED once the index holding the text is committed; FAILED when no text
+-- could be extracted. Files that are not documents have no status.
+-- Runs outside a transaction for the concurrent index build (see the .conf
+-- file); adding a nullable column without a default only touches the catalog.
+ALTER TABLE files ADD COLUMN IF NOT EXISTS text_index_status VARCHAR(16);
+
+-- The backfill job's work list: live documents not yet indexed. The document
+-- types are those of File.kindOf.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_text_index_backlog_idx
+    ON files (uploaded_at DESC)
+    WHERE NOT is_deleted
+      AND mime_type NOT LIKE 'image/%' AND mime_type NOT LIKE 'video/%' AND mime_type NOT LIKE 'audio/%'
+      AND (mime_type LIKE '%pdf%' OR mime_type LIKE 'text/%' OR mime_type LIKE '%word%'
+        OR mime_type LIKE '%sheet%' OR mime_type LIKE '%presentation%' OR mime_type LIKE '%officedocument%'
+        OR mime_type LIKE '%json%' OR mime_type LIKE '%xml%' OR mime_type LIKE '%csv%')
+      AND (text_index_status IS NULL OR text_index_status = 'PENDING');
@@ -0,0 +1,48 @@
+-- The content index is node-local (ContentIndex), so whether a document is
+-- indexed is a fact about one index, not about the file: each index has an
+-- id of its own, kept in its directory, and records its documents here.
+-- A node whose index is rebuilt clears only its own records, and a node
+-- joining later indexes every document through its backfill job.
+-- Runs outside a transaction for the concurrent index builds (see the .conf
+-- file).
+CREATE TABLE IF NOT EXISTS content_indexes (
+    id           UUID         NOT NULL,
+    created_at   TIMESTAMP(6) NOT NULL,
+    -- Refreshed by the owning node's backfill job; indexes not seen for
+    -- app.content-search.forget-index-after lose their records
+    last_seen_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT content_indexes_pkey PRIMARY KEY (id)
+);
+
+-- INDEXED once the index holding the text is committed; FAILED when no text
+-- could be extracted. Documents without a row are the backfill job's work.
+CREATE TABLE IF NOT EXISTS content_index_documents (
+    index_id   UUID         NOT NULL,
+    file_id    UUID         NOT NULL,
+    status     VARCHAR(16)  NOT NULL,
+    updated_at TIMESTAMP(6) NOT NULL,
+    CONSTRAINT content_index_documents_pkey PRIMARY KEY (index_id, file_id),
+    CONSTRAINT content_index_documents_index_id_fkey FOREIGN KEY (index_id)
+        REFERENCES content_indexes (id) ON DELETE CASCADE,
+    CONSTRAINT content_index_documents_file_id_fkey FOREIGN KEY (file_id)
+        REFERENCES files (id) ON DELETE CASCADE
+);
+
+-- For the cascade from files
+CREATE INDEX CONCURRENTLY IF NOT EXISTS content_index_documents_file_id_idx
+    ON content_index_documents (file_id);
+
+-- The backfill job's work list: live documents, newest first, anti-joined
+-- with one index's records. The document types are those of File.kindOf.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS files_documents_idx
+    ON files (uploaded_at DESC)
+    WHERE NOT is_deleted
+      AND mime_type NOT LIKE 'image/%' AND mime_type NOT LIKE 'video/%' AND mime_type NOT LIKE 'audio/%'
+      AND (mime_type LIKE '%pdf%' OR mime_type LIKE 'text/%' OR mime_type LIKE '%word%'
+        OR mime_type LIKE '%sheet%' OR mime_type LIKE '%presentation%' OR mime_type LIKE '%officedocument%'
+        OR mime_type LIKE '%json%' OR mime_type LIKE '%xml%' OR mime_type LIKE '%csv%');
+
+-- files.text_index_status is no longer read or written; existing indexes
+-- are indexed again once, as they have no records yet. Drop the column
+-- once no node older than this migration runs.
+DROP INDEX CONCURRENTLY IF EXISTS files_text_index_backlog_idx;
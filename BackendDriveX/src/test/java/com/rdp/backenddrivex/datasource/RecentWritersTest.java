@@ -0,0 +1,89 @@
+package com.rdp.backenddrivex.datasource;
+
+import com.rdp.backenddrivex.config.JwtProperties;
+import com.rdp.backenddrivex.config.ReadReplicaProperties;
+import com.rdp.backenddrivex.security.UserPrincipal;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentWritersTest {
+
+    private static final String SECRET = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    private final UUID userId = UUID.randomUUID();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void markerFromOneNodeKeepsTheUserOnThePrimaryOfAnother() {
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(new MockHttpServletRequest(), writeResponse));
+        recentWriters(SECRET).recordWrite(userId);
+        String marker = writeResponse.getHeader(RecentWriters.HEADER);
+        assertNotNull(marker);
+
+        RecentWriters otherNode = recentWriters(SECRET);
+        authenticate(userId);
+        assertFalse(otherNode.currentUserWroteRecently());
+
+        MockHttpServletRequest read = new MockHttpServletRequest();
+        read.addHeader(RecentWriters.HEADER, marker);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(read));
+        assertTrue(otherNode.currentUserWroteRecently());
+
+        // Someone else's marker does not count
+        authenticate(UUID.randomUUID());
+        assertFalse(otherNode.currentUserWroteRecently());
+    }
+
+    @Test
+    void rejectsForgedAndExpiredMarkers() {
+        RecentWriters recentWriters = recentWriters(SECRET);
+        long now = System.currentTimeMillis();
+        assertTrue(recentWriters.markedRecent(recentWriters.marker(userId, now), userId));
+
+        // Signed with another secret
+        String foreign = recentWriters(SECRET.replace('0', 'x')).marker(userId, now);
+        assertFalse(recentWriters.markedRecent(foreign, userId));
+        // Time moved forward, signature kept
+        String marker = recentWriters.marker(userId, now - 60_000);
+        String signature = marker.substring(marker.lastIndexOf('.'));
+        assertFalse(recentWriters.markedRecent(userId + "." + now + signature, userId));
+
+        assertFalse(recentWriters.markedRecent(marker, userId));
+        assertFalse(recentWriters.markedRecent(recentWriters.marker(userId, now + 60_000), userId));
+        assertFalse(recentWriters.markedRecent("garbage", userId));
+        assertFalse(recentWriters.markedRecent(userId + ".x.!!", userId));
+    }
+
+    private static RecentWriters recentWriters(String secret) {
+        JwtProperties jwtProperties = new JwtProperties();
+        jwtProperties.setSecret(secret);
+        return new RecentWriters(new ReadReplicaProperties(), jwtProperties);
+    }
+
+    private static void authenticate(UUID userId) {
+        UserPrincipal principal = new UserPrincipal(userId, "name", "user@example.com", "hash", LocalDateTime.now());
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+}
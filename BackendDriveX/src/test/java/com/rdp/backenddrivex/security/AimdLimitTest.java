@@ -0,0 +1,127 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.ConcurrencyLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AimdLimitTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long INTERVAL = 250 * MS;
+
+    // Initial 10, between 2 and 100, cut to 0.5x above 2x the baseline
+    private static AimdLimit newLimit() {
+        return new AimdLimit(new ConcurrencyLimitProperties.ClassLimit(10, 2, 100, 0.5, 2.0, 1.0), INTERVAL);
+    }
+
+    private static void fill(AimdLimit limit, int requests) {
+        for (int i = 0; i < requests; i++) {
+            assertTrue(limit.tryAcquire());
+        }
+    }
+
+    @Test
+    void admitsUpToTheLimit() {
+        AimdLimit limit = newLimit();
+        fill(limit, 10);
+        assertFalse(limit.tryAcquire());
+        assertEquals(10, limit.getInFlight());
+        limit.release();
+        assertTrue(limit.tryAcquire());
+    }
+
+    @Test
+    void growsOnlyWhileBusy() {
+        AimdLimit limit = newLimit();
+        for (int i = 0; i < 100; i++) {
+            limit.onSample("/api/files", MS, false, i * MS);
+        }
+        assertEquals(10, limit.getLimit());
+
+        fill(limit, 10);
+        for (int i = 0; i < 100; i++) {
+            limit.onSample("/api/files", MS, false, i * MS);
+        }
+        assertTrue(limit.getLimit() > 10);
+    }
+
+    @Test
+    void failuresCutTheLimitOncePerInterval() {
+        AimdLimit limit = newLimit();
+        limit.onSample("/api/files", MS, true, INTERVAL);
+        limit.onSample("/api/files", MS, true, INTERVAL + 1);
+        assertEquals(5, limit.getLimit());
+        limit.onSample("/api/files", MS, true, 2 * INTERVAL);
+        assertEquals(2, limit.getLimit());
+        limit.onSample("/api/files", MS, true, 3 * INTERVAL);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void baselineIgnoresSamplesTakenWhileOverloaded() {
+        AimdLimit limit = newLimit();
+        for (int i = 0; i < 100; i++) {
+            limit.onSample("/api/files", MS, false, 0);
+        }
+        fill(limit, 10);
+        // Sustained overload: a slower baseline would soon stop the cuts
+        long now = INTERVAL;
+        for (int i = 0; i < 5000; i++, now += MS) {
+            limit.onSample("/api/files", 10 * MS, false, now);
+        }
+        assertEquals(1.0, limit.getBaselineMillis().get("/api/files"), 0.1);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    void baselineFollowsSlowerRouteWhileIdle() {
+        AimdLimit limit = newLimit();
+        limit.onSample("/api/files", MS, false, 0);
+        for (int i = 0; i < 2000; i++) {
+            limit.onSample("/api/files", 10 * MS, false, 0);
+        }
+        assertTrue(limit.getBaselineMillis().get("/api/files") > 9.0);
+        assertEquals(10, limit.getLimit());
+    }
+
+    @Test
+    void unknownRoutesShareOneBaseline() {
+        AimdLimit limit = newLimit();
+        for (int i = 0; i < 10 * AimdLimit.MAX_ROUTES; i++) {
+            limit.onSample("/route-" + i, MS, false, 0);
+        }
+        assertEquals(AimdLimit.MAX_ROUTES + 1, limit.getBaselineMillis().size());
+        assertTrue(limit.getBaselineMillis().containsKey(AimdLimit.OTHER_ROUTE));
+    }
+
+    @Test
+    void concurrentSamplesKeepLimitInBounds() throws Exception {
+        AimdLimit limit = newLimit();
+        fill(limit, 10);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> results = executor.invokeAll(Collections.nCopies(8, () -> {
+                for (int i = 0; i < 10_000; i++) {
+                    limit.onSample("/api/files", (i % 10 == 0 ? 10 : 1) * MS, i % 100 == 0, i * MS);
+                }
+                return null;
+            }));
+            for (Future<Object> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(limit.getLimit() >= 2 && limit.getLimit() <= 100);
+    }
+}
@@ -0,0 +1,94 @@
+package com.rdp.backenddrivex.security;
+
+import com.rdp.backenddrivex.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenReportsWaitUntilNextToken() {
+        // 3 tokens, one more every second
+        TokenBucket bucket = new TokenBucket(3, 1, SECOND, 0);
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(SECOND, bucket.tryConsume(0));
+        assertEquals(SECOND / 4, bucket.tryConsume(SECOND * 3 / 4));
+        assertEquals(0, bucket.tryConsume(SECOND));
+    }
+
+    @Test
+    void refillsUpToCapacityOnly() {
+        TokenBucket bucket = new TokenBucket(2, 1, SECOND, 0);
+        assertEquals(0, bucket.tryConsume(0));
+        assertEquals(0, bucket.tryConsume(0));
+        long later = 100 * SECOND;
+        assertEquals(0, bucket.tryConsume(later));
+        assertEquals(0, bucket.tryConsume(later));
+        assertTrue(bucket.tryConsume(later) > 0);
+    }
+
+    @Test
+    void olderClockReadingDoesNotRefillTwice() {
+        TokenBucket bucket = new TokenBucket(1, 1, SECOND, 0);
+        assertEquals(0, bucket.tryConsume(SECOND));
+        // A thread that read the clock earlier gets no tokens for time already counted
+        assertTrue(bucket.tryConsume(SECOND / 2) > 0);
+    }
+
+    @Test
+    void concurrentRequestsTakeExactlyCapacity() throws Exception {
+        int capacity = 1000;
+        // No refill during the test
+        TokenBucket bucket = new TokenBucket(capacity, 1, TimeUnit.DAYS.toNanos(1), 0);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = executor.invokeAll(Collections.nCopies(8, () -> {
+                int taken = 0;
+                for (int i = 0; i < capacity; i++) {
+                    if (bucket.tryConsume(0) == 0) {
+                        taken++;
+                    }
+                }
+                return taken;
+            }));
+            int taken = 0;
+            for (Future<Integer> result : results) {
+                taken += result.get();
+            }
+            assertEquals(capacity, taken);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void fullLimiterStillGivesEachNewClientItsOwnBucket() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setMaxBuckets(10);
+        RateLimitProperties.Policy login = new RateLimitProperties.Policy("login", "POST", "/api/auth/login",
+                RateLimitProperties.KeyType.IP, 1, 1, Duration.ofHours(1));
+        RateLimiter limiter = new RateLimiter(properties, new SimpleMeterRegistry());
+
+        // Far more distinct addresses than buckets, each using its one token
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.tryAcquire(login, "10.0." + (i / 256) + "." + (i % 256)));
+        }
+        // A client arriving after the flood is not locked out by it
+        assertEquals(0, limiter.tryAcquire(login, "192.0.2.1"));
+    }
+}
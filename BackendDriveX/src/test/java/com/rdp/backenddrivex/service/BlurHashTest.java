@@ -0,0 +1,57 @@
+package com.rdp.backenddrivex.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BlurHashTest {
+
+    // Hashes from the woltapp TypeScript encoder (and the blurhash-java port) for these images.
+    // The encoders differ only in scaling AC components by the largest value (TypeScript) or the
+    // largest absolute value (C, and this class); these images' largest component is positive,
+    // so both give the same hash.
+
+    @Test
+    void matchesReferenceEncoderForLandscape() {
+        assertEquals("L;HoH~|_$5xGq8ocjtk8gvfjfQfj", BlurHash.encode(gradient(32, 24)));
+    }
+
+    @Test
+    void matchesReferenceEncoderForPortrait() {
+        // Four components along the longer side, so portrait images use 3x4
+        assertEquals("T;HoH~|_,Yq8ocjtgcfjfQo{oIjt", BlurHash.encode(gradient(24, 32)));
+    }
+
+    @Test
+    void matchesReferenceEncoderForSquare() {
+        assertEquals("L,HetQ|w$5w{lzj?jtfigcfjfQfj", BlurHash.encode(gradient(64, 64)));
+    }
+
+    @Test
+    void matchesReferenceEncoderForSolidColour() {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                image.setRGB(x, y, 0x336699);
+            }
+        }
+        // "5?}k" is exactly 0x336699; odd components are small but not zero over whole pixels
+        assertEquals("L65?}kt:fQt:t:j]fQj]fQfQfQfQ", BlurHash.encode(image));
+    }
+
+    // Red falls left to right, green top to bottom, over a 4-pixel blue checkerboard
+    private static BufferedImage gradient(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int red = 255 - x * 255 / (width - 1);
+                int green = 255 - y * 255 / (height - 1);
+                int blue = ((x / 4 + y / 4) % 2) * 200;
+                image.setRGB(x, y, (red << 16) | (green << 8) | blue);
+            }
+        }
+        return image;
+    }
+}
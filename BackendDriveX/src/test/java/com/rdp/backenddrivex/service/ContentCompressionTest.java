@@ -0,0 +1,170 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.CompressionProperties;
+import com.rdp.backenddrivex.exception.FileStorageException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.util.function.ThrowingConsumer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ContentCompressionTest {
+
+    private static final String PATH = "user/notes.txt";
+    private static final String URL = "https://storage.example/" + PATH;
+
+    private final SupabaseService supabaseService = mock(SupabaseService.class);
+    private final CompressionProperties properties = new CompressionProperties();
+    // What the stubbed storage received, in one piece or streamed
+    private final ByteArrayOutputStream stored = new ByteArrayOutputStream();
+    // Upload bytes read from the file
+    private final AtomicLong consumed = new AtomicLong();
+    private ContentCompression compression;
+
+    @BeforeEach
+    void setUp() {
+        properties.setEnabled(true);
+        compression = new ContentCompression(supabaseService, properties, new DriveXMetrics(new SimpleMeterRegistry()));
+        when(supabaseService.uploadBytes(any(), eq(ContentCompression.STORED_TYPE), eq(PATH))).thenAnswer(invocation -> {
+            stored.writeBytes(invocation.getArgument(0));
+            return URL;
+        });
+        // Like the real one: a writer that throws cancels the upload
+        when(supabaseService.uploadStream(any(), eq(ContentCompression.STORED_TYPE), eq(PATH))).thenAnswer(invocation -> {
+            ThrowingConsumer<OutputStream> writer = invocation.getArgument(0);
+            try {
+                writer.acceptWithException(stored);
+            } catch (Exception e) {
+                throw new FileStorageException("Could not upload file to Supabase", e);
+            }
+            return URL;
+        });
+    }
+
+    @Test
+    void smallFileRoundTrips() throws IOException {
+        byte[] content = text(50_000);
+
+        ContentCompression.Compressed compressed = compression.upload(file(content), "text/plain", PATH);
+
+        assertNotNull(compressed);
+        assertEquals(URL, compressed.url());
+        assertEquals(stored.size(), compressed.storedSize());
+        assertTrue(compressed.storedSize() < content.length / 5, "stored " + compressed.storedSize());
+        assertArrayEquals(content, decode());
+        verify(supabaseService, never()).uploadStream(any(), anyString(), anyString());
+    }
+
+    @Test
+    void largeFileIsStreamedAndRoundTrips() throws IOException {
+        byte[] content = text(5 * ContentCompression.SAMPLE_SIZE + 12_345);
+
+        ContentCompression.Compressed compressed = compression.upload(file(content), "application/json", PATH);
+
+        assertNotNull(compressed);
+        assertEquals(stored.size(), compressed.storedSize());
+        assertArrayEquals(content, decode());
+        verify(supabaseService, never()).uploadBytes(any(), anyString(), anyString());
+    }
+
+    @Test
+    void stopsAfterTheSampleWhenItDoesNotShrink() throws IOException {
+        byte[] content = random(8 * ContentCompression.SAMPLE_SIZE);
+
+        assertNull(compression.upload(file(content), "text/plain", PATH));
+
+        // Nothing sent, and the rest of the file never read
+        verify(supabaseService, never()).uploadStream(any(), anyString(), anyString());
+        verify(supabaseService, never()).uploadBytes(any(), anyString(), anyString());
+        assertTrue(consumed.get() < 2L * ContentCompression.SAMPLE_SIZE, "read " + consumed.get());
+    }
+
+    @Test
+    void cancelsTheUploadOncePastTheRatio() throws IOException {
+        // Compresses well for the sample, then not at all
+        properties.setMaxRatio(0.5);
+        byte[] content = new byte[8 * ContentCompression.SAMPLE_SIZE];
+        System.arraycopy(text(2 * ContentCompression.SAMPLE_SIZE), 0, content, 0, 2 * ContentCompression.SAMPLE_SIZE);
+        byte[] noise = random(6 * ContentCompression.SAMPLE_SIZE);
+        System.arraycopy(noise, 0, content, 2 * ContentCompression.SAMPLE_SIZE, noise.length);
+
+        assertNull(compression.upload(file(content), "text/plain", PATH));
+
+        verify(supabaseService).uploadStream(any(), anyString(), anyString());
+        // Stopped at the limit, not at the end of the file
+        assertTrue(stored.size() <= content.length / 2, "sent " + stored.size());
+        assertTrue(consumed.get() < content.length - ContentCompression.SAMPLE_SIZE, "read " + consumed.get());
+    }
+
+    @Test
+    void skipsTypesThatAreNotCompressible() throws IOException {
+        assertNull(compression.upload(file(text(50_000)), "application/octet-stream", PATH));
+        assertNull(compression.upload(file(text(50_000)), "image/svg+xml", PATH));
+        assertEquals(0, consumed.get());
+    }
+
+    private byte[] decode() throws IOException {
+        try (InputStream in = ContentCompression.decode(new ByteArrayInputStream(stored.toByteArray()),
+                ContentCompression.GZIP)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private MockMultipartFile file(byte[] content) {
+        return new MockMultipartFile("file", "notes.txt", "text/plain", content) {
+            @Override
+            public InputStream getInputStream() {
+                return new FilterInputStream(new ByteArrayInputStream(content)) {
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException {
+                        int read = super.read(b, off, len);
+                        if (read > 0) {
+                            consumed.addAndGet(read);
+                        }
+                        return read;
+                    }
+                };
+            }
+        };
+    }
+
+    // Numbered log lines: compressible, but not trivially
+    private static byte[] text(int length) {
+        StringBuilder text = new StringBuilder(length + 100);
+        SplittableRandom random = new SplittableRandom(11);
+        for (int line = 0; text.length() < length; line++) {
+            text.append(line).append(" INFO request ").append(random.nextInt(100_000)).append(" served\n");
+        }
+        return text.substring(0, length).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] random(int length) {
+        byte[] bytes = new byte[length];
+        new SplittableRandom(5).nextBytes(bytes);
+        return bytes;
+    }
+}
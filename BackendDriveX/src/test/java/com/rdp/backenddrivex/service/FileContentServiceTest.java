@@ -0,0 +1,217 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileContentServiceTest {
+
+    // 100 bytes: "abcdefghij" ten times, so every range is recognisable
+    private static final byte[] CONTENT = "abcdefghij".repeat(10).getBytes(StandardCharsets.US_ASCII);
+
+    private final File file = new File();
+    private FileContentService fileContentService;
+
+    @BeforeEach
+    void setUp() {
+        file.setId(UUID.randomUUID());
+        file.setFilename("notes.txt");
+        file.setStoragePath("user/notes.txt");
+        file.setMimeType("text/plain");
+        file.setSizeBytes((long) CONTENT.length);
+        // Milliseconds, which HTTP dates drop
+        file.setUploadedAt(LocalDateTime.of(2026, 3, 14, 15, 9, 26, 535_000_000));
+
+        StorageCache storageCache = mock(StorageCache.class);
+        when(storageCache.openFile(anyString(), anyLong(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int first = (int) (long) invocation.getArgument(2, Long.class);
+            int last = (int) (long) invocation.getArgument(3, Long.class);
+            return new ByteArrayInputStream(CONTENT, first, last - first + 1);
+        });
+        fileContentService = new FileContentService(storageCache, new DriveXMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void sendsWholeFileWithoutRange() throws IOException {
+        MockHttpServletResponse response = get(null, null);
+        assertEquals(200, response.getStatus());
+        assertEquals("bytes", response.getHeader(HttpHeaders.ACCEPT_RANGES));
+        assertEquals(100, response.getContentLengthLong());
+        assertEquals(new String(CONTENT, StandardCharsets.US_ASCII), response.getContentAsString());
+    }
+
+    @Test
+    void sendsSingleRange() throws IOException {
+        MockHttpServletResponse response = get("bytes=10-14", null);
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 10-14/100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(5, response.getContentLengthLong());
+        assertEquals("abcde", response.getContentAsString());
+    }
+
+    @Test
+    void sendsSuffixAndOpenEndedRanges() throws IOException {
+        MockHttpServletResponse suffix = get("bytes=-3", null);
+        assertEquals(206, suffix.getStatus());
+        assertEquals("bytes 97-99/100", suffix.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("hij", suffix.getContentAsString());
+
+        // A suffix longer than the file is the whole file
+        MockHttpServletResponse longSuffix = get("bytes=-500", null);
+        assertEquals(206, longSuffix.getStatus());
+        assertEquals("bytes 0-99/100", longSuffix.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(100, longSuffix.getContentAsByteArray().length);
+
+        MockHttpServletResponse openEnded = get("bytes=95-", null);
+        assertEquals("bytes 95-99/100", openEnded.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("fghij", openEnded.getContentAsString());
+
+        // A last byte past the end is cut to the end
+        MockHttpServletResponse pastEnd = get("bytes=98-1000", null);
+        assertEquals("bytes 98-99/100", pastEnd.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void mergesOverlappingAndAdjacentRanges() throws IOException {
+        // Adjacent and overlapping, out of order: one range
+        MockHttpServletResponse single = get("bytes=10-19,0-4,3-9", null);
+        assertEquals(206, single.getStatus());
+        assertEquals("bytes 0-19/100", single.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("abcdefghijabcdefghij", single.getContentAsString());
+
+        MockHttpServletResponse parts = get("bytes=50-54,0-2,1-4,52-59", null);
+        assertEquals(206, parts.getStatus());
+        assertTrue(parts.getContentType().startsWith("multipart/byteranges; boundary="));
+        String body = parts.getContentAsString();
+        assertEquals(2, count(body, "Content-Range: "));
+        assertTrue(body.contains("Content-Range: bytes 0-4/100\r\n\r\nabcde\r\n"));
+        assertTrue(body.contains("Content-Range: bytes 50-59/100\r\n\r\nabcdefghij\r\n"));
+        assertTrue(body.indexOf("bytes 0-4/100") < body.indexOf("bytes 50-59/100"));
+    }
+
+    @Test
+    void multipartLengthMatchesBody() throws IOException {
+        MockHttpServletResponse response = get("bytes=0-0,20-29,-5", null);
+        assertEquals(206, response.getStatus());
+        byte[] body = response.getContentAsByteArray();
+        assertEquals(body.length, response.getContentLengthLong());
+
+        String boundary = boundary(response);
+        String text = new String(body, StandardCharsets.US_ASCII);
+        assertEquals(3, count(text, "\r\n--" + boundary + "\r\n"));
+        assertTrue(text.endsWith("\r\n--" + boundary + "--\r\n"));
+
+        // HEAD announces the length GET would send with its boundary (of random length), without a body
+        MockHttpServletRequest head = request("bytes=0-0,20-29,-5", null);
+        head.setMethod("HEAD");
+        MockHttpServletResponse headResponse = new MockHttpServletResponse();
+        fileContentService.writeContent(file, true, head, headResponse);
+        assertEquals(body.length + 4L * (boundary(headResponse).length() - boundary.length()),
+                headResponse.getContentLengthLong());
+        assertEquals(0, headResponse.getContentAsByteArray().length);
+    }
+
+    @Test
+    void answers416WhenNoRangeIsSatisfiable() throws IOException {
+        MockHttpServletResponse response = get("bytes=100-200", null);
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */100", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals(0, response.getContentAsByteArray().length);
+
+        // Unsatisfiable ranges are dropped when another one is satisfiable
+        MockHttpServletResponse partly = get("bytes=200-300,0-1", null);
+        assertEquals(206, partly.getStatus());
+        assertEquals("bytes 0-1/100", partly.getHeader(HttpHeaders.CONTENT_RANGE));
+    }
+
+    @Test
+    void ignoresMalformedOrExcessiveRanges() throws IOException {
+        assertEquals(200, get("bytes=abc", null).getStatus());
+        assertEquals(200, get("items=0-1", null).getStatus());
+
+        // More parts than are worth a storage request each
+        StringBuilder ranges = new StringBuilder("bytes=0-0");
+        for (int i = 1; i <= 20; i++) {
+            ranges.append(',').append(i * 2).append('-').append(i * 2);
+        }
+        MockHttpServletResponse response = get(ranges.toString(), null);
+        assertEquals(200, response.getStatus());
+        assertEquals(100, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void ifRangeByEtag() throws IOException {
+        String etag = get(null, null).getHeader(HttpHeaders.ETAG);
+        assertEquals("\"" + file.getId() + "\"", etag);
+
+        assertEquals(206, get("bytes=0-4", etag).getStatus());
+        // Another version of the file: the whole new one is sent
+        assertEquals(200, get("bytes=0-4", "\"" + UUID.randomUUID() + "\"").getStatus());
+        // Weak tags never match for If-Range
+        assertEquals(200, get("bytes=0-4", "W/" + etag).getStatus());
+    }
+
+    @Test
+    void ifRangeByDate() throws IOException {
+        String lastModified = get(null, null).getHeader(HttpHeaders.LAST_MODIFIED);
+        assertTrue(lastModified.endsWith("GMT"));
+
+        // The header has whole seconds; the upload time's milliseconds must not break the match
+        assertEquals(206, get("bytes=0-4", lastModified).getStatus());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.LAST_MODIFIED, lastModified);
+        headers.setDate(HttpHeaders.IF_RANGE, headers.getLastModified() - 1000);
+        // A date is a strong validator only when it is exactly the current one
+        assertEquals(200, get("bytes=0-4", headers.getFirst(HttpHeaders.IF_RANGE)).getStatus());
+        assertEquals(200, get("bytes=0-4", "not a date").getStatus());
+    }
+
+    private MockHttpServletResponse get(String range, String ifRange) throws IOException {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        fileContentService.writeContent(file, true, request(range, ifRange), response);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String range, String ifRange) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/content");
+        if (range != null) {
+            request.addHeader(HttpHeaders.RANGE, range);
+        }
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        return request;
+    }
+
+    private static String boundary(MockHttpServletResponse response) {
+        String contentType = response.getContentType();
+        return contentType.substring(contentType.indexOf("boundary=") + "boundary=".length());
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,102 @@
+package com.rdp.backenddrivex.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HammingIndexTest {
+
+    private final SplittableRandom random = new SplittableRandom(7);
+
+    @Test
+    void multiIndexSearchFindsExactlyWhatAScanFinds() {
+        // Well past the size below which the index only scans
+        HammingIndex index = index(20_000);
+        long[] queries = queries(index, 300);
+        int matched = 0;
+        for (int distance = 0; distance <= HammingIndex.MAX_DISTANCE; distance++) {
+            for (long query : queries) {
+                TreeSet<Integer> expected = scan(index, query, distance);
+                assertEquals(expected, search(index, query, distance), "distance " + distance);
+                matched += expected.size();
+            }
+        }
+        // The hashes come in clusters, so most radii have something to find
+        assertTrue(matched > queries.length * (HammingIndex.MAX_DISTANCE + 1));
+    }
+
+    @Test
+    void smallIndexScans() {
+        HammingIndex index = index(500);
+        for (long query : queries(index, 50)) {
+            assertEquals(scan(index, query, 6), search(index, query, 6));
+        }
+    }
+
+    @Test
+    void rejectsDistancesOutOfRange() {
+        HammingIndex index = index(10);
+        assertThrows(IllegalArgumentException.class, () -> index.search(0, -1, entry -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> index.search(0, HammingIndex.MAX_DISTANCE + 1, entry -> { }));
+    }
+
+    // Clusters of up to 8 hashes around random centres, each a few bits off, like burst shots
+    private HammingIndex index(int size) {
+        long[] hashes = new long[size];
+        UUID[] fileIds = new UUID[size];
+        long centre = 0;
+        for (int i = 0; i < size; i++) {
+            if (i % 8 == 0) {
+                centre = random.nextLong();
+            }
+            hashes[i] = flip(centre, random.nextInt(0, 16));
+            fileIds[i] = UUID.randomUUID();
+        }
+        return new HammingIndex(hashes, fileIds);
+    }
+
+    // Hashes in the index, hashes near them, and unrelated ones
+    private long[] queries(HammingIndex index, int count) {
+        long[] queries = new long[count];
+        for (int i = 0; i < count; i++) {
+            long hash = index.hash(random.nextInt(index.size()));
+            queries[i] = switch (i % 3) {
+                case 0 -> hash;
+                case 1 -> flip(hash, random.nextInt(1, HammingIndex.MAX_DISTANCE + 1));
+                default -> random.nextLong();
+            };
+        }
+        return queries;
+    }
+
+    private long flip(long hash, int bits) {
+        long flipped = hash;
+        while (Long.bitCount(flipped ^ hash) < bits) {
+            flipped ^= 1L << random.nextInt(64);
+        }
+        return flipped;
+    }
+
+    private static TreeSet<Integer> search(HammingIndex index, long query, int distance) {
+        TreeSet<Integer> found = new TreeSet<>();
+        index.search(query, distance, found::add);
+        return found;
+    }
+
+    private static TreeSet<Integer> scan(HammingIndex index, long query, int distance) {
+        TreeSet<Integer> found = new TreeSet<>();
+        for (int entry = 0; entry < index.size(); entry++) {
+            if (Long.bitCount(index.hash(entry) ^ query) <= distance) {
+                found.add(entry);
+            }
+        }
+        return found;
+    }
+}
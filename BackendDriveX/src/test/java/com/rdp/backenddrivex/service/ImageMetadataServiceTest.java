@@ -0,0 +1,71 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ImageMetadataServiceTest {
+
+    private final ImageMetadataService imageMetadataService =
+            new ImageMetadataService(new DriveXMetrics(new SimpleMeterRegistry()));
+
+    @ParameterizedTest
+    @ValueSource(shorts = {1, 2, 3, 4})
+    void keepsStoredSizeForUprightOrFlippedImages(short orientation) throws IOException {
+        ImageMetadataService.ImageMetadata metadata = read(jpeg(40, 30, orientation));
+        assertEquals(40, metadata.width());
+        assertEquals(30, metadata.height());
+        assertEquals(orientation, metadata.orientation());
+    }
+
+    @ParameterizedTest
+    @ValueSource(shorts = {5, 6, 7, 8})
+    void swapsWidthAndHeightForQuarterTurns(short orientation) throws IOException {
+        ImageMetadataService.ImageMetadata metadata = read(jpeg(40, 30, orientation));
+        assertEquals(30, metadata.width());
+        assertEquals(40, metadata.height());
+        assertEquals(orientation, metadata.orientation());
+    }
+
+    private ImageMetadataService.ImageMetadata read(byte[] jpeg) {
+        return imageMetadataService.read(new MockMultipartFile("file", "photo.jpg", "image/jpeg", jpeg));
+    }
+
+    // A JPEG with an EXIF segment holding only the orientation, right after the start of image marker
+    private static byte[] jpeg(int width, int height, short orientation) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "jpg", encoded);
+        byte[] image = encoded.toByteArray();
+
+        ByteBuffer tiff = ByteBuffer.allocate(26);
+        // Big-endian header, first IFD at offset 8, holding one SHORT entry and no next IFD
+        tiff.put("MM".getBytes(StandardCharsets.US_ASCII)).putShort((short) 42).putInt(8);
+        tiff.putShort((short) 1);
+        tiff.putShort((short) 0x0112).putShort((short) 3).putInt(1).putShort(orientation).putShort((short) 0);
+        tiff.putInt(0);
+        byte[] exifHeader = "Exif\0\0".getBytes(StandardCharsets.US_ASCII);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(image, 0, 2);
+        out.write(0xff);
+        out.write(0xe1);
+        int length = 2 + exifHeader.length + tiff.capacity();
+        out.write(length >> 8);
+        out.write(length & 0xff);
+        out.write(exifHeader);
+        out.write(tiff.array());
+        out.write(image, 2, image.length - 2);
+        return out.toByteArray();
+    }
+}
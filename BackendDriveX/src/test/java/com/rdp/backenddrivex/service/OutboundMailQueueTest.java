@@ -0,0 +1,245 @@
+package com.rdp.backenddrivex.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rdp.backenddrivex.config.MailQueueProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class OutboundMailQueueTest {
+
+    @TempDir
+    Path spillDirectory;
+
+    private LocalSmtpServer smtpServer;
+    private OutboundMailQueue mailQueue;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        smtpServer = new LocalSmtpServer();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (mailQueue != null) {
+            mailQueue.shutdown();
+        }
+        smtpServer.close();
+    }
+
+    @Test
+    void sendsBatchesOverSharedConnections() throws Exception {
+        mailQueue = newQueue(smtpServer.port(), 1);
+
+        for (int i = 0; i < 10; i++) {
+            mailQueue.enqueue(message("user" + i + "@example.com"));
+        }
+
+        awaitTrue(() -> smtpServer.messages().size() == 10);
+        assertTrue(smtpServer.connections() < 10,
+                "expected connection reuse, got " + smtpServer.connections() + " connections");
+        awaitTrue(() -> mailQueue.size() == 0);
+    }
+
+    @Test
+    void retriesTransientFailures() throws Exception {
+        smtpServer.failNextMailCommands(2);
+        mailQueue = newQueue(smtpServer.port(), 1);
+
+        mailQueue.enqueue(message("retry@example.com"));
+
+        awaitTrue(() -> smtpServer.messages().size() == 1);
+        assertTrue(smtpServer.messages().get(0).contains("retry@example.com"));
+    }
+
+    @Test
+    void spillsUnsentMessagesAndReloadsThem() throws Exception {
+        int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        OutboundMailQueue unreachable = newQueue(deadPort, 1);
+        for (int i = 0; i < 3; i++) {
+            unreachable.enqueue(message("spill" + i + "@example.com"));
+        }
+        unreachable.shutdown();
+        assertEquals(3, spilledFiles());
+
+        mailQueue = newQueue(smtpServer.port(), 1);
+
+        awaitTrue(() -> smtpServer.messages().size() == 3);
+        assertEquals(0, spilledFiles());
+    }
+
+    @Test
+    void keepsQueuedMessagesOnDiskUntilSent() throws Exception {
+        int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        OutboundMailQueue unreachable = newQueue(deadPort, 1);
+        for (int i = 0; i < 3; i++) {
+            unreachable.enqueue(message("crash" + i + "@example.com"));
+        }
+        // Without a shutdown, as after a crash
+        assertEquals(3, spilledFiles());
+        assertEquals(3, unreachable.size());
+        unreachable.shutdown();
+
+        mailQueue = newQueue(smtpServer.port(), 1);
+
+        awaitTrue(() -> smtpServer.messages().size() == 3);
+        awaitTrue(() -> mailQueue.size() == 0);
+        assertEquals(0, spilledFiles());
+    }
+
+    @Test
+    void keepsMessagesThatRanOutOfAttempts() throws Exception {
+        smtpServer.failNextMailCommands(2);
+        mailQueue = newQueue(smtpServer.port(), 1, 2);
+
+        mailQueue.enqueue(message("stubborn@example.com"));
+
+        awaitTrue(() -> mailQueue.size() == 0);
+        assertEquals(0, smtpServer.messages().size());
+        assertEquals(1, spilledFiles());
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            Path file = files.filter(f -> f.toString().endsWith(".json")).findFirst().orElseThrow();
+            assertEquals(2, new ObjectMapper().readValue(file.toFile(), OutboundMailQueue.SpilledMail.class).attempts());
+        }
+
+        mailQueue.reloadSpilled();
+
+        awaitTrue(() -> smtpServer.messages().size() == 1);
+        awaitTrue(() -> mailQueue.size() == 0);
+        assertEquals(0, spilledFiles());
+    }
+
+    @Test
+    void reloadSkipsMessagesAlreadyQueued() throws Exception {
+        int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        mailQueue = newQueue(deadPort, 1);
+        mailQueue.enqueue(message("once@example.com"));
+
+        mailQueue.reloadSpilled();
+
+        assertEquals(1, mailQueue.size());
+    }
+
+    @Test
+    void movesUnreadableSpillFilesAside() throws Exception {
+        Files.writeString(spillDirectory.resolve("0-corrupt.json"), "{not json");
+        Files.writeString(spillDirectory.resolve("1-good.json"), new ObjectMapper().writeValueAsString(
+                new OutboundMailQueue.SpilledMail("noreply@drivex.com", new String[]{"good@example.com"},
+                        "Password Reset Request - DriveX", "Reset link", 0)));
+
+        mailQueue = newQueue(smtpServer.port(), 1);
+
+        awaitTrue(() -> smtpServer.messages().size() == 1);
+        assertTrue(smtpServer.messages().get(0).contains("good@example.com"));
+        assertEquals(0, spilledFiles());
+        assertTrue(Files.exists(spillDirectory.resolve("0-corrupt.json.bad")));
+    }
+
+    @Test
+    void spillFilesAreOwnerOnly() throws Exception {
+        assumeTrue(FileSystems.getDefault().supportedFileAttributeViews().contains("posix"));
+        int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        OutboundMailQueue unreachable = newQueue(deadPort, 1);
+        unreachable.enqueue(message("private@example.com"));
+        unreachable.shutdown();
+
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(spillDirectory)));
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            for (Path file : files.toList()) {
+                assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(file)));
+            }
+        }
+    }
+
+    @Test
+    void enqueueDoesNotWaitForSlowRelay() throws Exception {
+        int deadPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            deadPort = socket.getLocalPort();
+        }
+        mailQueue = newQueue(deadPort, 1);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            mailQueue.enqueue(message("fast" + i + "@example.com"));
+        }
+        long elapsed = System.nanoTime() - start;
+
+        assertTrue(Duration.ofNanos(elapsed).toMillis() < 500, "enqueue took " + elapsed + "ns");
+    }
+
+    private OutboundMailQueue newQueue(int port, int senders) {
+        return newQueue(port, senders, new MailQueueProperties().getMaxAttempts());
+    }
+
+    private OutboundMailQueue newQueue(int port, int senders, int maxAttempts) {
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("localhost");
+        mailSender.setPort(port);
+        mailSender.getJavaMailProperties().put("mail.smtp.connectiontimeout", "1000");
+        mailSender.getJavaMailProperties().put("mail.smtp.timeout", "1000");
+
+        MailQueueProperties properties = new MailQueueProperties();
+        properties.setSenders(senders);
+        properties.setBatchSize(20);
+        properties.setMaxAttempts(maxAttempts);
+        properties.setInitialBackoff(Duration.ofMillis(50));
+        properties.setMaxBackoff(Duration.ofMillis(200));
+        properties.setSpillDirectory(spillDirectory);
+        return new OutboundMailQueue(mailSender, properties, new ObjectMapper());
+    }
+
+    private static SimpleMailMessage message(String to) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom("noreply@drivex.com");
+        message.setTo(to);
+        message.setSubject("Password Reset Request - DriveX");
+        message.setText("Reset link for " + to);
+        return message;
+    }
+
+    private long spilledFiles() throws IOException {
+        try (Stream<Path> files = Files.list(spillDirectory)) {
+            return files.filter(f -> f.toString().endsWith(".json")).count();
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 10s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
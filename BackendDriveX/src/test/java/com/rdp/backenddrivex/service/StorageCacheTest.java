@@ -0,0 +1,185 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.StorageCacheProperties;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StorageCacheTest {
+
+    private static final String PATH = "user/file.bin";
+    private static final byte[] CONTENT = new byte[100_000];
+
+    static {
+        new SplittableRandom(7).nextBytes(CONTENT);
+    }
+
+    @TempDir
+    Path directory;
+
+    private final SupabaseService supabaseService = mock(SupabaseService.class);
+    // Whole-file reads from storage wait for this, so concurrent misses overlap
+    private final CountDownLatch fillReleased = new CountDownLatch(1);
+    private StorageCache storageCache;
+
+    @BeforeEach
+    void setUp() {
+        when(supabaseService.openFile(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int first = (int) (long) invocation.getArgument(1, Long.class);
+            int last = (int) (long) invocation.getArgument(2, Long.class);
+            if (first == 0 && last == CONTENT.length - 1) {
+                fillReleased.await(10, TimeUnit.SECONDS);
+            }
+            return new ByteArrayInputStream(CONTENT, first, last - first + 1);
+        });
+        StorageCacheProperties properties = new StorageCacheProperties();
+        properties.setDirectory(directory);
+        storageCache = new StorageCache(supabaseService, properties,
+                new DriveXMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        storageCache.shutdown();
+    }
+
+    @Test
+    void cachesOnTheSecondRead() throws Exception {
+        fillReleased.countDown();
+
+        assertArrayEquals(range(10, 19), read(10, 19));
+        // The first read goes straight to storage, for just the range
+        verify(supabaseService).openFile(PATH, 10, 19);
+        assertEquals(0, cachedFiles());
+
+        assertArrayEquals(range(20, 29), read(20, 29));
+        // The second one copies the whole file and reads the range from the copy
+        verify(supabaseService).openFile(PATH, 0, CONTENT.length - 1);
+        verify(supabaseService, times(0)).openFile(PATH, 20, 29);
+        assertEquals(1, cachedFiles());
+
+        assertArrayEquals(CONTENT, read(0, CONTENT.length - 1));
+        verify(supabaseService, times(2)).openFile(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void concurrentMissesShareOneStorageRead() throws Exception {
+        read(0, 0);
+
+        int readers = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(readers);
+        try {
+            CountDownLatch started = new CountDownLatch(readers);
+            List<Future<byte[]>> reads = new ArrayList<>();
+            for (int i = 0; i < readers; i++) {
+                int first = i * 1000;
+                reads.add(executor.submit(() -> {
+                    started.countDown();
+                    return read(first, first + 999);
+                }));
+            }
+            started.await();
+            // Gives every reader time to find the copy still being filled
+            Thread.sleep(200);
+            fillReleased.countDown();
+
+            for (int i = 0; i < readers; i++) {
+                assertArrayEquals(range(i * 1000, i * 1000 + 999), reads.get(i).get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(supabaseService, times(1)).openFile(PATH, 0, CONTENT.length - 1);
+        verify(supabaseService, times(2)).openFile(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void rangeReadsComeFromTheCopy() throws Exception {
+        fillReleased.countDown();
+        read(0, 0);
+        read(0, 0);
+
+        try (InputStream in = storageCache.openRange(PATH, 54_321, 65_432)) {
+            assertArrayEquals(range(54_321, 65_432), in.readAllBytes());
+        }
+        try (InputStream in = storageCache.openRange(PATH, CONTENT.length - 22, CONTENT.length - 1)) {
+            assertArrayEquals(range(CONTENT.length - 22, CONTENT.length - 1), in.readAllBytes());
+        }
+        verify(supabaseService, times(2)).openFile(anyString(), anyLong(), anyLong());
+    }
+
+    @Test
+    void invalidateDeletesTheCopy() throws Exception {
+        fillReleased.countDown();
+        read(0, 0);
+        read(0, 0);
+        assertEquals(1, cachedFiles());
+
+        storageCache.invalidate(PATH);
+
+        // Removal listeners run asynchronously
+        awaitTrue(() -> cachedFiles() == 0);
+        // Forgotten for admission too: the next read goes to storage again without caching
+        assertArrayEquals(range(5, 9), read(5, 9));
+        verify(supabaseService).openFile(PATH, 5, 9);
+        assertEquals(0, cachedFiles());
+    }
+
+    private byte[] read(long first, long last) throws IOException {
+        try (InputStream in = storageCache.openFile(PATH, CONTENT.length, first, last)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] range(int first, int last) {
+        return Arrays.copyOfRange(CONTENT, first, last + 1);
+    }
+
+    private long cachedFiles() {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("condition not met within 10s");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package com.rdp.backenddrivex.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rdp.backenddrivex.config.SupabaseProperties;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import com.rdp.backenddrivex.observability.tracing.JsonLinesSpanExporter;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.contextpropagation.ObservationThreadLocalAccessor;
+import io.micrometer.tracing.Tracer;
+import io.micrometer.tracing.handler.DefaultTracingObservationHandler;
+import io.micrometer.tracing.handler.PropagatingSenderTracingObservationHandler;
+import io.micrometer.tracing.otel.bridge.OtelCurrentTraceContext;
+import io.micrometer.tracing.otel.bridge.OtelPropagator;
+import io.micrometer.tracing.otel.bridge.OtelTracer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.propagation.W3CTraceContextPropagator;
+import io.opentelemetry.context.propagation.ContextPropagators;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Hooks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SupabaseServiceTracingTest {
+
+    private final InMemorySpanExporter spans = InMemorySpanExporter.create();
+    private final List<String> traceparents = new CopyOnWriteArrayList<>();
+
+    private HttpServer storage;
+    private SdkTracerProvider tracerProvider;
+    private ObservationRegistry observationRegistry;
+    private SupabaseService supabaseService;
+
+    @BeforeAll
+    static void enableContextPropagation() {
+        Hooks.enableAutomaticContextPropagation();
+    }
+
+    @AfterAll
+    static void disableContextPropagation() {
+        Hooks.disableAutomaticContextPropagation();
+    }
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        storage.createContext("/", exchange -> {
+            traceparents.add(String.valueOf(exchange.getRequestHeaders().getFirst("traceparent")));
+            byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        storage.start();
+
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(spans))
+                .build();
+        io.opentelemetry.api.trace.Tracer otelTracer = tracerProvider.get("drivex-test");
+        Tracer tracer = new OtelTracer(otelTracer, new OtelCurrentTraceContext(), event -> { });
+        OtelPropagator propagator = new OtelPropagator(
+                ContextPropagators.create(W3CTraceContextPropagator.getInstance()), otelTracer);
+
+        observationRegistry = ObservationRegistry.create();
+        observationRegistry.observationConfig().observationHandler(
+                new ObservationHandler.FirstMatchingCompositeObservationHandler(
+                        new PropagatingSenderTracingObservationHandler<>(tracer, propagator),
+                        new DefaultTracingObservationHandler(tracer)));
+        ObservationThreadLocalAccessor.getInstance().setObservationRegistry(observationRegistry);
+
+        SupabaseProperties properties = new SupabaseProperties();
+        properties.setUrl("http://localhost:" + storage.getAddress().getPort());
+        properties.getService().setKey("service-key");
+        properties.getBucket().setName("files");
+        supabaseService = new SupabaseService(properties,
+                WebClient.builder().observationRegistry(observationRegistry),
+                new DriveXMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.stop(0);
+        tracerProvider.close();
+    }
+
+    @Test
+    void storageCallsAreChildSpansOfTheCallingObservation() {
+        Observation.createNotStarted("drivex.files.service", observationRegistry)
+                .contextualName("FileService#deleteFile")
+                .observe(() -> supabaseService.deleteFile("user@example.com/report.pdf"));
+
+        SpanData parent = span("file-service#delete-file");
+        SpanData client = spans.getFinishedSpanItems().stream()
+                .filter(span -> span.getKind() == SpanKind.CLIENT)
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no client span in " + spans.getFinishedSpanItems()));
+
+        assertEquals(parent.getTraceId(), client.getTraceId());
+        assertEquals(parent.getSpanId(), client.getParentSpanId());
+        // The per-file path must not leak into span attributes used for grouping
+        assertEquals("/storage/v1/object/{bucket}/{path}", client.getAttributes().get(AttributeKey.stringKey("uri")));
+        // And the trace continues into the storage service
+        assertEquals(1, traceparents.size());
+        assertTrue(traceparents.get(0).contains(parent.getTraceId()), traceparents.get(0));
+    }
+
+    @Test
+    void spansAreWrittenToFileAsJsonLines(@TempDir Path directory) throws IOException {
+        Observation.createNotStarted("drivex.files.service", observationRegistry)
+                .contextualName("FileService#fileExists")
+                .observe(() -> supabaseService.fileExists("user@example.com/photo.jpg"));
+
+        Path file = directory.resolve("spans.jsonl");
+        JsonLinesSpanExporter exporter = new JsonLinesSpanExporter(file);
+        exporter.export(spans.getFinishedSpanItems());
+        exporter.shutdown();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        ObjectMapper objectMapper = new ObjectMapper();
+        JsonNode client = objectMapper.readTree(lines.get(0));
+        JsonNode parent = objectMapper.readTree(lines.get(1));
+        assertEquals("CLIENT", client.get("kind").asText());
+        assertEquals(parent.get("spanId").asText(), client.get("parentSpanId").asText());
+        assertEquals("file-service#file-exists", parent.get("name").asText());
+    }
+
+    private SpanData span(String name) {
+        return spans.getFinishedSpanItems().stream()
+                .filter(span -> span.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("no span named " + name + " in " + spans.getFinishedSpanItems()));
+    }
+}
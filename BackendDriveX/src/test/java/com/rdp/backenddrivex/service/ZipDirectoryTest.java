@@ -0,0 +1,264 @@
+package com.rdp.backenddrivex.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.zip.CRC32;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ZipDirectoryTest {
+
+    private static final int TAIL = 64 * 1024;
+    private static final long MAX_DIRECTORY = 16 * 1024 * 1024;
+    private static final int MAX_ENTRIES = 100_000;
+    private static final byte[] TEXT = "All work and no play\n".repeat(200).getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BINARY = random(3, 3000);
+    private static final LocalDateTime MODIFIED = LocalDateTime.of(2024, 5, 6, 7, 8, 10);
+
+    private int reads;
+
+    @Test
+    void readsPlainArchive() throws IOException {
+        byte[] archive = sample(null);
+        List<ZipDirectory.Entry> entries = read(archive, TAIL);
+        // The tail held the whole directory
+        assertEquals(1, reads);
+        assertSample(archive, entries);
+
+        ZipDirectory.Entry directory = entries.get(0);
+        assertTrue(directory.isDirectory());
+        assertEquals(0, directory.size());
+        ZipDirectory.Entry text = entries.get(1);
+        assertEquals(ZipDirectory.METHOD_DEFLATED, text.method());
+        assertTrue(text.compressedSize() < text.size());
+        assertFalse(text.isEncrypted());
+        assertEquals(MODIFIED, text.modifiedAt());
+        assertEquals(ZipDirectory.METHOD_STORED, entries.get(2).method());
+    }
+
+    @Test
+    void readsDirectoryOutsideTheTail() throws IOException {
+        byte[] archive = sample(null);
+        assertSample(archive, read(archive, 100));
+        // The tail, then the directory
+        assertEquals(2, reads);
+    }
+
+    @Test
+    void findsEndRecordBeforeLongComment() throws IOException {
+        // Longer than the first read, with something like an end record in it
+        String comment = "PK\u0005\u0006" + "x".repeat(60_000);
+        byte[] archive = sample(comment);
+        assertSample(archive, read(archive, 1024));
+        // The tail, then the longest tail an end record can need, which holds the directory too
+        assertEquals(2, reads);
+    }
+
+    @Test
+    void shiftsOffsetsPastPrependedData() throws IOException {
+        // As in a self-extracting archive: offsets in the archive count from its own start
+        byte[] stub = random(5, 10_000);
+        byte[] zip = sample(null);
+        byte[] archive = Arrays.copyOf(stub, stub.length + zip.length);
+        System.arraycopy(zip, 0, archive, stub.length, zip.length);
+
+        List<ZipDirectory.Entry> entries = read(archive, 100);
+        assertSample(archive, entries);
+        assertEquals(stub.length, entries.get(0).localHeaderOffset());
+    }
+
+    @Test
+    void readsZip64ArchiveWithMoreEntriesThanTheEndRecordCounts() throws IOException {
+        int count = 70_000;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < count; i++) {
+                zip.putNextEntry(new ZipEntry("f" + i));
+                zip.write(Integer.toString(i).getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        byte[] archive = bytes.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN);
+        int end = archive.length - 22;
+        // The plain end record cannot count the entries; the ZIP64 one before it does
+        assertEquals(0xffff, buffer.getShort(end + 10) & 0xffff);
+        assertEquals(0x07064b50, buffer.getInt(end - 20));
+
+        List<ZipDirectory.Entry> entries = read(archive, TAIL);
+        assertEquals(count, entries.size());
+        assertEquals("f0", entries.get(0).name());
+        assertEquals("f69999", entries.get(count - 1).name());
+        assertArrayEquals("69999".getBytes(StandardCharsets.US_ASCII), data(archive, entries.get(count - 1)));
+
+        ZipException tooMany = assertThrows(ZipException.class,
+                () -> ZipDirectory.read(archive.length, TAIL, MAX_DIRECTORY, 65_535,
+                        (offset, length) -> readRange(archive, offset, length)));
+        assertTrue(tooMany.getMessage().contains("more than 65535 entries"), tooMany.getMessage());
+
+        // The ZIP64 end record's offset, in the locator, pointing at something else
+        byte[] badRecord = archive.clone();
+        long zip64End = buffer.getLong(end - 20 + 8);
+        ByteBuffer.wrap(badRecord).order(ByteOrder.LITTLE_ENDIAN).putLong(end - 20 + 8, zip64End - 1);
+        assertInvalid(badRecord, "Bad ZIP64 end of central directory record");
+        // Or outside the archive, without reading there
+        for (long outside : new long[]{archive.length - 10, -1, Long.MAX_VALUE}) {
+            byte[] badOffset = archive.clone();
+            ByteBuffer.wrap(badOffset).order(ByteOrder.LITTLE_ENDIAN).putLong(end - 20 + 8, outside);
+            assertInvalid(badOffset, "ZIP64 end of central directory record lies outside the archive");
+        }
+    }
+
+    @Test
+    void rejectsTruncatedArchives() throws IOException {
+        byte[] archive = sample(null);
+        assertInvalid(Arrays.copyOf(archive, 10), "Too short to be a ZIP archive");
+        // Cut inside the end record
+        assertInvalid(Arrays.copyOf(archive, archive.length - 5), "No end of central directory record");
+        // Cut inside the directory: the end record then claims more directory than there is in front of it
+        byte[] noFront = Arrays.copyOfRange(archive, directoryOffset(archive) + 10, archive.length);
+        assertInvalid(noFront, "Central directory does not fit the archive");
+    }
+
+    @Test
+    void rejectsCorruptDirectories() throws IOException {
+        byte[] archive = sample(null);
+        int directory = directoryOffset(archive);
+
+        byte[] badSignature = archive.clone();
+        badSignature[directory] = 'X';
+        assertInvalid(badSignature, "Bad central directory entry at 0");
+
+        // The first entry's name length reaching past the end of the directory
+        byte[] longName = archive.clone();
+        ByteBuffer.wrap(longName).order(ByteOrder.LITTLE_ENDIAN).putShort(directory + 28, (short) 0x7fff);
+        assertInvalid(longName, "runs past the directory");
+
+        // A directory size that ends in the middle of an entry
+        byte[] shortSize = archive.clone();
+        ByteBuffer end = ByteBuffer.wrap(shortSize).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(shortSize.length - 22 + 12, end.getInt(shortSize.length - 22 + 12) - 10);
+        assertThrows(ZipException.class, () -> read(shortSize, TAIL));
+
+        ZipException tooLarge = assertThrows(ZipException.class,
+                () -> ZipDirectory.read(archive.length, TAIL, 50, MAX_ENTRIES,
+                        (offset, length) -> readRange(archive, offset, length)));
+        assertTrue(tooLarge.getMessage().contains("over the limit of 50"), tooLarge.getMessage());
+
+        assertThrows(ZipException.class, () -> ZipDirectory.localHeaderLength(new byte[30]));
+    }
+
+    // "docs/", "docs/notes.txt" deflated, "data.bin" stored, "ünïcode.txt" deflated
+    private static byte[] sample(String comment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            if (comment != null) {
+                zip.setComment(comment);
+            }
+            ZipEntry directory = new ZipEntry("docs/");
+            directory.setTimeLocal(MODIFIED);
+            zip.putNextEntry(directory);
+
+            ZipEntry text = new ZipEntry("docs/notes.txt");
+            text.setTimeLocal(MODIFIED);
+            zip.putNextEntry(text);
+            zip.write(TEXT);
+
+            ZipEntry stored = new ZipEntry("data.bin");
+            stored.setMethod(ZipEntry.STORED);
+            stored.setSize(BINARY.length);
+            stored.setCompressedSize(BINARY.length);
+            CRC32 crc = new CRC32();
+            crc.update(BINARY);
+            stored.setCrc(crc.getValue());
+            zip.putNextEntry(stored);
+            zip.write(BINARY);
+
+            zip.putNextEntry(new ZipEntry("ünïcode.txt"));
+            zip.write(TEXT, 0, 100);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void assertSample(byte[] archive, List<ZipDirectory.Entry> entries) throws IOException {
+        assertEquals(List.of("docs/", "docs/notes.txt", "data.bin", "ünïcode.txt"),
+                entries.stream().map(ZipDirectory.Entry::name).toList());
+        assertArrayEquals(TEXT, data(archive, entries.get(1)));
+        assertArrayEquals(BINARY, data(archive, entries.get(2)));
+        assertArrayEquals(Arrays.copyOf(TEXT, 100), data(archive, entries.get(3)));
+        for (ZipDirectory.Entry entry : entries) {
+            CRC32 crc = new CRC32();
+            crc.update(data(archive, entry));
+            assertEquals(crc.getValue(), entry.crc(), entry.name());
+            assertEquals(data(archive, entry).length, entry.size(), entry.name());
+        }
+    }
+
+    // An entry's bytes, found through its local header the way ZipInspectionService finds them
+    private static byte[] data(byte[] archive, ZipDirectory.Entry entry) throws IOException {
+        int start = (int) entry.localHeaderOffset();
+        int dataStart = start + ZipDirectory.localHeaderLength(
+                Arrays.copyOfRange(archive, start, start + ZipDirectory.LOCAL_HEADER_SIZE));
+        byte[] stored = Arrays.copyOfRange(archive, dataStart, dataStart + (int) entry.compressedSize());
+        if (entry.method() == ZipDirectory.METHOD_STORED) {
+            return stored;
+        }
+        Inflater inflater = new Inflater(true);
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(stored), inflater)) {
+            return in.readAllBytes();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Where the directory starts, from the end record of an archive without a comment
+    private static int directoryOffset(byte[] archive) {
+        return ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN).getInt(archive.length - 22 + 16);
+    }
+
+    private List<ZipDirectory.Entry> read(byte[] archive, int tailSize) throws IOException {
+        reads = 0;
+        return ZipDirectory.read(archive.length, tailSize, MAX_DIRECTORY, MAX_ENTRIES,
+                (offset, length) -> {
+                    reads++;
+                    return readRange(archive, offset, length);
+                });
+    }
+
+    private void assertInvalid(byte[] archive, String message) {
+        ZipException e = assertThrows(ZipException.class, () -> read(archive, TAIL));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+
+    private static byte[] random(long seed, int length) {
+        byte[] bytes = new byte[length];
+        new SplittableRandom(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static byte[] readRange(byte[] archive, long offset, int length) throws IOException {
+        if (offset < 0 || offset + length > archive.length) {
+            throw new IOException("Read of " + length + " bytes at " + offset + " is outside the archive");
+        }
+        return Arrays.copyOfRange(archive, (int) offset, (int) offset + length);
+    }
+}
@@ -0,0 +1,171 @@
+package com.rdp.backenddrivex.service;
+
+import com.rdp.backenddrivex.config.ZipInspectionProperties;
+import com.rdp.backenddrivex.entity.File;
+import com.rdp.backenddrivex.exception.BadRequestException;
+import com.rdp.backenddrivex.observability.DriveXMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ZipInspectionServiceTest {
+
+    private static final byte[] TEXT = "The quick brown fox\n".repeat(500).getBytes(StandardCharsets.US_ASCII);
+
+    // Compressed bytes served from storage, across all reads
+    private final AtomicLong served = new AtomicLong();
+
+    @Test
+    void extractsDeflatedEntry() throws IOException {
+        byte[] archive = archive(256);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        service(archive).writeEntry(file(archive), 0, response);
+        assertEquals(TEXT.length, response.getContentLengthLong());
+        assertArrayEquals(TEXT, response.getContentAsByteArray());
+    }
+
+    @Test
+    void stopsInflatingPastTheListedSize() throws IOException {
+        // 256 MB of zeros deflate to about 250 KB; the directory claims 100 bytes
+        byte[] archive = archive(256 * 1024 * 1024);
+        // Its uncompressed size
+        setDirectoryField(archive, "bomb.bin", 24, 100);
+        ZipInspectionService service = service(archive);
+        File file = file(archive);
+        // Lists it, so only the entry's reads are counted below
+        assertEquals(100, service.listEntries(file, 0, 10).getEntries().get(1).getSize());
+
+        long before = served.get();
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> service.writeEntry(file, 1, new MockHttpServletResponse()));
+        assertTrue(e.getMessage().contains("more than 100 bytes"), e.getMessage());
+        // One inflater buffer of input, not the whole entry
+        assertTrue(served.get() - before < 100 * 1024, "read " + (served.get() - before) + " bytes");
+    }
+
+    @Test
+    void rejectsEntriesThatRunPastTheArchive() throws IOException {
+        byte[] archive = archive(256);
+        // Its compressed size
+        setDirectoryField(archive, "text.txt", 20, archive.length);
+        ZipInspectionService service = service(archive);
+        File file = file(archive);
+        service.listEntries(file, 0, 10);
+
+        long before = served.get();
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> service.writeEntry(file, 0, new MockHttpServletResponse()));
+        assertTrue(e.getMessage().contains("lies outside the archive"), e.getMessage());
+        assertEquals(before, served.get());
+    }
+
+    @Test
+    void rejectsLocalHeadersThatPushTheDataPastTheArchive() throws IOException {
+        byte[] archive = archive(256);
+        // text.txt's local header, first in the archive, claiming the longest extra field
+        ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN).putShort(28, (short) 0xffff);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        BadRequestException e = assertThrows(BadRequestException.class,
+                () -> service(archive).writeEntry(file(archive), 0, response));
+        assertTrue(e.getMessage().contains("lies outside the archive"), e.getMessage());
+        // Reset, so the error goes out as JSON rather than under the entry's headers
+        assertNull(response.getHeader(HttpHeaders.CONTENT_DISPOSITION));
+    }
+
+    // text.txt with TEXT, then bomb.bin with that many zeros
+    private static byte[] archive(int bombSize) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("text.txt"));
+            zip.write(TEXT);
+            zip.putNextEntry(new ZipEntry("bomb.bin"));
+            byte[] zeros = new byte[1024 * 1024];
+            for (int left = bombSize; left > 0; left -= zeros.length) {
+                zip.write(zeros, 0, Math.min(left, zeros.length));
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    // Rewrites a 4-byte field of an entry's central directory record
+    private static void setDirectoryField(byte[] archive, String name, int field, int value) {
+        ByteBuffer buffer = ByteBuffer.wrap(archive).order(ByteOrder.LITTLE_ENDIAN);
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        for (int i = archive.length - 46; i >= 0; i--) {
+            if (buffer.getInt(i) == 0x02014b50 && buffer.getShort(i + 28) == nameBytes.length
+                    && new String(archive, i + 46, nameBytes.length, StandardCharsets.UTF_8).equals(name)) {
+                buffer.putInt(i + field, value);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("No directory entry " + name);
+    }
+
+    private ZipInspectionService service(byte[] archive) {
+        StorageCache storageCache = mock(StorageCache.class);
+        when(storageCache.openRange(anyString(), anyLong(), anyLong())).thenAnswer(invocation -> {
+            int first = (int) (long) invocation.getArgument(1, Long.class);
+            int last = (int) (long) invocation.getArgument(2, Long.class);
+            return counting(new ByteArrayInputStream(archive, first, last - first + 1));
+        });
+        return new ZipInspectionService(storageCache, new ZipInspectionProperties(),
+                new DriveXMetrics(new SimpleMeterRegistry()), new SimpleMeterRegistry());
+    }
+
+    private InputStream counting(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int read = super.read();
+                if (read >= 0) {
+                    served.incrementAndGet();
+                }
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    served.addAndGet(read);
+                }
+                return read;
+            }
+        };
+    }
+
+    private static File file(byte[] archive) {
+        File file = new File();
+        file.setId(UUID.randomUUID());
+        file.setFilename("archive.zip");
+        file.setStoragePath("user/" + UUID.randomUUID() + ".zip");
+        file.setMimeType("application/zip");
+        file.setSizeBytes((long) archive.length);
+        return file;
+    }
+}
@@ -73,10 +73,26 @@ export default function DashboardPage() {
   };
 
   const handleDownload = async (id: string) => {
-    // Files have public URLs, so we can just open them directly
+    // Most files have public URLs, so we can just open them directly
     const file = filtered.find((f) => f.id === id);
-    if (file?.url) {
+    if (!file) return;
+    if (file.url) {
       window.open(file.url, "_blank");
+      return;
+    }
+
+    // Compressed files come through the API, which needs the token
+    try {
+      const { fileAPI } = await import("@/lib/api");
+      const blob = await fileAPI.getContent(id, token || undefined);
+      const objectUrl = URL.createObjectURL(blob);
+      const link = document.createElement("a");
+      link.href = objectUrl;
+      link.download = file.name;
+      link.click();
+      setTimeout(() => URL.revokeObjectURL(objectUrl), 60_000);
+    } catch (error) {
+      console.error("Failed to download file:", error);
     }
   };
 
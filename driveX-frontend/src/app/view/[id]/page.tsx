@@ -12,7 +12,7 @@ type ViewData = {
   id: string;
   name: string;
   mimeType: string;
-  url: string;
+  url: string | null;
   uploadedAt: string;
   size: number;
   kind: string;
@@ -51,6 +51,26 @@ export default function ViewFilePage() {
     if (!token) router.replace("/auth");
   }, [token, router]);
 
+  // Files stored compressed have no public URL: fetch them with the token instead
+  const [contentUrl, setContentUrl] = React.useState<string | null>(null);
+  React.useEffect(() => {
+    if (!data || data.url || !token) return;
+    let objectUrl: string | null = null;
+    let cancelled = false;
+    import("@/lib/api")
+      .then(({ fileAPI }) => fileAPI.getContent(data.id, token))
+      .then((blob) => {
+        if (cancelled) return;
+        objectUrl = URL.createObjectURL(blob);
+        setContentUrl(objectUrl);
+      })
+      .catch((error) => console.error("Failed to load file content:", error));
+    return () => {
+      cancelled = true;
+      if (objectUrl) URL.revokeObjectURL(objectUrl);
+    };
+  }, [data, token]);
+
   return (
     <main className="min-h-dvh max-w-5xl mx-auto p-6">
       <div className="flex items-center justify-between mb-4">
@@ -75,7 +95,11 @@ export default function ViewFilePage() {
       )}
       {data && (
         <div className="grid gap-4">
-          <FilePreview mimeType={data.mimeType} src={data.url} />
+          {data.url || contentUrl ? (
+            <FilePreview mimeType={data.mimeType} src={data.url || contentUrl || ""} />
+          ) : (
+            <div className="text-sm text-muted-foreground">Loading preview...</div>
+          )}
           <div className="flex items-center justify-between text-xs text-muted-foreground">
             <span>{new Date(data.uploadedAt).toLocaleString()}</span>
             <span>{Math.round(data.size / 1024)} KB</span>
@@ -25,6 +25,7 @@ import {
 } from "@/components/ui/dialog";
 import FilePreview from "@/components/file-preview";
 import type { FileItem } from "@/lib/api";
+import { useAuth } from "@/context/auth-context";
 
 function iconFor(mimeType: string, onClick?: () => void) {
   const iconClass =
@@ -64,16 +65,39 @@ type Props = {
 };
 
 export default function FileCard({ file, onDelete, onDownload }: Props) {
+  const { token } = useAuth();
   const [modalOpen, setModalOpen] = React.useState(false);
+  // Files stored compressed have no public URL: fetch them with the token when previewed
+  const [contentUrl, setContentUrl] = React.useState<string | null>(null);
   const sizeKB = Math.max(1, Math.round(file.size / 1024));
   const date = new Date(file.uploadedAt).toLocaleDateString();
 
+  React.useEffect(() => {
+    if (!modalOpen || file.url || !token) return;
+    let objectUrl: string | null = null;
+    let cancelled = false;
+    import("@/lib/api")
+      .then(({ fileAPI }) => fileAPI.getContent(file.id, token))
+      .then((blob) => {
+        if (cancelled) return;
+        objectUrl = URL.createObjectURL(blob);
+        setContentUrl(objectUrl);
+      })
+      .catch((error) => console.error("Failed to load file content:", error));
+    return () => {
+      cancelled = true;
+      if (objectUrl) URL.revokeObjectURL(objectUrl);
+      setContentUrl(null);
+    };
+  }, [modalOpen, file.id, file.url, token]);
+
   const handleIconClick = () => {
     setModalOpen(true);
   };
 
   const renderPreviewContent = () => {
-    const { mimeType, url } = file;
+    const { mimeType } = file;
+    const url = file.url ?? contentUrl;
 
     // Check if file type is previewable
     const isPreviewable =
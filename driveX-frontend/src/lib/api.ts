@@ -2,6 +2,19 @@ export const API_BASE = process.env.NEXT_PUBLIC_API_URL || "http://localhost:808
 
 export const IS_MOCK = false;
 
+// Signed marker the backend returns after a write. Sending it back keeps the
+// next reads on the primary database, whichever backend node serves them, so
+// they see the write even when read replicas lag behind.
+const LAST_WRITE_HEADER = "X-Last-Write";
+let lastWrite: string | null = null;
+
+function rememberLastWrite(response: Response) {
+  const marker = response.headers.get(LAST_WRITE_HEADER);
+  if (marker) {
+    lastWrite = marker;
+  }
+}
+
 export async function apiFetch<T>(
   path: string,
   opts: RequestInit = {},
@@ -22,10 +35,15 @@ export async function apiFetch<T>(
     headers.Authorization = `Bearer ${token}`;
   }
 
+  if (lastWrite) {
+    headers[LAST_WRITE_HEADER] = lastWrite;
+  }
+
   const response = await fetch(url, {
     ...opts,
     headers,
   });
+  rememberLastWrite(response);
 
   if (!response.ok) {
     const errorData = await response
@@ -138,7 +156,8 @@ export const authAPI = {
 export interface FileItem {
   id: string;
   name: string;
-  url: string;
+  // Null for files stored compressed: read them with fileAPI.getContent
+  url: string | null;
   mimeType: string;
   size: number;
   uploadedAt: string;
@@ -211,6 +230,26 @@ export const fileAPI = {
     );
   },
 
+  // The file's bytes through the API, which needs the token, as a Blob
+  getContent: async (id: string, token?: string): Promise<Blob> => {
+    const headers: Record<string, string> = {};
+    if (token) {
+      headers.Authorization = `Bearer ${token}`;
+    }
+    if (lastWrite) {
+      headers[LAST_WRITE_HEADER] = lastWrite;
+    }
+    const response = await fetch(`${API_BASE}/files/${id}/content?inline=true`, {
+      headers,
+    });
+
+    if (!response.ok) {
+      throw new Error(`HTTP ${response.status}`);
+    }
+
+    return response.blob();
+  },
+
   deleteFile: async (
     id: string,
     token?: string